@@ -4,11 +4,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main entry point for Customer Service.
  */
 @SpringBootApplication
+@EnableScheduling
 public class CustomerApplication {
     
     private static final Logger log = LoggerFactory.getLogger(CustomerApplication.class);
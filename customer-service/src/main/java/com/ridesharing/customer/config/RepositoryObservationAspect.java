@@ -0,0 +1,37 @@
+package com.ridesharing.customer.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps repository calls in an observation, so each query shows up as a child span of
+ * the request or task that issued it. Calls outside any observation are left alone;
+ * their timings are still in {@code spring.data.repository.invocations}.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryObservationAspect {
+
+    private final ObservationRegistry observationRegistry;
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object observe(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (observationRegistry.getCurrentObservation() == null) {
+            return joinPoint.proceed();
+        }
+        String repository = AopProxyUtils.proxiedUserInterfaces(joinPoint.getThis())[0].getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        return Observation.createNotStarted("db.repository", observationRegistry)
+                .contextualName(repository + "." + method)
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", method)
+                .observeChecked(() -> joinPoint.proceed());
+    }
+}
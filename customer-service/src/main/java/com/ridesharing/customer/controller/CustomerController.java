@@ -1,6 +1,7 @@
 package com.ridesharing.customer.controller;
 
 import com.ridesharing.customer.dto.ApiResponse;
+import com.ridesharing.customer.dto.RidePage;
 import com.ridesharing.customer.dto.RideRequest;
 import com.ridesharing.customer.dto.RideResponse;
 import com.ridesharing.customer.security.CurrentUser;
@@ -16,8 +17,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 
 @RestController
 @RequestMapping("/api/customer/rides")
@@ -35,7 +34,7 @@ public class CustomerController {
             @CurrentUser UserPrincipal currentUser,
             @Valid @RequestBody RideRequest request) {
         
-        log.info("Ride request from authenticated customer: {} (ID: {})", 
+        log.debug("Ride request from authenticated customer: {} (ID: {})", 
                 currentUser.getUsername(), currentUser.getId());
         
         RideResponse ride = rideService.requestRide(currentUser.getId(), currentUser.getUsername(), request);
@@ -45,13 +44,15 @@ public class CustomerController {
 
     @GetMapping("/history")
     @PreAuthorize("hasRole('CUSTOMER')")
-    public ResponseEntity<ApiResponse<List<RideResponse>>> getRideHistory(
-            @CurrentUser UserPrincipal currentUser) {
+    public ResponseEntity<ApiResponse<RidePage>> getRideHistory(
+            @CurrentUser UserPrincipal currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         
-        log.info("Fetching ride history for authenticated customer: {} (ID: {})", 
+        log.debug("Fetching ride history for authenticated customer: {} (ID: {})", 
                 currentUser.getUsername(), currentUser.getId());
         
-        List<RideResponse> rides = rideService.getCustomerRideHistory(currentUser.getId());
+        RidePage rides = rideService.getCustomerRideHistory(currentUser.getId(), cursor, size);
         return ResponseEntity.ok(ApiResponse.success(rides));
     }
     
@@ -1,14 +1,21 @@
 package com.ridesharing.customer.controller;
 
 import com.ridesharing.customer.dto.ApiResponse;
+import com.ridesharing.customer.dto.DriverRideCounts;
+import com.ridesharing.customer.dto.PendingRidesSnapshot;
+import com.ridesharing.customer.dto.RideAssignmentResponse;
+import com.ridesharing.customer.dto.RidePage;
 import com.ridesharing.customer.dto.RideResponse;
+import com.ridesharing.customer.event.RideEventBroadcaster;
 import com.ridesharing.customer.service.RideService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -21,31 +28,58 @@ public class InternalController {
     
 
     private final RideService rideService;
+    private final RideEventBroadcaster rideEventBroadcaster;
     
     @GetMapping("/rides/pending")
     public ResponseEntity<ApiResponse<List<RideResponse>>> getPendingRides() {
-        log.info("Internal: Fetching pending rides");
+        log.debug("Internal: Fetching pending rides");
         return ResponseEntity.ok(ApiResponse.success(rideService.getPendingRides()));
     }
     
+    @GetMapping("/rides/pending/snapshot")
+    public ResponseEntity<ApiResponse<PendingRidesSnapshot>> getPendingRidesSnapshot() {
+        log.debug("Internal: Fetching pending rides snapshot");
+        return ResponseEntity.ok(ApiResponse.success(rideService.getPendingRidesSnapshot()));
+    }
+    
     @PostMapping("/rides/{rideId}/assign")
-    public ResponseEntity<ApiResponse<RideResponse>> assignDriver(
+    public ResponseEntity<ApiResponse<RideAssignmentResponse>> assignDriver(
             @PathVariable Long rideId,
             @RequestParam Long driverId,
-            @RequestParam String driverName) {
+            @RequestParam String driverName,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         
-        log.info("Internal: Assigning driver {} to ride ID: {}", driverName, rideId);
-        RideResponse ride = rideService.assignDriver(rideId, driverId, driverName);
-        return ResponseEntity.ok(ApiResponse.success("Driver assigned successfully", ride));
+        log.debug("Internal: Assigning driver {} to ride ID: {}", driverName, rideId);
+        RideAssignmentResponse assignment = rideService.assignDriver(rideId, driverId, driverName, idempotencyKey);
+        return ResponseEntity.ok(ApiResponse.success(
+                assignment.isAlreadyAssigned() ? "Driver already assigned" : "Driver assigned successfully", assignment));
     }
     
     @GetMapping("/rides/driver/{driverId}")
-    public ResponseEntity<ApiResponse<List<RideResponse>>> getDriverRideHistory(
-            @PathVariable Long driverId) {
+    public ResponseEntity<ApiResponse<RidePage>> getDriverRideHistory(
+            @PathVariable Long driverId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         
-        log.info("Internal: Fetching ride history for driver ID: {}", driverId);
-        return ResponseEntity.ok(ApiResponse.success(rideService.getDriverRideHistory(driverId)));
+        log.debug("Internal: Fetching ride history for driver ID: {}", driverId);
+        return ResponseEntity.ok(ApiResponse.success(rideService.getDriverRideHistory(driverId, cursor, size)));
     }
     
-
+    @GetMapping("/rides/driver-counts")
+    public ResponseEntity<ApiResponse<DriverRideCounts>> getDriverRideCounts(
+            @RequestParam List<Long> driverIds) {
+        
+        log.debug("Internal: Counting rides of {} drivers", driverIds.size());
+        return ResponseEntity.ok(ApiResponse.success(rideService.getDriverRideCounts(driverIds)));
+    }
+    
+    @GetMapping(value = "/rides/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRideEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long cursor) {
+        
+        Long from = lastEventId != null ? lastEventId : cursor;
+        log.debug("Internal: Opening ride event stream from cursor: {}", from);
+        return rideEventBroadcaster.subscribe(from);
+    }
 }
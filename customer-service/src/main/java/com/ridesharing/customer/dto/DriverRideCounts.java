@@ -0,0 +1,23 @@
+package com.ridesharing.customer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rides assigned to each requested driver, with {@code 0} for drivers without rides.
+ * Drivers assigned a ride within the last few minutes are listed in {@code unsettled}
+ * instead, as their total may not include that ride yet.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverRideCounts {
+    private Map<Long, Long> counts;
+    private List<Long> unsettled;
+}
@@ -0,0 +1,20 @@
+package com.ridesharing.customer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The ride after a driver assignment. {@code alreadyAssigned} is set when an earlier request
+ * had assigned the same driver, so this one changed nothing; a retry carrying the idempotency
+ * key of the request that made the assignment is answered as that request.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideAssignmentResponse {
+    private RideResponse ride;
+    private boolean alreadyAssigned;
+}
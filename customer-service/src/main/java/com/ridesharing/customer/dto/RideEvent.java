@@ -0,0 +1,23 @@
+package com.ridesharing.customer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change to a ride, as published on the ride event stream.
+ * The sequence is assigned by the outbox relay and is used as the stream cursor.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideEvent {
+    private Long sequence;
+    private RideEventType type;
+    private RideResponse ride;
+    private LocalDateTime occurredAt;
+}
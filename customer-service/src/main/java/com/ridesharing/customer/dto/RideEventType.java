@@ -0,0 +1,7 @@
+package com.ridesharing.customer.dto;
+
+
+public enum RideEventType {
+    RIDE_REQUESTED,
+    RIDE_ASSIGNED
+}
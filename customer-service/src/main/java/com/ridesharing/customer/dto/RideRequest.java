@@ -1,5 +1,9 @@
 package com.ridesharing.customer.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,4 +22,18 @@ public class RideRequest {
     
     @NotBlank(message = "Drop-off location is required")
     private String dropOffLocation;
+    
+    @DecimalMin(value = "-90.0", message = "Pickup latitude must be between -90 and 90")
+    @DecimalMax(value = "90.0", message = "Pickup latitude must be between -90 and 90")
+    private Double pickupLatitude;
+    
+    @DecimalMin(value = "-180.0", message = "Pickup longitude must be between -180 and 180")
+    @DecimalMax(value = "180.0", message = "Pickup longitude must be between -180 and 180")
+    private Double pickupLongitude;
+    
+    @JsonIgnore
+    @AssertTrue(message = "Pickup latitude and longitude must be provided together")
+    public boolean isPickupCoordinatesComplete() {
+        return (pickupLatitude == null) == (pickupLongitude == null);
+    }
 }
@@ -0,0 +1,35 @@
+package com.ridesharing.customer.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency key of a driver assignment, written in the same transaction as the assignment
+ * so a retried request can be answered with the ride it already assigned.
+ */
+@Entity
+@Table(name = "ride_assignment_keys", schema = "customer")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssignmentKey {
+    
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+    
+    @Column(name = "ride_id", nullable = false)
+    private Long rideId;
+    
+    @Column(name = "driver_id", nullable = false)
+    private Long driverId;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
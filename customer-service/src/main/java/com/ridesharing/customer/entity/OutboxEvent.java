@@ -0,0 +1,53 @@
+package com.ridesharing.customer.entity;
+
+import com.ridesharing.customer.dto.RideEventType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ride event written in the same transaction as the ride change.
+ * The sequence is assigned by the outbox relay when the event is published; the id only
+ * comes from a pooled sequence so events can be inserted in JDBC batches. The insert order
+ * is set by the database when the row is inserted, so an event written after another one
+ * committed, such as the assignment of a requested ride, is always ordered after it.
+ */
+@Entity
+@Table(name = "ride_outbox", schema = "customer")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ride_outbox_event_id_seq")
+    @SequenceGenerator(name = "ride_outbox_event_id_seq", schema = "customer", sequenceName = "ride_outbox_event_id_seq", allocationSize = 50)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 40)
+    private RideEventType eventType;
+    
+    @Column(name = "ride_id", nullable = false)
+    private Long rideId;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+    
+    @Column(name = "insert_order", insertable = false, updatable = false)
+    private Long insertOrder;
+    
+    @Column(unique = true)
+    private Long sequence;
+    
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+}
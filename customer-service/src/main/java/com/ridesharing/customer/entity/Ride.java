@@ -20,8 +20,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Ride {
     
+    // Pooled sequence so ids are allocated without a round trip per insert and inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ride_id_seq")
+    @SequenceGenerator(name = "ride_id_seq", schema = "customer", sequenceName = "ride_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "customer_id", nullable = false)
@@ -42,6 +44,12 @@ public class Ride {
     @Column(name = "dropoff_location", nullable = false)
     private String dropOffLocation;
     
+    @Column(name = "pickup_latitude")
+    private Double pickupLatitude;
+    
+    @Column(name = "pickup_longitude")
+    private Double pickupLongitude;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
     @Builder.Default
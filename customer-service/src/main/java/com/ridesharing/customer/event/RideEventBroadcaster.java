@@ -0,0 +1,264 @@
+package com.ridesharing.customer.event;
+
+import com.ridesharing.customer.dto.RideEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport that publishes relayed ride events to Server-Sent Event subscribers.
+ * <p>
+ * Recent events are kept in a bounded buffer so subscribers can resume from the last
+ * sequence they saw; older cursors are replayed from the outbox. A subscriber whose
+ * cursor is no longer retained gets a {@code RESET} event and must reload its state.
+ * Each subscriber has a bounded queue; a subscriber that falls too far behind is
+ * disconnected and has to resume from its cursor.
+ */
+@Component
+@Log4j2
+public class RideEventBroadcaster implements RideEventTransport {
+
+    public static final String RESET_EVENT = "RESET";
+    public static final String HEARTBEAT_EVENT = "HEARTBEAT";
+
+    private final RideOutbox rideOutbox;
+    private final int bufferSize;
+    private final int replayLimit;
+    private final int subscriberQueueSize;
+    private final Duration emitterTimeout;
+
+    private final Deque<RideEvent> buffer = new ArrayDeque<>();
+    private final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher;
+
+    private long headSequence;
+
+    public RideEventBroadcaster(RideOutbox rideOutbox,
+                                @Value("${rides.events.buffer-size:10000}") int bufferSize,
+                                @Value("${rides.events.replay-limit:10000}") int replayLimit,
+                                @Value("${rides.events.subscriber-queue-size:1000}") int subscriberQueueSize,
+                                @Value("${rides.events.emitter-timeout:30m}") Duration emitterTimeout,
+                                @Value("${rides.events.dispatcher-threads:4}") int dispatcherThreads) {
+        this.rideOutbox = rideOutbox;
+        this.bufferSize = bufferSize;
+        this.replayLimit = replayLimit;
+        this.subscriberQueueSize = subscriberQueueSize;
+        this.emitterTimeout = emitterTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ride-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public synchronized void start(long sequence) {
+        headSequence = sequence;
+    }
+
+    @Override
+    public synchronized void publish(RideEvent event) {
+        if (event.getSequence() <= headSequence) {
+            return;
+        }
+        headSequence = event.getSequence();
+
+        buffer.addLast(event);
+        if (buffer.size() > bufferSize) {
+            buffer.removeFirst();
+        }
+
+        Frame frame = Frame.of(event);
+        for (Subscription subscription : subscribers) {
+            subscription.offer(frame);
+        }
+    }
+
+    /**
+     * Opens a stream that first replays the events after {@code cursor}
+     * and then delivers new events as they are published.
+     */
+    public SseEmitter subscribe(Long cursor) {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscription subscription = new Subscription(emitter);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+
+        // Cursors older than the buffer are read from the outbox before taking the lock
+        List<RideEvent> durable = List.of();
+        boolean reset = false;
+        if (cursor != null && cursor < oldestBufferedSequence() - 1) {
+            Long oldestRetained = rideOutbox.oldestSequence();
+            if (oldestRetained == null || cursor < oldestRetained - 1) {
+                reset = true;
+            } else {
+                durable = rideOutbox.readAfter(cursor, replayLimit);
+                reset = durable.size() >= replayLimit;
+            }
+        }
+
+        synchronized (this) {
+            List<Frame> replay = new ArrayList<>();
+            if (reset || (cursor != null && cursor > headSequence)) {
+                replay.add(Frame.reset(headSequence));
+            } else if (cursor != null) {
+                long replayed = cursor;
+                for (RideEvent event : durable) {
+                    if (event.getSequence() <= headSequence) {
+                        replay.add(Frame.of(event));
+                        replayed = event.getSequence();
+                    }
+                }
+                long oldest = buffer.isEmpty() ? headSequence + 1 : buffer.peekFirst().getSequence();
+                if (replayed < oldest - 1 && replayed < headSequence) {
+                    // The buffer moved on while the outbox was read
+                    replay.clear();
+                    replay.add(Frame.reset(headSequence));
+                } else {
+                    for (RideEvent event : buffer) {
+                        if (event.getSequence() > replayed) {
+                            replay.add(Frame.of(event));
+                        }
+                    }
+                }
+            }
+
+            subscribers.add(subscription);
+            replay.forEach(subscription::offer);
+        }
+
+        log.debug("Ride event subscriber connected from cursor {} ({} subscribers)", cursor, subscribers.size());
+        return emitter;
+    }
+
+    private synchronized long oldestBufferedSequence() {
+        return buffer.isEmpty() ? headSequence + 1 : buffer.peekFirst().getSequence();
+    }
+
+    public synchronized long getHeadSequence() {
+        return headSequence;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Keeps idle connections open and lets subscribers know the current head of the stream.
+     */
+    @Scheduled(fixedDelayString = "${rides.events.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        Frame frame = Frame.heartbeat(getHeadSequence());
+        for (Subscription subscription : subscribers) {
+            subscription.offer(frame);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscription::close);
+        dispatcher.shutdownNow();
+    }
+
+    private record Frame(String id, String name, Object data) {
+
+        static Frame of(RideEvent event) {
+            return new Frame(String.valueOf(event.getSequence()), event.getType().name(), event);
+        }
+
+        static Frame reset(long headSequence) {
+            return new Frame(String.valueOf(headSequence), RESET_EVENT, Map.of("sequence", headSequence));
+        }
+
+        static Frame heartbeat(long headSequence) {
+            return new Frame(null, HEARTBEAT_EVENT, Map.of("sequence", headSequence));
+        }
+    }
+
+    private final class Subscription {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(subscriberQueueSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Frame frame) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                log.warn("Disconnecting slow ride event subscriber after {} queued events", subscriberQueueSize);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Frame frame;
+                while (!closed && (frame = queue.poll()) != null) {
+                    SseEmitter.SseEventBuilder builder = SseEmitter.event().name(frame.name());
+                    if (frame.id() != null) {
+                        builder.id(frame.id());
+                    }
+                    emitter.send(builder.data(frame.data(), MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Ride event subscriber disconnected: {}", e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+                if (!closed && !queue.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // Already completed by the container
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ridesharing.customer.event;
+
+import com.ridesharing.customer.dto.RideEvent;
+
+/**
+ * Destination for ride events relayed from the outbox.
+ * Events are delivered in sequence order from a single relay thread.
+ */
+public interface RideEventTransport {
+
+    /**
+     * Called once before the first event, with the sequence the relay resumes after.
+     */
+    default void start(long headSequence) {
+    }
+
+    void publish(RideEvent event);
+}
@@ -0,0 +1,127 @@
+package com.ridesharing.customer.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ridesharing.customer.dto.RideEvent;
+import com.ridesharing.customer.dto.RideEventType;
+import com.ridesharing.customer.dto.RideResponse;
+import com.ridesharing.customer.entity.OutboxEvent;
+import com.ridesharing.customer.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Durable log of ride events backed by the {@code ride_outbox} table.
+ * <p>
+ * Events are appended inside the transaction that changes the ride and receive their
+ * stream sequence later, when the relay publishes them. Sequencing is serialized with
+ * an advisory lock, so sequences always become visible in increasing order and every
+ * instance can read the log by sequence without gaps in visibility.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class RideOutbox {
+
+    private static final long SEQUENCER_LOCK_KEY = 0x52494445L;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(RideEventType type, RideResponse ride, LocalDateTime occurredAt) {
+        outboxEventRepository.save(OutboxEvent.builder()
+                .eventType(type)
+                .rideId(ride.getId())
+                .payload(writePayload(ride))
+                .occurredAt(occurredAt)
+                .build());
+    }
+
+    /**
+     * Assigns sequences to up to {@code batchSize} unpublished events in the order they were written.
+     * Returns the number of events sequenced, or 0 if another relay holds the sequencer.
+     */
+    @Transactional
+    public int sequencePending(int batchSize) {
+        if (!outboxEventRepository.tryAdvisoryLock(SEQUENCER_LOCK_KEY)) {
+            return 0;
+        }
+
+        List<OutboxEvent> pending = outboxEventRepository.findUnsequenced(Limit.of(batchSize));
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> sequences = new ArrayList<>(outboxEventRepository.nextSequences(pending.size()));
+        Collections.sort(sequences);
+
+        LocalDateTime publishedAt = LocalDateTime.now();
+        for (int i = 0; i < pending.size(); i++) {
+            OutboxEvent event = pending.get(i);
+            event.setSequence(sequences.get(i));
+            event.setPublishedAt(publishedAt);
+        }
+        return pending.size();
+    }
+
+    @Transactional(readOnly = true)
+    public List<RideEvent> readAfter(long sequence, int limit) {
+        List<OutboxEvent> rows = outboxEventRepository.findBySequenceGreaterThanOrderBySequenceAsc(sequence, Limit.of(limit));
+        List<RideEvent> events = new ArrayList<>(rows.size());
+        for (OutboxEvent row : rows) {
+            events.add(RideEvent.builder()
+                    .sequence(row.getSequence())
+                    .type(row.getEventType())
+                    .ride(readPayload(row))
+                    .occurredAt(row.getOccurredAt())
+                    .build());
+        }
+        return events;
+    }
+
+    @Transactional(readOnly = true)
+    public long headSequence() {
+        Long max = outboxEventRepository.findMaxSequence();
+        return max != null ? max : 0L;
+    }
+
+    /**
+     * Oldest sequence still retained, or null if nothing has been published yet.
+     */
+    @Transactional(readOnly = true)
+    public Long oldestSequence() {
+        return outboxEventRepository.findMinSequence();
+    }
+
+    @Transactional
+    public int deletePublishedBefore(LocalDateTime before) {
+        return outboxEventRepository.deletePublishedBefore(before);
+    }
+
+    private String writePayload(RideResponse ride) {
+        try {
+            return objectMapper.writeValueAsString(ride);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize ride " + ride.getId(), e);
+        }
+    }
+
+    private RideResponse readPayload(OutboxEvent row) {
+        try {
+            return objectMapper.readValue(row.getPayload(), RideResponse.class);
+        } catch (JsonProcessingException e) {
+            log.error("Could not read outbox event {} for ride {}: {}", row.getSequence(), row.getRideId(), e.getMessage());
+            return RideResponse.builder().id(row.getRideId()).build();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.ridesharing.customer.event;
+
+import com.ridesharing.customer.dto.RideEvent;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Publishes outbox events to the registered transports.
+ * <p>
+ * Each poll first assigns sequences to newly committed events (only one instance does
+ * this at a time), then reads everything after the last relayed sequence in batches and
+ * hands it to the local transports. Every instance relays the full stream.
+ */
+@Component
+@Log4j2
+public class RideOutboxRelay {
+
+    private final RideOutbox rideOutbox;
+    private final List<RideEventTransport> transports;
+    private final int batchSize;
+    private final Duration retention;
+
+    private boolean applicationReady;
+    private boolean started;
+    private long cursor;
+
+    public RideOutboxRelay(RideOutbox rideOutbox,
+                           List<RideEventTransport> transports,
+                           @Value("${rides.outbox.batch-size:500}") int batchSize,
+                           @Value("${rides.outbox.retention:24h}") Duration retention) {
+        this.rideOutbox = rideOutbox;
+        this.transports = transports;
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onApplicationReady() {
+        applicationReady = true;
+        start();
+    }
+
+    private void start() {
+        try {
+            cursor = rideOutbox.headSequence();
+            for (RideEventTransport transport : transports) {
+                transport.start(cursor);
+            }
+            started = true;
+            log.info("Ride outbox relay started after sequence {} with {} transports", cursor, transports.size());
+        } catch (Exception e) {
+            log.warn("Could not start ride outbox relay, will retry: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rides.outbox.poll-interval-ms:100}")
+    public synchronized void relay() {
+        if (!started) {
+            if (applicationReady) {
+                start();
+            }
+            return;
+        }
+        try {
+            int sequenced;
+            do {
+                sequenced = rideOutbox.sequencePending(batchSize);
+            } while (sequenced == batchSize);
+
+            List<RideEvent> events;
+            do {
+                events = rideOutbox.readAfter(cursor, batchSize);
+                for (RideEvent event : events) {
+                    publish(event);
+                    cursor = event.getSequence();
+                }
+            } while (events.size() == batchSize);
+        } catch (Exception e) {
+            log.warn("Ride outbox relay failed after sequence {}: {}", cursor, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rides.outbox.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        try {
+            int deleted = rideOutbox.deletePublishedBefore(LocalDateTime.now().minus(retention));
+            if (deleted > 0) {
+                log.info("Deleted {} published ride outbox events older than {}", deleted, retention);
+            }
+        } catch (Exception e) {
+            log.warn("Ride outbox cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    private void publish(RideEvent event) {
+        for (RideEventTransport transport : transports) {
+            try {
+                transport.publish(event);
+            } catch (Exception e) {
+                log.error("Transport {} failed to publish ride event {}: {}",
+                        transport.getClass().getSimpleName(), event.getSequence(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ridesharing.customer.repository;
+
+import com.ridesharing.customer.entity.AssignmentKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+
+@Repository
+public interface AssignmentKeyRepository extends JpaRepository<AssignmentKey, String> {
+    
+    /**
+     * Plain insert; the key is new because the assignment it belongs to just happened.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO customer.ride_assignment_keys (idempotency_key, ride_id, driver_id, created_at)
+            VALUES (:idempotencyKey, :rideId, :driverId, :createdAt)
+            """, nativeQuery = true)
+    void insert(@Param("idempotencyKey") String idempotencyKey,
+                @Param("rideId") Long rideId,
+                @Param("driverId") Long driverId,
+                @Param("createdAt") LocalDateTime createdAt);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AssignmentKey k WHERE k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
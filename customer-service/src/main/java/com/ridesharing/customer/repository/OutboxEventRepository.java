@@ -0,0 +1,44 @@
+package com.ridesharing.customer.repository;
+
+import com.ridesharing.customer.entity.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    // Neither the pooled ids (per-instance blocks) nor occurredAt (per-instance clocks) follow the
+    // order events were written in across instances; insertOrder is taken from one database sequence
+    @Query("SELECT e FROM OutboxEvent e WHERE e.sequence IS NULL ORDER BY e.insertOrder")
+    List<OutboxEvent> findUnsequenced(Limit limit);
+    
+    List<OutboxEvent> findBySequenceGreaterThanOrderBySequenceAsc(Long sequence, Limit limit);
+    
+    @Query("SELECT MAX(e.sequence) FROM OutboxEvent e")
+    Long findMaxSequence();
+    
+    @Query("SELECT MIN(e.sequence) FROM OutboxEvent e")
+    Long findMinSequence();
+    
+    /**
+     * Only one transaction at a time may assign sequences, so sequences become
+     * visible to readers in increasing order.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryLock(@Param("key") long key);
+    
+    @Query(value = "SELECT nextval('customer.ride_event_seq') FROM generate_series(1, :count)", nativeQuery = true)
+    List<Long> nextSequences(@Param("count") int count);
+    
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.sequence IS NOT NULL AND e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,19 +1,135 @@
 package com.ridesharing.customer.repository;
 
-import com.ridesharing.customer.dto.RideStatus;
+import com.ridesharing.customer.dto.RideResponse;
 import com.ridesharing.customer.entity.Ride;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 
 @Repository
 public interface RideRepository extends JpaRepository<Ride, Long> {
     
-    List<Ride> findByCustomerIdOrderByRequestedAtDesc(Long customerId);
+    /**
+     * Pending rides, oldest first, projected into RideResponse. The status is an enum
+     * literal, rendered inline, so the planner can use the partial index on pending rides,
+     * which keeps this scan proportional to the number of pending rides rather than to
+     * the whole ride history.
+     */
+    @Query("""
+            SELECT new com.ridesharing.customer.dto.RideResponse(
+                r.id, r.customerId, r.customerName, r.driverId, r.driverName, r.pickupLocation,
+                r.dropOffLocation, r.pickupLatitude, r.pickupLongitude, r.status,
+                r.requestedAt, r.acceptedAt, r.completedAt)
+            FROM Ride r
+            WHERE r.status = com.ridesharing.customer.dto.RideStatus.PENDING
+            ORDER BY r.requestedAt, r.id
+            """)
+    List<RideResponse> findPendingRides();
     
-    List<Ride> findByStatusOrderByRequestedAtAsc(RideStatus status);
+    /*
+     * Ride history is read page by page in (timestamp, id) order and projected straight
+     * into RideResponse, so no entities are loaded into the persistence context.
+     * The "after" variants continue strictly after the given keyset position.
+     */
     
-    List<Ride> findByDriverIdOrderByAcceptedAtDesc(Long driverId);
+    @Query("""
+            SELECT new com.ridesharing.customer.dto.RideResponse(
+                r.id, r.customerId, r.customerName, r.driverId, r.driverName, r.pickupLocation,
+                r.dropOffLocation, r.pickupLatitude, r.pickupLongitude, r.status,
+                r.requestedAt, r.acceptedAt, r.completedAt)
+            FROM Ride r
+            WHERE r.customerId = :customerId
+            ORDER BY r.requestedAt DESC, r.id DESC
+            """)
+    List<RideResponse> findCustomerHistory(@Param("customerId") Long customerId, Limit limit);
+    
+    @Query("""
+            SELECT new com.ridesharing.customer.dto.RideResponse(
+                r.id, r.customerId, r.customerName, r.driverId, r.driverName, r.pickupLocation,
+                r.dropOffLocation, r.pickupLatitude, r.pickupLongitude, r.status,
+                r.requestedAt, r.acceptedAt, r.completedAt)
+            FROM Ride r
+            WHERE r.customerId = :customerId
+              AND r.requestedAt <= :requestedAt
+              AND (r.requestedAt < :requestedAt OR r.id < :id)
+            ORDER BY r.requestedAt DESC, r.id DESC
+            """)
+    List<RideResponse> findCustomerHistoryAfter(@Param("customerId") Long customerId,
+                                                @Param("requestedAt") LocalDateTime requestedAt,
+                                                @Param("id") Long id,
+                                                Limit limit);
+    
+    @Query("""
+            SELECT new com.ridesharing.customer.dto.RideResponse(
+                r.id, r.customerId, r.customerName, r.driverId, r.driverName, r.pickupLocation,
+                r.dropOffLocation, r.pickupLatitude, r.pickupLongitude, r.status,
+                r.requestedAt, r.acceptedAt, r.completedAt)
+            FROM Ride r
+            WHERE r.driverId = :driverId
+            ORDER BY r.acceptedAt DESC, r.id DESC
+            """)
+    List<RideResponse> findDriverHistory(@Param("driverId") Long driverId, Limit limit);
+    
+    @Query("""
+            SELECT new com.ridesharing.customer.dto.RideResponse(
+                r.id, r.customerId, r.customerName, r.driverId, r.driverName, r.pickupLocation,
+                r.dropOffLocation, r.pickupLatitude, r.pickupLongitude, r.status,
+                r.requestedAt, r.acceptedAt, r.completedAt)
+            FROM Ride r
+            WHERE r.driverId = :driverId
+              AND r.acceptedAt <= :acceptedAt
+              AND (r.acceptedAt < :acceptedAt OR r.id < :id)
+            ORDER BY r.acceptedAt DESC, r.id DESC
+            """)
+    List<RideResponse> findDriverHistoryAfter(@Param("driverId") Long driverId,
+                                              @Param("acceptedAt") LocalDateTime acceptedAt,
+                                              @Param("id") Long id,
+                                              Limit limit);
+    
+    /**
+     * Number of rides assigned to each of the given drivers and when the latest was
+     * accepted. Drivers without rides are left out.
+     */
+    @Query("""
+            SELECT r.driverId AS driverId, COUNT(r) AS rides, MAX(r.acceptedAt) AS lastAcceptedAt
+            FROM Ride r
+            WHERE r.driverId IN :driverIds
+            GROUP BY r.driverId
+            """)
+    List<DriverRideCount> countRidesByDriver(@Param("driverIds") Collection<Long> driverIds);
+    
+    interface DriverRideCount {
+        Long getDriverId();
+        long getRides();
+        LocalDateTime getLastAcceptedAt();
+    }
+    
+    /**
+     * Assigns the driver only if the ride is still pending, in a single statement.
+     * Concurrent callers are serialized on the row lock and exactly one sees the
+     * updated row; the others get an empty result.
+     */
+    @Query(value = """
+            UPDATE customer.rides
+               SET driver_id = :driverId,
+                   driver_name = :driverName,
+                   status = 'ACCEPTED',
+                   accepted_at = :acceptedAt,
+                   updated_at = :acceptedAt
+             WHERE id = :rideId
+               AND status = 'PENDING'
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<Ride> assignDriverIfPending(@Param("rideId") Long rideId,
+                                         @Param("driverId") Long driverId,
+                                         @Param("driverName") String driverName,
+                                         @Param("acceptedAt") LocalDateTime acceptedAt);
 }
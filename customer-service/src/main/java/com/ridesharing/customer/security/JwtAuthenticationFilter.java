@@ -46,7 +46,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                log.info("Set authentication for user: {}, role: ROLE_{}", userName, userRole);
+                log.debug("Set authentication for user: {}, role: ROLE_{}", userName, userRole);
             }
         } catch (Exception e) {
             log.error("Cannot set user authentication: {}", e.getMessage());
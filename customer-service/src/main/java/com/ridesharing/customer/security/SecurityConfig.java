@@ -32,6 +32,8 @@ public class SecurityConfig {
             .csrf(AbstractHttpConfigurer::disable)
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Health and metrics for the platform's probes and Prometheus
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                 // Internal endpoints (called by Driver Service) - no auth check here, validated by Gateway
                 .requestMatchers("/api/customer/internal/**").permitAll()
                 // All other endpoints require authentication
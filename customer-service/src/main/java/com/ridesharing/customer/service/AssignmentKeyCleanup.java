@@ -0,0 +1,39 @@
+package com.ridesharing.customer.service;
+
+import com.ridesharing.customer.repository.AssignmentKeyRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Deletes assignment idempotency keys once no retry can still carry them.
+ */
+@Component
+@Log4j2
+public class AssignmentKeyCleanup {
+
+    private final AssignmentKeyRepository assignmentKeyRepository;
+    private final Duration retention;
+
+    public AssignmentKeyCleanup(AssignmentKeyRepository assignmentKeyRepository,
+                                @Value("${rides.assignment.key-retention:24h}") Duration retention) {
+        this.assignmentKeyRepository = assignmentKeyRepository;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${rides.assignment.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        try {
+            int deleted = assignmentKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+            if (deleted > 0) {
+                log.info("Deleted {} assignment idempotency keys older than {}", deleted, retention);
+            }
+        } catch (Exception e) {
+            log.warn("Assignment idempotency key cleanup failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ridesharing.customer.service;
+
+import com.ridesharing.customer.dto.PendingRidesSnapshot;
+import com.ridesharing.customer.dto.RideEvent;
+import com.ridesharing.customer.dto.RideEventType;
+import com.ridesharing.customer.dto.RideResponse;
+import com.ridesharing.customer.event.RideEventTransport;
+import com.ridesharing.customer.repository.RideRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the pending rides, kept current from the relayed ride event stream.
+ * <p>
+ * Being fed by the relay, the cache reflects rides changed on every instance and always
+ * knows the event sequence its content corresponds to, so it can hand out consistent
+ * snapshots for stream consumers to bootstrap from. Until it is loaded, reads report a
+ * miss and callers go to the database.
+ */
+@Component
+@Log4j2
+public class PendingRideCache implements RideEventTransport {
+
+    // Same order as the pending ride query; ride ids alone only approximate request order
+    private static final Comparator<RideResponse> REQUEST_ORDER = Comparator
+            .comparing(RideResponse::getRequestedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(RideResponse::getId);
+
+    private final RideRepository rideRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, RideResponse> ridesById = new HashMap<>();
+    private final NavigableSet<RideResponse> rides = new TreeSet<>(REQUEST_ORDER);
+    private long sequence;
+    private volatile boolean ready;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PendingRideCache(RideRepository rideRepository, MeterRegistry meterRegistry) {
+        this.rideRepository = rideRepository;
+        this.hits = Counter.builder("rides.pending.cache.requests")
+                .description("Pending ride reads served by the in-memory cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("rides.pending.cache.requests")
+                .description("Pending ride reads served by the in-memory cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("rides.pending.cache.size", this, PendingRideCache::size)
+                .description("Pending rides held in the in-memory cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the pending rides. Every event up to {@code headSequence} is committed, so the
+     * query reflects it; events after it are applied on top as they are relayed.
+     */
+    @Override
+    public void start(long headSequence) {
+        List<RideResponse> pending = rideRepository.findPendingRides();
+
+        lock.writeLock().lock();
+        try {
+            ridesById.clear();
+            rides.clear();
+            pending.forEach(this::add);
+            sequence = headSequence;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Pending ride cache loaded with {} rides at sequence {}", pending.size(), headSequence);
+    }
+
+    @Override
+    public void publish(RideEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready || event.getSequence() <= sequence) {
+                return;
+            }
+            if (event.getRide() != null) {
+                if (event.getType() == RideEventType.RIDE_REQUESTED) {
+                    add(event.getRide());
+                } else {
+                    remove(event.getRide().getId());
+                }
+            }
+            sequence = event.getSequence();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The pending rides in request order with the sequence they reflect,
+     * or empty if the cache has not been loaded yet.
+     */
+    public Optional<PendingRidesSnapshot> snapshot() {
+        if (!ready) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        lock.readLock().lock();
+        try {
+            return Optional.of(PendingRidesSnapshot.builder()
+                    .rides(new ArrayList<>(rides))
+                    .sequence(sequence)
+                    .build());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(RideResponse ride) {
+        remove(ride.getId());
+        ridesById.put(ride.getId(), ride);
+        rides.add(ride);
+    }
+
+    private void remove(Long rideId) {
+        RideResponse ride = ridesById.remove(rideId);
+        if (ride != null) {
+            rides.remove(ride);
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rides.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
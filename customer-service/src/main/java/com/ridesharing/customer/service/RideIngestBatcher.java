@@ -0,0 +1,221 @@
+package com.ridesharing.customer.service;
+
+import com.ridesharing.customer.dto.RideResponse;
+import com.ridesharing.customer.entity.Ride;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces concurrent ride requests into batched inserts.
+ * <p>
+ * Requests are queued and picked up by a few writer threads, each of which collects up to
+ * {@code batch-size} rides or waits at most {@code max-wait} before writing what it has in
+ * one transaction. Callers block until their ride is committed, so the API stays
+ * synchronous. When the queue is full or batching is disabled, the ride is written on the
+ * caller thread. If a batch fails, its rides are retried one by one so a single bad ride
+ * does not fail the others.
+ * <p>
+ * A request that times out is withdrawn if no writer has picked it up yet, so a client
+ * retrying after the timeout does not create the ride twice. Once a writer has it, the
+ * caller waits for that write to finish instead.
+ */
+@Component
+@Log4j2
+public class RideIngestBatcher {
+
+    private final RideWriter rideWriter;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final Duration timeout;
+    private final BlockingQueue<PendingRide> queue;
+    private final List<Thread> writers = new ArrayList<>();
+    private final DistributionSummary batchSizes;
+
+    private volatile boolean running = true;
+
+    public RideIngestBatcher(RideWriter rideWriter,
+                             MeterRegistry meterRegistry,
+                             @Value("${rides.ingest.enabled:true}") boolean enabled,
+                             @Value("${rides.ingest.batch-size:50}") int batchSize,
+                             @Value("${rides.ingest.max-wait:5ms}") Duration maxWait,
+                             @Value("${rides.ingest.queue-capacity:10000}") int queueCapacity,
+                             @Value("${rides.ingest.writer-threads:2}") int writerThreads,
+                             @Value("${rides.ingest.timeout:5s}") Duration timeout) {
+        this.rideWriter = rideWriter;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.timeout = timeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.batchSizes = DistributionSummary.builder("rides.ingest.batch.size")
+                .description("Rides written per insert batch")
+                .register(meterRegistry);
+        Gauge.builder("rides.ingest.queue.size", queue, BlockingQueue::size)
+                .description("Ride requests waiting to be written")
+                .register(meterRegistry);
+
+        if (enabled) {
+            for (int i = 1; i <= writerThreads; i++) {
+                Thread writer = new Thread(this::run, "ride-ingest-" + i);
+                writer.setDaemon(true);
+                writer.start();
+                writers.add(writer);
+            }
+        }
+    }
+
+    /**
+     * Writes the ride and returns it once committed.
+     */
+    public RideResponse submit(Ride ride) {
+        PendingRide pending = new PendingRide(ride, new CompletableFuture<>(), new AtomicBoolean());
+        if (!enabled || !running || !queue.offer(pending)) {
+            return writeDirect(ride);
+        }
+
+        try {
+            return await(pending);
+        } catch (TimeoutException e) {
+            if (pending.claim()) {
+                pending.result().cancel(false);
+                throw new IllegalStateException("Timed out waiting for the ride to be created");
+            }
+            // A writer is already inserting the ride, so its outcome is only a statement away
+            return awaitWrite(pending);
+        }
+    }
+
+    private RideResponse await(PendingRide pending) throws TimeoutException {
+        try {
+            return pending.result().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ride to be created");
+        }
+    }
+
+    private RideResponse awaitWrite(PendingRide pending) {
+        try {
+            return pending.result().get();
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ride to be created");
+        }
+    }
+
+    private static RuntimeException failure(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new IllegalStateException("Ride could not be created", e.getCause());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(timeout.toMillis());
+        }
+    }
+
+    private void run() {
+        List<PendingRide> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRide first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingRide next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // Skip the requests whose callers gave up waiting
+                batch.removeIf(pending -> !pending.claim());
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingRide> batch) {
+        batchSizes.record(batch.size());
+        try {
+            List<RideResponse> responses = rideWriter.insertAll(batch.stream().map(PendingRide::ride).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(responses.get(i));
+            }
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Ride insert batch of {} failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (PendingRide pending : batch) {
+                try {
+                    pending.result().complete(writeDirect(pending.ride()));
+                } catch (Exception rideFailure) {
+                    pending.result().completeExceptionally(rideFailure);
+                }
+            }
+        }
+    }
+
+    private RideResponse writeDirect(Ride ride) {
+        // The id may have been allocated by a rolled back batch
+        ride.setId(null);
+        batchSizes.record(1);
+        return rideWriter.insertAll(List.of(ride)).get(0);
+    }
+
+    private record PendingRide(Ride ride, CompletableFuture<RideResponse> result, AtomicBoolean claimed) {
+
+        /**
+         * Claims the request for either a writer or its timed out caller, whichever is first.
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
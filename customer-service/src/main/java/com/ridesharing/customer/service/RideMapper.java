@@ -0,0 +1,31 @@
+package com.ridesharing.customer.service;
+
+import com.ridesharing.customer.dto.RideResponse;
+import com.ridesharing.customer.entity.Ride;
+
+/**
+ * Maps ride entities to API responses.
+ */
+final class RideMapper {
+    
+    private RideMapper() {
+    }
+    
+    static RideResponse toResponse(Ride ride) {
+        return RideResponse.builder()
+                .id(ride.getId())
+                .customerId(ride.getCustomerId())
+                .customerName(ride.getCustomerName())
+                .driverId(ride.getDriverId())
+                .driverName(ride.getDriverName())
+                .pickupLocation(ride.getPickupLocation())
+                .dropOffLocation(ride.getDropOffLocation())
+                .pickupLatitude(ride.getPickupLatitude())
+                .pickupLongitude(ride.getPickupLongitude())
+                .status(ride.getStatus())
+                .requestedAt(ride.getRequestedAt())
+                .acceptedAt(ride.getAcceptedAt())
+                .completedAt(ride.getCompletedAt())
+                .build();
+    }
+}
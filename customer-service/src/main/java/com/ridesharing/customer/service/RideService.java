@@ -1,115 +1,256 @@
 package com.ridesharing.customer.service;
 
+import com.ridesharing.customer.dto.DriverRideCounts;
+import com.ridesharing.customer.dto.PendingRidesSnapshot;
+import com.ridesharing.customer.dto.RideAssignmentResponse;
+import com.ridesharing.customer.dto.RideEventType;
+import com.ridesharing.customer.dto.RidePage;
 import com.ridesharing.customer.dto.RideRequest;
 import com.ridesharing.customer.dto.RideResponse;
 import com.ridesharing.customer.dto.RideStatus;
+import com.ridesharing.customer.entity.AssignmentKey;
 import com.ridesharing.customer.entity.Ride;
+import com.ridesharing.customer.event.RideOutbox;
 import com.ridesharing.customer.exception.BadRequestException;
+import com.ridesharing.customer.exception.ConflictException;
 import com.ridesharing.customer.exception.ResourceNotFoundException;
+import com.ridesharing.customer.repository.AssignmentKeyRepository;
 import com.ridesharing.customer.repository.RideRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Service for ride operations.
  */
 @Service
 @RequiredArgsConstructor
+@Timed(value = "customer.ride.service", description = "Ride service calls", histogram = true)
 public class RideService {
     
     private static final Logger log = LoggerFactory.getLogger(RideService.class);
     
     private final RideRepository rideRepository;
+    private final PendingRideCache pendingRideCache;
+    private final RideOutbox rideOutbox;
+    private final RideIngestBatcher rideIngestBatcher;
+    private final AssignmentKeyRepository assignmentKeyRepository;
     
-    @Transactional
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_COUNTED_DRIVERS = 1000;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+    // Driver Service counts an assignment after it commits here, so recent ones may not be counted yet
+    private static final Duration UNSETTLED_ASSIGNMENT_PERIOD = Duration.ofMinutes(5);
+    
+    /**
+     * Concurrent requests are coalesced into batched inserts by the {@link RideIngestBatcher};
+     * the ride and its outbox event are written in the batch transaction.
+     */
     public RideResponse requestRide(Long customerId, String customerName, RideRequest request) {
-        log.info("Creating ride request for customer: {} (ID: {})", customerName, customerId);
+        log.debug("Creating ride request for customer: {} (ID: {})", customerName, customerId);
         
         Ride ride = Ride.builder()
                 .customerId(customerId)
                 .customerName(customerName)
                 .pickupLocation(request.getPickupLocation())
                 .dropOffLocation(request.getDropOffLocation())
+                .pickupLatitude(request.getPickupLatitude())
+                .pickupLongitude(request.getPickupLongitude())
                 .status(RideStatus.PENDING)
                 .build();
         
-        Ride savedRide = rideRepository.save(ride);
-        log.info("Ride created with ID: {}", savedRide.getId());
-        
-        return mapToResponse(savedRide);
+        RideResponse response = rideIngestBatcher.submit(ride);
+        log.debug("Ride created with ID: {}", response.getId());
+        return response;
     }
     
     @Transactional(readOnly = true)
-    public List<RideResponse> getCustomerRideHistory(Long customerId) {
-        log.info("Fetching ride history for customer ID: {}", customerId);
-        return rideRepository.findByCustomerIdOrderByRequestedAtDesc(customerId)
-                .stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public RidePage getCustomerRideHistory(Long customerId, String cursor, Integer size) {
+        log.debug("Fetching ride history page for customer ID: {}", customerId);
+        int pageSize = resolvePageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
+        
+        List<RideResponse> rides;
+        if (cursor == null) {
+            rides = rideRepository.findCustomerHistory(customerId, limit);
+        } else {
+            RideCursor position = RideCursor.decode(cursor);
+            rides = rideRepository.findCustomerHistoryAfter(customerId, position.timestamp(), position.id(), limit);
+        }
+        return toPage(rides, pageSize, RideResponse::getRequestedAt);
     }
     
 
 
     
-    @Transactional(readOnly = true)
+    /**
+     * Served from the in-memory cache; the database is only read until the cache is loaded.
+     */
     public List<RideResponse> getPendingRides() {
-        log.info("Fetching all pending rides");
-        return rideRepository.findByStatusOrderByRequestedAtAsc(RideStatus.PENDING)
-                .stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        log.debug("Fetching all pending rides");
+        return getPendingRidesSnapshot().getRides();
+    }
+    
+    /**
+     * Pending rides together with the ride event sequence they reflect, for consumers
+     * that bootstrap from a snapshot and then follow the ride event stream.
+     */
+    public PendingRidesSnapshot getPendingRidesSnapshot() {
+        return pendingRideCache.snapshot().orElseGet(() -> {
+            // Every event up to the head is committed, so the query reflects it
+            long sequence = rideOutbox.headSequence();
+            return PendingRidesSnapshot.builder()
+                    .rides(rideRepository.findPendingRides())
+                    .sequence(sequence)
+                    .build();
+        });
     }
     
+    /**
+     * Assigns the driver if the ride is still pending. Retries are answered with the ride
+     * instead of a conflict: a request whose idempotency key was already used gets the ride
+     * it assigned, and a ride that is already assigned to the same driver is returned as is,
+     * flagged as already assigned so the caller does not count the assignment again.
+     */
     @Transactional
-    public RideResponse assignDriver(Long rideId, Long driverId, String driverName) {
-        log.info("Assigning driver {} to ride ID: {}", driverName, rideId);
+    public RideAssignmentResponse assignDriver(Long rideId, Long driverId, String driverName, String idempotencyKey) {
+        log.debug("Assigning driver {} to ride ID: {}", driverName, rideId);
         
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new ResourceNotFoundException("Ride not found"));
+        if (idempotencyKey != null) {
+            if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new BadRequestException("Idempotency key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+            }
+            Optional<AssignmentKey> previous = assignmentKeyRepository.findById(idempotencyKey);
+            if (previous.isPresent()) {
+                if (!previous.get().getRideId().equals(rideId) || !previous.get().getDriverId().equals(driverId)) {
+                    throw new BadRequestException("Idempotency key was already used for another assignment");
+                }
+                log.debug("Replaying assignment of ride {} to driver {}", rideId, driverName);
+                return assignment(rideRepository.findById(rideId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Ride not found")), false);
+            }
+        }
         
-        if (ride.getStatus() != RideStatus.PENDING) {
-            throw new BadRequestException("Ride is no longer available");
+        LocalDateTime acceptedAt = LocalDateTime.now();
+        Optional<Ride> assigned = rideRepository.assignDriverIfPending(rideId, driverId, driverName, acceptedAt);
+        if (assigned.isEmpty()) {
+            Ride ride = rideRepository.findById(rideId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Ride not found"));
+            if (driverId.equals(ride.getDriverId())) {
+                // A repeat of an assignment that already committed
+                log.debug("Ride {} is already assigned to driver {}", rideId, driverName);
+                return assignment(ride, true);
+            }
+            log.debug("Ride {} was already taken, driver {} lost the assignment", rideId, driverName);
+            throw new ConflictException("Ride is no longer available");
         }
         
-        ride.setDriverId(driverId);
-        ride.setDriverName(driverName);
-        ride.setStatus(RideStatus.ACCEPTED);
-        ride.setAcceptedAt(LocalDateTime.now());
+        if (idempotencyKey != null) {
+            assignmentKeyRepository.insert(idempotencyKey, rideId, driverId, acceptedAt);
+        }
+        RideResponse response = RideMapper.toResponse(assigned.get());
+        publishEvent(RideEventType.RIDE_ASSIGNED, response);
+        return RideAssignmentResponse.builder()
+                .ride(response)
+                .build();
+    }
+    
+    private static RideAssignmentResponse assignment(Ride ride, boolean alreadyAssigned) {
+        return RideAssignmentResponse.builder()
+                .ride(RideMapper.toResponse(ride))
+                .alreadyAssigned(alreadyAssigned)
+                .build();
+    }
+    
+    @Transactional(readOnly = true)
+    public RidePage getDriverRideHistory(Long driverId, String cursor, Integer size) {
+        log.debug("Fetching ride history page for driver ID: {}", driverId);
+        int pageSize = resolvePageSize(size);
+        Limit limit = Limit.of(pageSize + 1);
         
-        return mapToResponse(rideRepository.save(ride));
+        List<RideResponse> rides;
+        if (cursor == null) {
+            rides = rideRepository.findDriverHistory(driverId, limit);
+        } else {
+            RideCursor position = RideCursor.decode(cursor);
+            rides = rideRepository.findDriverHistoryAfter(driverId, position.timestamp(), position.id(), limit);
+        }
+        return toPage(rides, pageSize, RideResponse::getAcceptedAt);
     }
     
+    /**
+     * Rides assigned to each of the given drivers, for Driver Service to reconcile its
+     * ride totals. Drivers without rides are counted as {@code 0}. Drivers assigned a ride
+     * within the last few minutes are returned as unsettled instead: Driver Service may not
+     * have counted that ride yet, and correcting their total now would count it twice.
+     */
     @Transactional(readOnly = true)
-    public List<RideResponse> getDriverRideHistory(Long driverId) {
-        log.info("Fetching ride history for driver ID: {}", driverId);
-        return rideRepository.findByDriverIdOrderByAcceptedAtDesc(driverId)
-                .stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public DriverRideCounts getDriverRideCounts(List<Long> driverIds) {
+        if (driverIds == null || driverIds.isEmpty() || driverIds.size() > MAX_COUNTED_DRIVERS) {
+            throw new BadRequestException("Between 1 and " + MAX_COUNTED_DRIVERS + " driver ids must be given");
+        }
+        LocalDateTime settledBefore = LocalDateTime.now().minus(UNSETTLED_ASSIGNMENT_PERIOD);
+        Map<Long, Long> counts = new HashMap<>();
+        List<Long> unsettled = new ArrayList<>();
+        driverIds.forEach(driverId -> counts.put(driverId, 0L));
+        for (RideRepository.DriverRideCount count : rideRepository.countRidesByDriver(driverIds)) {
+            if (count.getLastAcceptedAt() != null && !count.getLastAcceptedAt().isBefore(settledBefore)) {
+                counts.remove(count.getDriverId());
+                unsettled.add(count.getDriverId());
+            } else {
+                counts.put(count.getDriverId(), count.getRides());
+            }
+        }
+        return DriverRideCounts.builder()
+                .counts(counts)
+                .unsettled(unsettled)
+                .build();
     }
     
-
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return size;
+    }
     
-    private RideResponse mapToResponse(Ride ride) {
-        return RideResponse.builder()
-                .id(ride.getId())
-                .customerId(ride.getCustomerId())
-                .customerName(ride.getCustomerName())
-                .driverId(ride.getDriverId())
-                .driverName(ride.getDriverName())
-                .pickupLocation(ride.getPickupLocation())
-                .dropOffLocation(ride.getDropOffLocation())
-                .status(ride.getStatus())
-                .requestedAt(ride.getRequestedAt())
-                .acceptedAt(ride.getAcceptedAt())
-                .completedAt(ride.getCompletedAt())
+    /**
+     * Pages are fetched with one extra row to know whether another page follows.
+     */
+    private RidePage toPage(List<RideResponse> rides, int pageSize, Function<RideResponse, LocalDateTime> sortKey) {
+        if (rides.size() <= pageSize) {
+            return RidePage.builder().rides(rides).build();
+        }
+        List<RideResponse> page = rides.subList(0, pageSize);
+        RideResponse last = page.get(pageSize - 1);
+        return RidePage.builder()
+                .rides(new ArrayList<>(page))
+                .nextCursor(new RideCursor(sortKey.apply(last), last.getId()).encode())
                 .build();
     }
+    
+    /**
+     * Records the event in the outbox as part of the current transaction. It reaches the
+     * ride event stream and the pending ride cache once the outbox relay publishes it.
+     */
+    private void publishEvent(RideEventType type, RideResponse ride) {
+        rideOutbox.append(type, ride, LocalDateTime.now());
+    }
 }
@@ -0,0 +1,45 @@
+package com.ridesharing.customer.service;
+
+import com.ridesharing.customer.dto.RideEventType;
+import com.ridesharing.customer.dto.RideResponse;
+import com.ridesharing.customer.entity.Ride;
+import com.ridesharing.customer.event.RideOutbox;
+import com.ridesharing.customer.repository.RideRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts new rides together with their {@code RIDE_REQUESTED} outbox events.
+ */
+@Component
+@RequiredArgsConstructor
+public class RideWriter {
+
+    private final RideRepository rideRepository;
+    private final RideOutbox rideOutbox;
+
+    /**
+     * Writes the rides in one transaction. Ride and event ids come from pooled sequences, so
+     * the rides and then their events each go out as a single JDBC batch when the session
+     * is flushed.
+     */
+    @Transactional
+    public List<RideResponse> insertAll(List<Ride> rides) {
+        List<Ride> saved = rideRepository.saveAll(rides);
+        rideRepository.flush();
+
+        LocalDateTime occurredAt = LocalDateTime.now();
+        List<RideResponse> responses = new ArrayList<>(saved.size());
+        for (Ride ride : saved) {
+            RideResponse response = RideMapper.toResponse(ride);
+            rideOutbox.append(RideEventType.RIDE_REQUESTED, response, occurredAt);
+            responses.add(response);
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,207 @@
+package com.ridesharing.customer.config;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.appender.FileAppender;
+import org.apache.logging.log4j.core.async.AsyncLoggerContext;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.ConfigurationSource;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.config.xml.XmlConfiguration;
+import org.apache.logging.log4j.spi.ExtendedLogger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures what the per-request log lines cost, through the service's own log4j2-spring.xml:
+ * asynchronous loggers, the console pattern from application.yml and the hot-path sampling.
+ * Each request logs what the header authentication filter and a controller log for a real
+ * request, under its own trace id. The console appender is replaced by a file of the same layout so the output does
+ * not end up in the build log. Compared are production (com.ridesharing at INFO), DEBUG with
+ * the configured sampling, and DEBUG with every line written. Reports the CPU time request
+ * threads spend logging, the CPU time of the whole process including the background thread
+ * that formats and writes, and how many lines were written; run with {@code -Pbenchmark}.
+ * The load can be changed with {@code -Dbenchmark.logging.requests} and
+ * {@code -Dbenchmark.logging.clients}.
+ */
+@Tag("benchmark")
+class HotPathLoggingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(HotPathLoggingBenchmarkTest.class);
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.logging.requests", 1_000_000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.logging.clients", 8);
+    private static final int WARMUP_REQUESTS = 200_000;
+    private static final int LINES_PER_REQUEST = 3;
+
+    private static final String FILTER_LOGGER = "com.ridesharing.customer.security.JwtAuthenticationFilter";
+    private static final String CONTROLLER_LOGGER = "com.ridesharing.customer.controller.CustomerController";
+    private static final String HOT_PATH_LOGGERS = "com.ridesharing.customer.controller, " + FILTER_LOGGER;
+    private static final String CONSOLE_PATTERN = "%d{DEFAULT} [%t] [%X{traceId},%X{spanId}] %-5level %c{1.} - %msg%n";
+
+    private static final String[] TRACE_IDS = ThreadLocalRandom.current().longs(65_536)
+            .mapToObj(n -> String.format("%016x%016x", n, ~n))
+            .toArray(String[]::new);
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+    @TempDir
+    Path logs;
+
+    @AfterEach
+    void stopClients() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void comparesLoggingCostOnTheRequestPath() throws Exception {
+        Result production = run("production", Level.INFO, 0);
+        Result sampled = run("sampled", Level.DEBUG, 0);
+        Result everyLine = run("every-line", Level.DEBUG, 1);
+
+        log.info("Hot-path logging benchmark, {} requests of {} lines from {} clients",
+                REQUESTS, LINES_PER_REQUEST, CLIENTS);
+        report("INFO (production)", production);
+        report("DEBUG, sampled", sampled);
+        report("DEBUG, every line", everyLine);
+
+        assertThat(production.linesWritten()).isZero();
+        assertThat(sampled.linesWritten()).isPositive().isLessThan(everyLine.linesWritten());
+    }
+
+    /**
+     * Logs the requests through a fresh logger context loaded from log4j2-spring.xml.
+     *
+     * @param oneIn replaces the hot-path sampling rate; 0 keeps the configured one
+     */
+    private Result run(String name, Level level, int oneIn) throws Exception {
+        Path file = logs.resolve(name + ".log");
+        AsyncLoggerContext context = start(name, file, level, oneIn);
+        try {
+            ExtendedLogger filter = context.getLogger(FILTER_LOGGER);
+            ExtendedLogger controller = context.getLogger(CONTROLLER_LOGGER);
+
+            requests(filter, controller, WARMUP_REQUESTS);
+            long processStart = os.getProcessCpuTime();
+            long requestThreadNanos = requests(filter, controller, REQUESTS);
+            // Stopping waits for the background thread to write what is still in the ring buffer
+            context.stop(1, TimeUnit.MINUTES);
+            long processNanos = os.getProcessCpuTime() - processStart;
+
+            return new Result(requestThreadNanos, processNanos, lines(file));
+        } finally {
+            context.stop();
+        }
+    }
+
+    private AsyncLoggerContext start(String name, Path file, Level level, int oneIn) throws IOException {
+        System.setProperty("CONSOLE_LOG_PATTERN", CONSOLE_PATTERN);
+        AsyncLoggerContext context = new AsyncLoggerContext("hot-path-logging-" + name);
+        try (InputStream xml = getClass().getClassLoader().getResourceAsStream("log4j2-spring.xml")) {
+            context.start(new XmlConfiguration(context, new ConfigurationSource(xml)));
+        } finally {
+            System.clearProperty("CONSOLE_LOG_PATTERN");
+        }
+
+        Configuration configuration = context.getConfiguration();
+        Appender console = configuration.getAppender("Console");
+        FileAppender appender = FileAppender.newBuilder()
+                .setName("File")
+                .withFileName(file.toString())
+                .setLayout(console.getLayout())
+                .setImmediateFlush(false)
+                .setConfiguration(configuration)
+                .build();
+        appender.start();
+        configuration.addAppender(appender);
+
+        List<LoggerConfig> loggers = new ArrayList<>(configuration.getLoggers().values());
+        loggers.add(configuration.getRootLogger());
+        for (LoggerConfig logger : loggers) {
+            if (logger.getAppenders().containsKey("Console")) {
+                logger.removeAppender("Console");
+                logger.addAppender(appender, null, null);
+            }
+        }
+        // What logging.level.com.ridesharing sets when Spring Boot starts the service
+        LoggerConfig services = new LoggerConfig("com.ridesharing", level, true);
+        configuration.addLogger(services.getName(), services);
+        if (oneIn > 0) {
+            configuration.removeFilter(configuration.getFilter());
+            configuration.addFilter(SamplingFilter.createFilter("DEBUG", oneIn, HOT_PATH_LOGGERS));
+        }
+        context.updateLoggers();
+        return context;
+    }
+
+    /**
+     * Sends the requests from the clients and returns the CPU time the clients spent.
+     */
+    private long requests(ExtendedLogger filter, ExtendedLogger controller, int requests) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong cpuNanos = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            futures.add(clients.submit(() -> {
+                long start = threads.getCurrentThreadCpuTime();
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    // Micrometer Tracing puts the trace id in the logging context of each request
+                    ThreadContext.put("traceId", TRACE_IDS[i % TRACE_IDS.length]);
+                    String userId = Integer.toString(i % 10_000);
+                    String userName = "customer" + userId;
+                    // The lines JwtAuthenticationFilter and CustomerController log for a request
+                    filter.debug("Received headers - UserId: {}, UserName: {}, UserRole: {}", userId, userName, "CUSTOMER");
+                    filter.debug("Set authentication for user: {}, role: ROLE_{}", userName, "CUSTOMER");
+                    controller.debug("Fetching ride history for authenticated customer: {}", userName);
+                }
+                ThreadContext.clearMap();
+                cpuNanos.addAndGet(threads.getCurrentThreadCpuTime() - start);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return cpuNanos.get();
+    }
+
+    private static long lines(Path file) throws IOException {
+        try (var lines = Files.lines(file)) {
+            return lines.count();
+        }
+    }
+
+    private static void report(String name, Result result) {
+        log.info("  {}: request threads {} ns/request, process {} ns/request, {} lines written",
+                name, result.requestThreadNanos() / REQUESTS, result.processNanos() / REQUESTS, result.linesWritten());
+    }
+
+    private record Result(long requestThreadNanos, long processNanos, long linesWritten) {
+    }
+}
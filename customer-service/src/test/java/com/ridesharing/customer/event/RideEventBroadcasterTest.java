@@ -0,0 +1,179 @@
+package com.ridesharing.customer.event;
+
+import com.ridesharing.customer.controller.InternalController;
+import com.ridesharing.customer.dto.RideEvent;
+import com.ridesharing.customer.dto.RideEventType;
+import com.ridesharing.customer.dto.RideResponse;
+import com.ridesharing.customer.service.RideService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Drives the internal ride event stream through {@link InternalController} so resuming is
+ * exercised from the {@code Last-Event-ID} header down to the frames written to the response.
+ */
+class RideEventBroadcasterTest {
+
+    private static final String EVENTS_PATH = "/api/customer/internal/rides/events";
+
+    private RideOutbox rideOutbox;
+    private RideEventBroadcaster broadcaster;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        rideOutbox = mock(RideOutbox.class);
+        broadcaster = new RideEventBroadcaster(rideOutbox, 2, 3, 100, Duration.ofMinutes(1), 2);
+        broadcaster.start(0);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new InternalController(mock(RideService.class), broadcaster))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void replaysBufferedEventsAfterTheLastEventIdAndThenDeliversNewOnes() throws Exception {
+        publish(1, 2, 3);
+
+        MvcResult stream = open(get(EVENTS_PATH).header("Last-Event-ID", "2"));
+        assertThat(ids(awaitFrames(stream, 1))).containsExactly("3");
+
+        publish(4);
+        assertThat(ids(awaitFrames(stream, 2))).containsExactly("3", "4");
+        verify(rideOutbox, never()).readAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    void replaysFromTheOutboxWhenTheCursorIsOlderThanTheBuffer() throws Exception {
+        publish(1, 2, 3, 4);
+        when(rideOutbox.oldestSequence()).thenReturn(1L);
+        when(rideOutbox.readAfter(1, 3)).thenReturn(events(2, 3));
+
+        MvcResult stream = open(get(EVENTS_PATH).header("Last-Event-ID", "1"));
+
+        assertThat(ids(awaitFrames(stream, 3))).containsExactly("2", "3", "4");
+    }
+
+    @Test
+    void resetsACursorTheOutboxNoLongerRetains() throws Exception {
+        publish(1, 2, 3, 4);
+        when(rideOutbox.oldestSequence()).thenReturn(3L);
+
+        MvcResult stream = open(get(EVENTS_PATH).header("Last-Event-ID", "1"));
+
+        assertThat(awaitFrames(stream, 1))
+                .containsExactly(new Frame("4", RideEventBroadcaster.RESET_EVENT, "{\"sequence\":4}"));
+    }
+
+    @Test
+    void resetsACursorTooFarBehindToReplay() throws Exception {
+        publish(1, 2, 3, 4, 5, 6);
+        when(rideOutbox.oldestSequence()).thenReturn(1L);
+        when(rideOutbox.readAfter(1, 3)).thenReturn(events(2, 3, 4));
+
+        MvcResult stream = open(get(EVENTS_PATH).header("Last-Event-ID", "1"));
+
+        assertThat(awaitFrames(stream, 1))
+                .containsExactly(new Frame("6", RideEventBroadcaster.RESET_EVENT, "{\"sequence\":6}"));
+    }
+
+    @Test
+    void resetsACursorAheadOfTheHead() throws Exception {
+        publish(1, 2);
+
+        MvcResult stream = open(get(EVENTS_PATH).param("cursor", "7"));
+
+        assertThat(awaitFrames(stream, 1))
+                .containsExactly(new Frame("2", RideEventBroadcaster.RESET_EVENT, "{\"sequence\":2}"));
+    }
+
+    private MvcResult open(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private void publish(long... sequences) {
+        events(sequences).forEach(broadcaster::publish);
+    }
+
+    private static List<RideEvent> events(long... sequences) {
+        return LongStream.of(sequences)
+                .mapToObj(sequence -> RideEvent.builder()
+                        .sequence(sequence)
+                        .type(RideEventType.RIDE_REQUESTED)
+                        .ride(RideResponse.builder().id(sequence).build())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Waits until the stream has written at least {@code count} events, ignoring heartbeats,
+     * and gives any unexpected extra event a moment to show up as well.
+     */
+    private static List<Frame> awaitFrames(MvcResult stream, int count) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (frames(stream).size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        return frames(stream);
+    }
+
+    private static List<Frame> frames(MvcResult stream) throws Exception {
+        List<Frame> frames = new ArrayList<>();
+        for (String block : stream.getResponse().getContentAsString().split("\n\n")) {
+            String id = null;
+            String event = null;
+            String data = null;
+            for (String line : block.split("\n")) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String value = line.substring(colon + 1);
+                switch (line.substring(0, colon)) {
+                    case "id" -> id = value;
+                    case "event" -> event = value;
+                    case "data" -> data = value;
+                    default -> {
+                        // Not written by the broadcaster
+                    }
+                }
+            }
+            if (event != null && !RideEventBroadcaster.HEARTBEAT_EVENT.equals(event)) {
+                frames.add(new Frame(id, event, data));
+            }
+        }
+        return frames;
+    }
+
+    private static List<String> ids(List<Frame> frames) {
+        return frames.stream().map(Frame::id).toList();
+    }
+
+    private record Frame(String id, String event, String data) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.ridesharing.customer.event;
+
+import com.ridesharing.customer.dto.RideEvent;
+import com.ridesharing.customer.dto.RideEventType;
+import com.ridesharing.customer.dto.RideResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The relay only polls at startup, so the test decides when events are sequenced
+@SpringBootTest(properties = "rides.outbox.poll-interval-ms=3600000")
+@Testcontainers(disabledWithoutDocker = true)
+class RideOutboxTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private RideOutbox rideOutbox;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void sequencesEventsInTheOrderTheyWereWrittenWhateverTheirClocks() {
+        long head = rideOutbox.headSequence();
+        RideResponse ride = RideResponse.builder().id(System.nanoTime()).build();
+        LocalDateTime requestedAt = LocalDateTime.now();
+
+        transactionTemplate.executeWithoutResult(status ->
+                rideOutbox.append(RideEventType.RIDE_REQUESTED, ride, requestedAt));
+        // Assigned on an instance whose clock is a minute behind the one that took the request
+        transactionTemplate.executeWithoutResult(status ->
+                rideOutbox.append(RideEventType.RIDE_ASSIGNED, ride, requestedAt.minusMinutes(1)));
+
+        while (rideOutbox.sequencePending(1) > 0) {
+            // One event per batch, so a batch can never hold the assignment without the request
+        }
+
+        List<RideEvent> events = rideOutbox.readAfter(head, 100).stream()
+                .filter(event -> event.getRide().getId().equals(ride.getId()))
+                .toList();
+        assertThat(events).extracting(RideEvent::getType)
+                .containsExactly(RideEventType.RIDE_REQUESTED, RideEventType.RIDE_ASSIGNED);
+    }
+}
@@ -0,0 +1,145 @@
+package com.ridesharing.customer.repository;
+
+import com.ridesharing.customer.dto.RideResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the pending ride query as the ride history grows, with the number of pending
+ * rides held constant. Reports latency percentiles and the buffers the query touched at
+ * each size; run with {@code -Pbenchmark}. Sizes can be changed with
+ * {@code -Dbenchmark.pending.history-sizes=10000,100000}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "rides.outbox.poll-interval-ms=3600000",
+        "logging.level.com.ridesharing=INFO"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class PendingRidesBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingRidesBenchmarkTest.class);
+
+    private static final long[] HISTORY_SIZES = Arrays.stream(
+                    System.getProperty("benchmark.pending.history-sizes", "10000,100000,1000000,10000000").split(","))
+            .mapToLong(size -> Long.parseLong(size.trim()))
+            .toArray();
+    private static final int PENDING = 200;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 500;
+
+    private static final String PENDING_SQL = """
+            SELECT r.id, r.customer_id, r.customer_name, r.driver_id, r.driver_name, r.pickup_location,
+                   r.dropoff_location, r.pickup_latitude, r.pickup_longitude, r.status,
+                   r.requested_at, r.accepted_at, r.completed_at
+            FROM customer.rides r
+            WHERE r.status = 'PENDING'
+            ORDER BY r.requested_at, r.id
+            """;
+
+    private static final Pattern BUFFERS = Pattern.compile("Buffers: shared hit=(\\d+)(?: read=(\\d+))?");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void startFromAnEmptyTable() {
+        jdbcTemplate.execute("TRUNCATE customer.rides");
+        // Pending rides were requested in the last minutes
+        jdbcTemplate.update("""
+                INSERT INTO customer.rides (id, customer_id, customer_name, pickup_location, dropoff_location,
+                                            pickup_latitude, pickup_longitude, status, requested_at)
+                SELECT -n, n, 'customer', 'pickup', 'drop-off', 24.7, 46.7, 'PENDING',
+                       now() - make_interval(secs => n)
+                FROM generate_series(1, ?) AS n
+                """, PENDING);
+    }
+
+    @Test
+    void pendingQueryStaysFlatAsHistoryGrows() {
+        long history = 0;
+        for (long size : HISTORY_SIZES) {
+            addHistory(history, size);
+            history = size;
+            jdbcTemplate.execute("VACUUM ANALYZE customer.rides");
+
+            for (int i = 0; i < WARMUP; i++) {
+                assertThat(rideRepository.findPendingRides()).hasSize(PENDING);
+            }
+            long[] latencies = new long[ITERATIONS];
+            for (int i = 0; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                List<RideResponse> pending = rideRepository.findPendingRides();
+                latencies[i] = System.nanoTime() - start;
+                assertThat(pending).hasSize(PENDING);
+            }
+            Arrays.sort(latencies);
+
+            String plan = String.join("\n", jdbcTemplate.queryForList(
+                    "EXPLAIN (ANALYZE, BUFFERS) " + PENDING_SQL, String.class));
+            log.info("Pending rides benchmark: {} history rows, {} pending, p50 {} ms, p99 {} ms, {} buffers",
+                    size, PENDING, millis(latencies, 0.50), millis(latencies, 0.99), buffers(plan));
+
+            assertThat(plan).as("plan at %d history rows", size).contains("idx_rides_pending");
+        }
+    }
+
+    /**
+     * Completed rides with ids and timestamps older than every pending ride.
+     */
+    private void addHistory(long from, long to) {
+        long step = 1_000_000;
+        for (long start = from + 1; start <= to; start += step) {
+            long end = Math.min(to, start + step - 1);
+            jdbcTemplate.update("""
+                    INSERT INTO customer.rides (id, customer_id, customer_name, driver_id, driver_name, pickup_location,
+                                                dropoff_location, pickup_latitude, pickup_longitude, status,
+                                                requested_at, accepted_at, completed_at)
+                    SELECT n, n % 100000, 'customer', n % 5000, 'driver', 'pickup', 'drop-off', 24.7, 46.7,
+                           CASE WHEN n % 20 = 0 THEN 'CANCELLED' ELSE 'COMPLETED' END,
+                           timestamp '2020-01-01' + make_interval(secs => n),
+                           timestamp '2020-01-01' + make_interval(secs => n + 30),
+                           timestamp '2020-01-01' + make_interval(secs => n + 900)
+                    FROM generate_series(?::bigint, ?::bigint) AS n
+                    """, start, end);
+        }
+    }
+
+    private static String millis(long[] sortedLatencies, double percentile) {
+        int index = Math.max(0, (int) Math.ceil(percentile * sortedLatencies.length) - 1);
+        return String.format("%.2f", sortedLatencies[index] / 1e6);
+    }
+
+    private static long buffers(String plan) {
+        Matcher matcher = BUFFERS.matcher(plan);
+        if (!matcher.find()) {
+            return -1;
+        }
+        long hit = Long.parseLong(matcher.group(1));
+        return matcher.group(2) != null ? hit + Long.parseLong(matcher.group(2)) : hit;
+    }
+}
@@ -0,0 +1,168 @@
+package com.ridesharing.customer.service;
+
+import com.ridesharing.customer.dto.RideRequest;
+import com.ridesharing.customer.dto.RideResponse;
+import com.ridesharing.customer.dto.RideStatus;
+import com.ridesharing.customer.entity.Ride;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares ride creation throughput of the batched ingest path with the single-row path it
+ * replaced, where every request inserts its ride in a transaction of its own. Both paths
+ * run against the same database with the same number of concurrent clients; run with
+ * {@code -Pbenchmark}. The load can be changed with {@code -Dbenchmark.ingest.requests}
+ * and {@code -Dbenchmark.ingest.clients}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "rides.outbox.poll-interval-ms=3600000",
+        "logging.level.com.ridesharing=INFO"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class RideIngestBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RideIngestBenchmarkTest.class);
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.ingest.requests", 20_000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.ingest.clients", 64);
+    private static final int WARMUP = 2_000;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withUrlParam("reWriteBatchedInserts", "true");
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideWriter rideWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+    @AfterEach
+    void stopClients() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void batchedIngestOutpacesSingleRowInserts() throws Exception {
+        Function<Integer, RideResponse> singleRow = customer ->
+                rideWriter.insertAll(List.of(ride(customer))).get(0);
+        Function<Integer, RideResponse> batched = customer ->
+                rideService.requestRide(customer.longValue(), "customer", request());
+
+        run(singleRow, WARMUP);
+        Result single = run(singleRow, REQUESTS);
+        run(batched, WARMUP);
+        DistributionSummary batchSizes = meterRegistry.get("rides.ingest.batch.size").summary();
+        long batchesBefore = batchSizes.count();
+        double ridesBefore = batchSizes.totalAmount();
+        Result batch = run(batched, REQUESTS);
+        double meanBatch = (batchSizes.totalAmount() - ridesBefore) / (batchSizes.count() - batchesBefore);
+
+        log.info("Ride ingest benchmark, {} requests from {} clients", REQUESTS, CLIENTS);
+        log.info("  single-row: {} rides/s, p50 {} ms, p99 {} ms", single.throughput(), single.p50(), single.p99());
+        log.info("  batched:    {} rides/s, p50 {} ms, p99 {} ms, {} rides per batch",
+                batch.throughput(), batch.p50(), batch.p99(), String.format("%.1f", meanBatch));
+
+        Long outboxRows = jdbcTemplate.queryForObject("SELECT count(*) FROM customer.ride_outbox", Long.class);
+        assertThat(outboxRows).as("every ride has its outbox event").isGreaterThanOrEqualTo(2L * (REQUESTS + WARMUP));
+    }
+
+    private Result run(Function<Integer, RideResponse> path, int requests) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        long[] latencies = new long[requests];
+        List<Future<?>> futures = new ArrayList<>(CLIENTS);
+
+        long start = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            futures.add(clients.submit(() -> {
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    long requestStart = System.nanoTime();
+                    RideResponse response = path.apply(i);
+                    latencies[i] = System.nanoTime() - requestStart;
+                    assertThat(response.getId()).isNotNull();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(requests, elapsed, latencies);
+    }
+
+    private static Ride ride(int customer) {
+        return Ride.builder()
+                .customerId((long) customer)
+                .customerName("customer")
+                .pickupLocation("pickup")
+                .dropOffLocation("drop-off")
+                .pickupLatitude(24.7136)
+                .pickupLongitude(46.6753)
+                .status(RideStatus.PENDING)
+                .build();
+    }
+
+    private static RideRequest request() {
+        return RideRequest.builder()
+                .pickupLocation("pickup")
+                .dropOffLocation("drop-off")
+                .pickupLatitude(24.7136)
+                .pickupLongitude(46.6753)
+                .build();
+    }
+
+    private record Result(int requests, long elapsedNanos, long[] sortedLatencies) {
+
+        long throughput() {
+            return Math.round(requests / (elapsedNanos / 1e9));
+        }
+
+        String p50() {
+            return percentile(0.50);
+        }
+
+        String p99() {
+            return percentile(0.99);
+        }
+
+        private String percentile(double percentile) {
+            int index = Math.max(0, (int) Math.ceil(percentile * sortedLatencies.length) - 1);
+            return String.format("%.2f", sortedLatencies[index] / 1e6);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.ridesharing.customer.service;
+
+import com.ridesharing.customer.dto.RideAssignmentResponse;
+import com.ridesharing.customer.dto.RideEventType;
+import com.ridesharing.customer.entity.Ride;
+import com.ridesharing.customer.exception.ConflictException;
+import com.ridesharing.customer.repository.OutboxEventRepository;
+import com.ridesharing.customer.repository.RideRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class RideServiceAssignDriverTest {
+
+    private static final int DRIVERS = 16;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Test
+    void concurrentAssignmentsLetExactlyOneDriverWin() throws Exception {
+        Long rideId = rideRepository.saveAndFlush(Ride.builder()
+                .customerId(1L)
+                .customerName("customer")
+                .pickupLocation("A")
+                .dropOffLocation("B")
+                .build()).getId();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(DRIVERS);
+        List<Future<RideAssignmentResponse>> attempts = new ArrayList<>();
+        try {
+            for (long driverId = 1; driverId <= DRIVERS; driverId++) {
+                long id = driverId;
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    return rideService.assignDriver(rideId, id, "driver-" + id, UUID.randomUUID().toString());
+                }));
+            }
+            start.countDown();
+
+            int assigned = 0;
+            int conflicts = 0;
+            Long winner = null;
+            for (Future<RideAssignmentResponse> attempt : attempts) {
+                try {
+                    RideAssignmentResponse assignment = attempt.get();
+                    assertThat(assignment.isAlreadyAssigned()).isFalse();
+                    winner = assignment.getRide().getDriverId();
+                    assigned++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(ConflictException.class);
+                    conflicts++;
+                }
+            }
+
+            assertThat(assigned).isEqualTo(1);
+            assertThat(conflicts).isEqualTo(DRIVERS - 1);
+            assertThat(rideRepository.findById(rideId)).get()
+                    .extracting(Ride::getDriverId)
+                    .isEqualTo(winner);
+            assertThat(outboxEventRepository.findAll())
+                    .filteredOn(event -> event.getRideId().equals(rideId)
+                            && event.getEventType() == RideEventType.RIDE_ASSIGNED)
+                    .hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.ridesharing.driver.client;
 
 import com.ridesharing.driver.dto.ApiResponse;
-import com.ridesharing.driver.dto.RideResponse;
+import com.ridesharing.driver.dto.DriverRideCounts;
+import com.ridesharing.driver.dto.PendingRidesSnapshot;
+import com.ridesharing.driver.dto.RideAssignmentResponse;
+import com.ridesharing.driver.dto.RidePage;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,20 +18,29 @@ import java.util.List;
 )
 public interface CustomerServiceClient {
 
-    @GetMapping("/api/customer/internal/rides/pending")
-    ApiResponse<List<RideResponse>> getPendingRides();
+    @GetMapping("/api/customer/internal/rides/pending/snapshot")
+    ApiResponse<PendingRidesSnapshot> getPendingRidesSnapshot();
     
 
     @PostMapping("/api/customer/internal/rides/{rideId}/assign")
-    ApiResponse<RideResponse> assignDriver(
+    ApiResponse<RideAssignmentResponse> assignDriver(
             @PathVariable("rideId") Long rideId,
             @RequestParam("driverId") Long driverId,
-            @RequestParam("driverName") String driverName
+            @RequestParam("driverName") String driverName,
+            @RequestHeader("Idempotency-Key") String idempotencyKey
     );
     
 
     @GetMapping("/api/customer/internal/rides/driver/{driverId}")
-    ApiResponse<List<RideResponse>> getDriverRideHistory(@PathVariable("driverId") Long driverId);
+    ApiResponse<RidePage> getDriverRideHistory(
+            @PathVariable("driverId") Long driverId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size
+    );
+    
+
+    @GetMapping("/api/customer/internal/rides/driver-counts")
+    ApiResponse<DriverRideCounts> getDriverRideCounts(@RequestParam("driverIds") List<Long> driverIds);
     
 
 
@@ -1,7 +1,10 @@
 package com.ridesharing.driver.client;
 
 import com.ridesharing.driver.dto.ApiResponse;
-import com.ridesharing.driver.dto.RideResponse;
+import com.ridesharing.driver.dto.DriverRideCounts;
+import com.ridesharing.driver.dto.PendingRidesSnapshot;
+import com.ridesharing.driver.dto.RideAssignmentResponse;
+import com.ridesharing.driver.dto.RidePage;
 import lombok.extern.log4j.Log4j2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,26 +20,32 @@ public class CustomerServiceClientFallback implements CustomerServiceClient {
     
 
     @Override
-    public ApiResponse<List<RideResponse>> getPendingRides() {
-        log.warn("Fallback: Customer Service unavailable - getPendingRides");
+    public ApiResponse<PendingRidesSnapshot> getPendingRidesSnapshot() {
+        log.warn("Fallback: Customer Service unavailable - getPendingRidesSnapshot");
         return ApiResponse.error("Customer Service is currently unavailable");
     }
     
     @Override
-    public ApiResponse<RideResponse> assignDriver(Long rideId, Long driverId, String driverName) {
+    public ApiResponse<RideAssignmentResponse> assignDriver(Long rideId, Long driverId, String driverName, String idempotencyKey) {
         log.warn("Fallback: Customer Service unavailable - assignDriver for ride {}", rideId);
         return ApiResponse.error("Customer Service is currently unavailable");
     }
     
     @Override
-    public ApiResponse<List<RideResponse>> getDriverRideHistory(Long driverId) {
+    public ApiResponse<RidePage> getDriverRideHistory(Long driverId, String cursor, Integer size) {
         log.warn("Fallback: Customer Service unavailable - getDriverRideHistory for driver {}", driverId);
-        return ApiResponse.<List<RideResponse>>builder()
+        return ApiResponse.<RidePage>builder()
                 .success(false)
                 .message("Customer Service is currently unavailable")
-                .data(Collections.emptyList())
+                .data(RidePage.builder().rides(Collections.emptyList()).build())
                 .build();
     }
     
+    @Override
+    public ApiResponse<DriverRideCounts> getDriverRideCounts(List<Long> driverIds) {
+        log.warn("Fallback: Customer Service unavailable - getDriverRideCounts for {} drivers", driverIds.size());
+        return ApiResponse.error("Customer Service is currently unavailable");
+    }
+    
 
 }
@@ -0,0 +1,131 @@
+package com.ridesharing.driver.client;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hedged reads from Customer Service: when a read has not answered within the hedge delay,
+ * a second identical request is sent and whichever succeeds first is used. This cuts the
+ * tail latency caused by one slow instance or connection at the cost of a few extra reads.
+ * <p>
+ * Only for calls without side effects. When the pool is saturated the read runs on the
+ * caller's thread, unhedged. The trace context is carried over to the pool threads.
+ */
+@Component
+public class HedgedReads {
+
+    private final boolean enabled;
+    private final long delayMillis;
+    private final ExecutorService executor;
+
+    private final Counter hedged;
+    private final Counter hedgeWins;
+
+    public HedgedReads(MeterRegistry meterRegistry,
+                       @Value("${customer-service.client.hedging.enabled:true}") boolean enabled,
+                       @Value("${customer-service.client.hedging.delay:300ms}") Duration delay,
+                       @Value("${customer-service.client.hedging.threads:16}") int threads) {
+        this.enabled = enabled;
+        this.delayMillis = delay.toMillis();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "customer-read-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        ContextSnapshotFactory snapshots = ContextSnapshotFactory.builder().build();
+        this.executor = ContextExecutorService.wrap(pool, snapshots::captureAll);
+
+        this.hedged = Counter.builder("customer.client.hedged")
+                .description("Customer Service reads that sent a hedge request")
+                .register(meterRegistry);
+        this.hedgeWins = Counter.builder("customer.client.hedge.wins")
+                .description("Hedged Customer Service reads answered by the hedge request")
+                .register(meterRegistry);
+    }
+
+    public <T> T read(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(call, executor);
+        try {
+            return primary.get(delayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            hedged.increment();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading from Customer Service", e);
+        }
+
+        CompletableFuture<T> hedge = CompletableFuture.supplyAsync(call, executor);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((value, error) -> settle(first, value, error, failures));
+        hedge.whenComplete((value, error) -> {
+            if (error == null && !first.isDone()) {
+                hedgeWins.increment();
+            }
+            settle(first, value, error, failures);
+        });
+        try {
+            return first.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading from Customer Service", e);
+        }
+    }
+
+    /**
+     * Completes with the first success, or with the last error once both requests failed.
+     */
+    private static <T> void settle(CompletableFuture<T> first, T value, Throwable error, AtomicInteger failures) {
+        if (error == null) {
+            first.complete(value);
+        } else if (failures.incrementAndGet() == 2) {
+            first.completeExceptionally(error);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new IllegalStateException("Customer Service read failed", cause);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
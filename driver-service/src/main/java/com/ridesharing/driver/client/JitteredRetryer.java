@@ -0,0 +1,48 @@
+package com.ridesharing.driver.client;
+
+import feign.RetryableException;
+import feign.Retryer;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries a failed call a bounded number of times with exponential backoff and full jitter,
+ * so callers that failed together do not retry in lockstep.
+ * <p>
+ * Feign only retries {@link RetryableException}s: I/O errors such as timeouts, and the
+ * statuses the error decoder marks as retryable. Calls that change state must be idempotent.
+ */
+public class JitteredRetryer implements Retryer {
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private int attempt = 1;
+
+    public JitteredRetryer(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        if (attempt++ >= maxAttempts) {
+            throw e;
+        }
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 2, 20));
+        long backoff = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    @Override
+    public Retryer clone() {
+        return new JitteredRetryer(maxAttempts, Duration.ofMillis(initialBackoffMillis), Duration.ofMillis(maxBackoffMillis));
+    }
+}
@@ -1,12 +1,19 @@
 package com.ridesharing.driver.config;
 
 import feign.Logger;
+import feign.RetryableException;
+import feign.Retryer;
 import feign.codec.ErrorDecoder;
+import com.ridesharing.driver.client.JitteredRetryer;
 import com.ridesharing.driver.exception.BadRequestException;
+import com.ridesharing.driver.exception.ConflictException;
 import com.ridesharing.driver.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * Configuration for Feign Clients.
  */
@@ -14,16 +21,28 @@ import org.springframework.context.annotation.Configuration;
 public class FeignConfig {
     
     /**
-     * Set Feign logging level.
-     * FULL - Log headers, body, and metadata.
+     * Set Feign logging level from {@code customer-service.client.logger-level}.
+     * FULL - Log headers, body, and metadata; NONE - no logging.
+     */
+    @Bean
+    public Logger.Level feignLoggerLevel(@Value("${customer-service.client.logger-level:BASIC}") Logger.Level level) {
+        return level;
+    }
+    
+    /**
+     * Bounded retries with jittered backoff for timeouts and unavailable upstreams.
+     * Ride assignment carries an idempotency key, so every call is safe to repeat.
      */
     @Bean
-    public Logger.Level feignLoggerLevel() {
-        return Logger.Level.FULL;
+    public Retryer retryer(@Value("${customer-service.client.retry.max-attempts:3}") int maxAttempts,
+                           @Value("${customer-service.client.retry.initial-backoff:100ms}") Duration initialBackoff,
+                           @Value("${customer-service.client.retry.max-backoff:1s}") Duration maxBackoff) {
+        return new JitteredRetryer(maxAttempts, initialBackoff, maxBackoff);
     }
     
     /**
      * Custom error decoder to convert HTTP errors to exceptions.
+     * Gateway errors and overload (502, 503, 504) are retried.
      */
     @Bean
     public ErrorDecoder errorDecoder() {
@@ -33,6 +52,13 @@ public class FeignConfig {
                     return new BadRequestException("Bad request to Customer Service");
                 case 404:
                     return new ResourceNotFoundException("Resource not found in Customer Service");
+                case 409:
+                    return new ConflictException("Ride is no longer available");
+                case 502:
+                case 503:
+                case 504:
+                    return new RetryableException(response.status(), "Customer Service unavailable: " + response.status(),
+                            response.request().httpMethod(), (Long) null, response.request());
                 default:
                     return new RuntimeException("Error calling Customer Service: " + response.status());
             }
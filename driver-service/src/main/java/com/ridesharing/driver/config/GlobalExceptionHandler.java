@@ -2,7 +2,9 @@ package com.ridesharing.driver.config;
 
 import com.ridesharing.driver.dto.ApiResponse;
 import com.ridesharing.driver.exception.BadRequestException;
+import com.ridesharing.driver.exception.ConflictException;
 import com.ridesharing.driver.exception.ResourceNotFoundException;
+import feign.RetryableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -32,6 +34,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(ex.getMessage()));
     }
     
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiResponse<Void>> handleConflict(ConflictException ex) {
+        log.info("Conflict: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(ex.getMessage()));
+    }
+    
+    @ExceptionHandler(RetryableException.class)
+    public ResponseEntity<ApiResponse<Void>> handleUpstreamUnavailable(RetryableException ex) {
+        log.warn("Customer Service unavailable after retries: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponse.error("Customer Service is currently unavailable, please try again"));
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Map<String, String>>> handleValidation(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
@@ -1,6 +1,7 @@
 package com.ridesharing.driver.controller;
 
 import com.ridesharing.driver.dto.*;
+import com.ridesharing.driver.exception.ResourceNotFoundException;
 import com.ridesharing.driver.security.CurrentUser;
 import com.ridesharing.driver.security.UserPrincipal;
 import com.ridesharing.driver.service.DriverService;
@@ -9,9 +10,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -25,13 +29,19 @@ public class DriverController {
 
     private final DriverService driverService;
 
+    @Value("${rides.available.default-radius-km:5}")
+    private double defaultRadiusKm;
+
+    @Value("${rides.available.default-limit:20}")
+    private int defaultLimit;
+
 
     @GetMapping("/profile")
     @PreAuthorize("hasRole('DRIVER')")
     public ResponseEntity<ApiResponse<DriverProfileResponse>> getProfile(
             @CurrentUser UserPrincipal currentUser) {
 
-        log.info("Fetching profile for authenticated driver: {} (ID: {})",
+        log.debug("Fetching profile for authenticated driver: {} (ID: {})",
                 currentUser.getUsername(), currentUser.getId());
 
         DriverProfileResponse profile = driverService.getOrCreateProfile(
@@ -50,7 +60,7 @@ public class DriverController {
             @CurrentUser UserPrincipal currentUser,
             @Valid @RequestBody UpdateStatusRequest request) {
 
-        log.info("Updating status for authenticated driver: {} to {}",
+        log.debug("Updating status for authenticated driver: {} to {}",
                 currentUser.getUsername(), request.getStatus());
 
         driverService.updateStatus(currentUser.getId(), request.getStatus());
@@ -58,39 +68,117 @@ public class DriverController {
     }
 
 
+    @PostMapping("/heartbeat")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<ApiResponse<DriverStatus>> heartbeat(
+            @CurrentUser UserPrincipal currentUser) {
+
+        return ResponseEntity.ok(ApiResponse.success(driverService.heartbeat(currentUser.getId())));
+    }
+
+
+    @PutMapping("/location")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<ApiResponse<String>> updateLocation(
+            @CurrentUser UserPrincipal currentUser,
+            @Valid @RequestBody LocationUpdateRequest request) {
+
+        driverService.updateLocation(currentUser.getId(), request.getLatitude(), request.getLongitude());
+        return ResponseEntity.ok(ApiResponse.success("Location updated"));
+    }
+
+
     @GetMapping("/rides/available")
     @PreAuthorize("hasRole('DRIVER')")
     public ResponseEntity<ApiResponse<List<RideResponse>>> getAvailableRides(
-            @CurrentUser UserPrincipal currentUser) {
+            @CurrentUser UserPrincipal currentUser,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) Integer limit) {
 
-        log.info("Authenticated driver {} fetching available rides", currentUser.getUsername());
+        log.debug("Authenticated driver {} fetching available rides", currentUser.getUsername());
 
-        List<RideResponse> rides = driverService.getPendingRides();
+        List<RideResponse> rides = driverService.getPendingRides(
+                currentUser.getId(),
+                lat,
+                lng,
+                radiusKm != null ? radiusKm : defaultRadiusKm,
+                limit != null ? limit : defaultLimit
+        );
         return ResponseEntity.ok(ApiResponse.success(rides));
     }
 
 
+    @GetMapping(value = "/rides/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('DRIVER')")
+    public SseEmitter getRideFeed(
+            @CurrentUser UserPrincipal currentUser,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Double radiusKm) {
+
+        log.debug("Authenticated driver {} subscribing to ride feed", currentUser.getUsername());
+
+        return driverService.openRideFeed(
+                currentUser.getId(),
+                lastEventId != null ? lastEventId : cursor,
+                lat,
+                lng,
+                radiusKm != null ? radiusKm : defaultRadiusKm
+        );
+    }
+
+
     @PostMapping("/rides/{rideId}/accept")
     @PreAuthorize("hasRole('DRIVER')")
     public ResponseEntity<ApiResponse<RideResponse>> acceptRide(
             @CurrentUser UserPrincipal currentUser,
             @PathVariable Long rideId) {
 
-        log.info("Authenticated driver {} accepting ride ID: {}", currentUser.getUsername(), rideId);
+        log.debug("Authenticated driver {} accepting ride ID: {}", currentUser.getUsername(), rideId);
 
         RideResponse ride = driverService.assignRide(currentUser.getId(), currentUser.getUsername(), rideId);
         return ResponseEntity.ok(ApiResponse.success("Ride accepted successfully", ride));
     }
 
 
-    @GetMapping("/rides/history")
+    @GetMapping("/rides/offer")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<ApiResponse<List<RideResponse>>> getRideHistory(
+    public ResponseEntity<ApiResponse<RideOfferResponse>> getCurrentOffer(
             @CurrentUser UserPrincipal currentUser) {
 
-        log.info("Fetching ride history for authenticated driver: {}", currentUser.getUsername());
+        RideOfferResponse offer = driverService.getCurrentOffer(currentUser.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("No open ride offer"));
+        return ResponseEntity.ok(ApiResponse.success(offer));
+    }
+
+
+    @PostMapping("/rides/{rideId}/decline")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<ApiResponse<String>> declineRide(
+            @CurrentUser UserPrincipal currentUser,
+            @PathVariable Long rideId) {
+
+        log.debug("Authenticated driver {} declining ride ID: {}", currentUser.getUsername(), rideId);
+
+        driverService.declineRide(currentUser.getId(), currentUser.getUsername(), rideId);
+        return ResponseEntity.ok(ApiResponse.success("Ride declined"));
+    }
+
+
+    @GetMapping("/rides/history")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<ApiResponse<RidePage>> getRideHistory(
+            @CurrentUser UserPrincipal currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        log.debug("Fetching ride history for authenticated driver: {}", currentUser.getUsername());
 
-        List<RideResponse> rides = driverService.getRideHistory(currentUser.getId());
+        RidePage rides = driverService.getRideHistory(currentUser.getId(), cursor, size);
         return ResponseEntity.ok(ApiResponse.success(rides));
     }
 
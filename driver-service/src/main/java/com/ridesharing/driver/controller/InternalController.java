@@ -0,0 +1,62 @@
+package com.ridesharing.driver.controller;
+
+import com.ridesharing.driver.dto.ApiResponse;
+import com.ridesharing.driver.dto.LocationBatchResult;
+import com.ridesharing.driver.dto.NearbyDriverResponse;
+import com.ridesharing.driver.service.DriverService;
+import com.ridesharing.driver.service.LocationIngestService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Endpoints for other services: bulk location ingest from the telemetry tier, which batches
+ * the pings of many drivers into one binary request (format described on
+ * {@link LocationIngestService}), and nearby online driver supply.
+ */
+@RestController
+@RequestMapping("/api/driver/internal")
+@RequiredArgsConstructor
+@Log4j2
+public class InternalController {
+
+    private final LocationIngestService locationIngestService;
+    private final DriverService driverService;
+
+    @Value("${rides.available.default-radius-km:5}")
+    private double defaultRadiusKm;
+
+    @Value("${rides.available.default-limit:20}")
+    private int defaultLimit;
+
+    @PostMapping(value = "/locations", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ApiResponse<LocationBatchResult>> ingestLocations(HttpServletRequest request) throws IOException {
+        LocationBatchResult result = locationIngestService.ingest(request.getInputStream());
+        log.debug("Internal: Ingested location batch, {} of {} pings accepted", result.getAccepted(), result.getReceived());
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/drivers/nearby")
+    public ResponseEntity<ApiResponse<List<NearbyDriverResponse>>> getNearbyDrivers(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) Integer limit) {
+
+        log.debug("Internal: Fetching online drivers near ({}, {})", lat, lng);
+        List<NearbyDriverResponse> drivers = driverService.getNearbyDrivers(
+                lat,
+                lng,
+                radiusKm != null ? radiusKm : defaultRadiusKm,
+                limit != null ? limit : defaultLimit
+        );
+        return ResponseEntity.ok(ApiResponse.success(drivers));
+    }
+}
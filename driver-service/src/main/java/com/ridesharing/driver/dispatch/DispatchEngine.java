@@ -0,0 +1,407 @@
+package com.ridesharing.driver.dispatch;
+
+import com.ridesharing.driver.dto.RideOfferResponse;
+import com.ridesharing.driver.dto.RideResponse;
+import com.ridesharing.driver.event.RideFeedBroadcaster;
+import com.ridesharing.driver.exception.BadRequestException;
+import com.ridesharing.driver.exception.ConflictException;
+import com.ridesharing.driver.exception.ResourceNotFoundException;
+import com.ridesharing.driver.geo.GeoUtils;
+import com.ridesharing.driver.geo.SpatialIndex;
+import com.ridesharing.driver.service.PendingRideIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Matches pending rides to nearby online drivers and offers each ride to one driver at a time.
+ * <p>
+ * Every window the engine takes the pending rides that have no open offer and the online
+ * drivers with a recent position and no open offer, splits them into geographic partitions
+ * and matches each partition in parallel: candidate pairs come from a nearest-driver lookup
+ * per ride and are taken greedily, shortest pickup first. A driver who declines or lets an
+ * offer expire is not offered the same ride again. Drivers near a partition edge are only
+ * matched within their own partition.
+ * <p>
+ * A driver who accepts a ride is on a trip and gets no offers until they go offline, which
+ * is how drivers end their shift or break between rides; a trip longer than the maximum
+ * trip duration is assumed over.
+ */
+@Component
+@Log4j2
+public class DispatchEngine {
+
+    public static final String OFFER_EVENT = "RIDE_OFFERED";
+
+    private final PendingRideIndex pendingRideIndex;
+    private final DriverPresenceService driverPresenceService;
+    private final DriverLocationService driverLocationService;
+    private final RideFeedBroadcaster rideFeedBroadcaster;
+
+    private final boolean enabled;
+    private final Duration offerTimeout;
+    private final Duration maxTripDuration;
+    private final double maxPickupKm;
+    private final int candidatesPerRide;
+    private final double partitionSizeDegrees;
+    private final double cellSizeDegrees;
+    private final ExecutorService workers;
+
+    // Guarded by this
+    private final Map<Long, Offer> offersByRide = new HashMap<>();
+    private final Map<Long, Offer> offersByDriver = new HashMap<>();
+    private final Map<Long, Set<Long>> declinedByRide = new HashMap<>();
+    // Drivers on a trip and when they accepted it
+    private final Map<Long, LocalDateTime> onTrip = new HashMap<>();
+
+    private final Timer windowTimer;
+    private final Timer matchLatency;
+    private final Counter offered;
+    private final Counter accepted;
+    private final Counter declined;
+    private final Counter expired;
+
+    public DispatchEngine(PendingRideIndex pendingRideIndex,
+                          DriverPresenceService driverPresenceService,
+                          DriverLocationService driverLocationService,
+                          RideFeedBroadcaster rideFeedBroadcaster,
+                          MeterRegistry meterRegistry,
+                          @Value("${dispatch.enabled:false}") boolean enabled,
+                          @Value("${dispatch.offer-timeout:15s}") Duration offerTimeout,
+                          @Value("${dispatch.max-trip-duration:3h}") Duration maxTripDuration,
+                          @Value("${dispatch.max-pickup-km:5}") double maxPickupKm,
+                          @Value("${dispatch.candidates-per-ride:5}") int candidatesPerRide,
+                          @Value("${dispatch.partition-size-degrees:0.5}") double partitionSizeDegrees,
+                          @Value("${rides.index.cell-size-degrees:0.01}") double cellSizeDegrees,
+                          @Value("${dispatch.parallelism:0}") int parallelism) {
+        this.pendingRideIndex = pendingRideIndex;
+        this.driverPresenceService = driverPresenceService;
+        this.driverLocationService = driverLocationService;
+        this.rideFeedBroadcaster = rideFeedBroadcaster;
+        this.enabled = enabled;
+        this.offerTimeout = offerTimeout;
+        this.maxTripDuration = maxTripDuration;
+        this.maxPickupKm = maxPickupKm;
+        this.candidatesPerRide = candidatesPerRide;
+        this.partitionSizeDegrees = partitionSizeDegrees;
+        this.cellSizeDegrees = cellSizeDegrees;
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.windowTimer = Timer.builder("dispatch.window")
+                .description("Time to match one dispatch window")
+                .register(meterRegistry);
+        this.matchLatency = Timer.builder("dispatch.match.latency")
+                .description("Time from a ride request to its first offer")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.offered = offerCounter(meterRegistry, "offered");
+        this.accepted = offerCounter(meterRegistry, "accepted");
+        this.declined = offerCounter(meterRegistry, "declined");
+        this.expired = offerCounter(meterRegistry, "expired");
+        Gauge.builder("dispatch.offers.open", this, DispatchEngine::openOffers)
+                .description("Ride offers waiting for a driver response")
+                .register(meterRegistry);
+        Gauge.builder("dispatch.drivers.on_trip", this, DispatchEngine::driversOnTrip)
+                .description("Drivers on a trip, who get no offers")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${dispatch.window-ms:2000}")
+    public void runWindow() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            windowTimer.recordCallable(() -> {
+                dispatchWindow();
+                return null;
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Dispatch window failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The open offer for the driver, if any.
+     */
+    public synchronized Optional<RideOfferResponse> currentOffer(Long driverId) {
+        Offer offer = offersByDriver.get(driverId);
+        return offer != null ? Optional.of(offer.toResponse()) : Optional.empty();
+    }
+
+    /**
+     * Rejects an accept for a ride that is currently offered to someone else.
+     */
+    public synchronized void checkCanAccept(Long driverId, Long rideId) {
+        if (!enabled) {
+            return;
+        }
+        Offer offer = offersByRide.get(rideId);
+        if (offer != null && !offer.driverId().equals(driverId)) {
+            throw new ConflictException("Ride is offered to another driver");
+        }
+    }
+
+    public synchronized void onAccepted(Long driverId, Long rideId) {
+        Offer offer = offersByRide.get(rideId);
+        if (offer != null) {
+            removeOffer(offer);
+            if (offer.driverId().equals(driverId)) {
+                accepted.increment();
+            }
+        }
+        declinedByRide.remove(rideId);
+        onTrip.put(driverId, LocalDateTime.now());
+    }
+
+    /**
+     * Ends the driver's trip and withdraws their open offer.
+     */
+    @EventListener
+    public synchronized void onDriverOffline(DriverOfflineEvent event) {
+        onTrip.remove(event.driverId());
+        Offer offer = offersByDriver.get(event.driverId());
+        if (offer != null) {
+            removeOffer(offer);
+        }
+    }
+
+    public synchronized void decline(Long driverId, Long rideId) {
+        if (!enabled) {
+            throw new BadRequestException("Automatic dispatch is disabled");
+        }
+        Offer offer = offersByRide.get(rideId);
+        if (offer == null || !offer.driverId().equals(driverId)) {
+            throw new ResourceNotFoundException("No open offer for this ride");
+        }
+        removeOffer(offer);
+        declinedByRide.computeIfAbsent(rideId, id -> new HashSet<>()).add(driverId);
+        declined.increment();
+        log.info("Driver {} declined ride {}", driverId, rideId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void dispatchWindow() throws InterruptedException, ExecutionException {
+        List<RideResponse> rides = new ArrayList<>();
+        Set<Long> busyDrivers;
+        Map<Long, Set<Long>> declinedSnapshot = new HashMap<>();
+        synchronized (this) {
+            expireOffers();
+            for (RideResponse ride : pendingRideIndex.all()) {
+                if (!offersByRide.containsKey(ride.getId())
+                        && GeoUtils.isValid(ride.getPickupLatitude(), ride.getPickupLongitude())) {
+                    rides.add(ride);
+                }
+            }
+            busyDrivers = new HashSet<>(offersByDriver.keySet());
+            busyDrivers.addAll(onTrip.keySet());
+            declinedByRide.forEach((rideId, drivers) -> declinedSnapshot.put(rideId, Set.copyOf(drivers)));
+        }
+        if (rides.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Partition> partitions = new HashMap<>();
+        for (RideResponse ride : rides) {
+            partitions.computeIfAbsent(partitionKey(ride.getPickupLatitude(), ride.getPickupLongitude()),
+                    key -> new Partition()).rides.add(ride);
+        }
+        int drivers = 0;
+        for (Long driverId : driverPresenceService.getOnlineDrivers()) {
+            if (busyDrivers.contains(driverId)) {
+                continue;
+            }
+            DriverLocationService.DriverPosition position = driverLocationService.get(driverId);
+            if (position == null) {
+                continue;
+            }
+            Partition partition = partitions.get(partitionKey(position.latitude(), position.longitude()));
+            if (partition != null) {
+                partition.drivers.put(driverId, position);
+                drivers++;
+            }
+        }
+        if (drivers == 0) {
+            return;
+        }
+
+        List<Future<List<Match>>> results = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            if (!partition.drivers.isEmpty()) {
+                results.add(workers.submit(() -> partition.match(declinedSnapshot)));
+            }
+        }
+
+        int offers = 0;
+        for (Future<List<Match>> result : results) {
+            for (Match match : result.get()) {
+                if (offer(match)) {
+                    offers++;
+                }
+            }
+        }
+        log.debug("Dispatch window matched {} rides across {} partitions", offers, results.size());
+    }
+
+    private synchronized boolean offer(Match match) {
+        RideResponse ride = match.ride();
+        if (!pendingRideIndex.contains(ride.getId())
+                || offersByRide.containsKey(ride.getId())
+                || offersByDriver.containsKey(match.driverId())
+                || onTrip.containsKey(match.driverId())) {
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Offer offer = new Offer(ride, match.driverId(), match.distanceKm(), now, now.plus(offerTimeout));
+        offersByRide.put(ride.getId(), offer);
+        offersByDriver.put(match.driverId(), offer);
+        offered.increment();
+
+        if (ride.getRequestedAt() != null && !declinedByRide.containsKey(ride.getId())) {
+            Duration latency = Duration.between(ride.getRequestedAt(), now);
+            if (!latency.isNegative()) {
+                matchLatency.record(latency);
+            }
+        }
+
+        rideFeedBroadcaster.sendToDriver(match.driverId(), OFFER_EVENT, offer.toResponse());
+        log.debug("Offered ride {} to driver {} ({} km)", ride.getId(), match.driverId(), match.distanceKm());
+        return true;
+    }
+
+    private void expireOffers() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Offer offer : List.copyOf(offersByRide.values())) {
+            if (!pendingRideIndex.contains(offer.ride().getId())) {
+                // Taken outside of dispatch
+                removeOffer(offer);
+            } else if (offer.expiresAt().isBefore(now)) {
+                removeOffer(offer);
+                declinedByRide.computeIfAbsent(offer.ride().getId(), id -> new HashSet<>()).add(offer.driverId());
+                expired.increment();
+            }
+        }
+        declinedByRide.keySet().removeIf(rideId -> !pendingRideIndex.contains(rideId));
+        LocalDateTime tripsStartedBefore = now.minus(maxTripDuration);
+        onTrip.values().removeIf(acceptedAt -> acceptedAt.isBefore(tripsStartedBefore));
+    }
+
+    private void removeOffer(Offer offer) {
+        offersByRide.remove(offer.ride().getId(), offer);
+        offersByDriver.remove(offer.driverId(), offer);
+    }
+
+    private synchronized int openOffers() {
+        return offersByRide.size();
+    }
+
+    private synchronized int driversOnTrip() {
+        return onTrip.size();
+    }
+
+    private long partitionKey(double latitude, double longitude) {
+        long row = (long) Math.floor(latitude / partitionSizeDegrees);
+        long column = (long) Math.floor(longitude / partitionSizeDegrees);
+        return (row << 32) ^ (column & 0xFFFFFFFFL);
+    }
+
+    private static Counter offerCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("dispatch.offers")
+                .description("Ride offers by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private final class Partition {
+
+        private final List<RideResponse> rides = new ArrayList<>();
+        private final Map<Long, DriverLocationService.DriverPosition> drivers = new HashMap<>();
+
+        List<Match> match(Map<Long, Set<Long>> declinedSnapshot) {
+            SpatialIndex<Long> driverIndex = new SpatialIndex<>(cellSizeDegrees);
+            drivers.forEach((driverId, position) ->
+                    driverIndex.put(driverId, position.latitude(), position.longitude(), driverId));
+
+            List<Match> candidates = new ArrayList<>();
+            for (RideResponse ride : rides) {
+                Set<Long> excluded = declinedSnapshot.getOrDefault(ride.getId(), Set.of());
+                for (SpatialIndex.Neighbor<Long> neighbor : driverIndex.nearest(ride.getPickupLatitude(),
+                        ride.getPickupLongitude(), maxPickupKm, candidatesPerRide + excluded.size())) {
+                    if (!excluded.contains(neighbor.id())) {
+                        candidates.add(new Match(ride, neighbor.id(), neighbor.distanceKm()));
+                    }
+                }
+            }
+            candidates.sort(Comparator.comparingDouble(Match::distanceKm));
+
+            Set<Long> matchedRides = new HashSet<>();
+            Set<Long> matchedDrivers = new HashSet<>();
+            List<Match> matches = new ArrayList<>();
+            for (Match candidate : candidates) {
+                if (!matchedRides.contains(candidate.ride().getId()) && !matchedDrivers.contains(candidate.driverId())) {
+                    matchedRides.add(candidate.ride().getId());
+                    matchedDrivers.add(candidate.driverId());
+                    matches.add(candidate);
+                }
+            }
+            return matches;
+        }
+    }
+
+    private record Match(RideResponse ride, Long driverId, double distanceKm) {
+    }
+
+    private record Offer(RideResponse ride, Long driverId, double distanceKm,
+                         LocalDateTime offeredAt, LocalDateTime expiresAt) {
+
+        RideOfferResponse toResponse() {
+            return RideOfferResponse.builder()
+                    .ride(ride)
+                    .distanceKm(distanceKm)
+                    .offeredAt(offeredAt)
+                    .expiresAt(expiresAt)
+                    .build();
+        }
+    }
+}
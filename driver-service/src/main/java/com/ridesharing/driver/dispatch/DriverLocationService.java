@@ -0,0 +1,116 @@
+package com.ridesharing.driver.dispatch;
+
+import com.ridesharing.driver.geo.GeoUtils;
+import com.ridesharing.driver.geo.LocationTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Last known position of each driver, from location pings and from their ride requests.
+ * Positions older than the configured TTL are treated as unknown.
+ * <p>
+ * Positions live in a striped primitive {@link LocationTable}, so high-rate pings neither
+ * allocate nor contend on a single lock. Pings carry the time they were taken, and a ping
+ * older than the stored position is ignored. Accepted positions of online drivers are also
+ * passed on to the {@link OnlineDriverRegistry}.
+ */
+@Component
+public class DriverLocationService {
+
+    private final LocationTable positions;
+    private final OnlineDriverRegistry onlineDriverRegistry;
+    private final long ttlMillis;
+    private final long maxClockSkewMillis;
+
+    private final Counter accepted;
+    private final Counter outdated;
+    private final Counter invalid;
+
+    public DriverLocationService(OnlineDriverRegistry onlineDriverRegistry,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${dispatch.location-ttl:2m}") Duration ttl,
+                                 @Value("${locations.stripes:64}") int stripes,
+                                 @Value("${locations.initial-capacity:16384}") int initialCapacity,
+                                 @Value("${locations.max-clock-skew:5s}") Duration maxClockSkew) {
+        this.positions = new LocationTable(stripes, initialCapacity);
+        this.onlineDriverRegistry = onlineDriverRegistry;
+        this.ttlMillis = ttl.toMillis();
+        this.maxClockSkewMillis = maxClockSkew.toMillis();
+
+        this.accepted = pings(meterRegistry, "accepted");
+        this.outdated = pings(meterRegistry, "outdated");
+        this.invalid = pings(meterRegistry, "invalid");
+        Gauge.builder("driver.location.tracked", positions, LocationTable::size)
+                .description("Drivers with a position in the location table")
+                .register(meterRegistry);
+    }
+
+    private static Counter pings(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("driver.location.pings")
+                .description("Driver location pings received")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public void report(Long driverId, Double latitude, Double longitude) {
+        if (driverId == null || !GeoUtils.isValid(latitude, longitude)) {
+            return;
+        }
+        report(driverId, latitude, longitude, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a ping taken at {@code reportedAt}. Returns whether it became the driver's position.
+     */
+    public boolean report(long driverId, double latitude, double longitude, long reportedAt) {
+        long now = System.currentTimeMillis();
+        if (driverId <= 0 || !GeoUtils.isValid(latitude, longitude)
+                || reportedAt > now + maxClockSkewMillis || now - reportedAt > ttlMillis) {
+            invalid.increment();
+            return false;
+        }
+        long timestamp = Math.min(reportedAt, now);
+        if (!positions.put(driverId, latitude, longitude, timestamp)) {
+            outdated.increment();
+            return false;
+        }
+        onlineDriverRegistry.move(driverId, latitude, longitude, timestamp);
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * The driver's position if it was reported recently enough, otherwise null.
+     */
+    public DriverPosition get(Long driverId) {
+        if (driverId == null) {
+            return null;
+        }
+        LocationTable.Location location = positions.get(driverId);
+        if (location == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - location.timestamp() > ttlMillis) {
+            positions.removeIfNotNewer(driverId, location.timestamp());
+            return null;
+        }
+        return new DriverPosition(location.latitude(), location.longitude(), location.timestamp());
+    }
+
+    /**
+     * Adds the positions that changed since the previous call to {@code changed} and
+     * drops positions older than the TTL.
+     */
+    public void collectChanged(List<LocationTable.Location> changed) {
+        positions.collectChanged(changed, System.currentTimeMillis() - ttlMillis);
+    }
+
+    public record DriverPosition(double latitude, double longitude, long reportedAt) {
+    }
+}
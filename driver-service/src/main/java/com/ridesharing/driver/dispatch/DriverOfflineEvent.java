@@ -0,0 +1,8 @@
+package com.ridesharing.driver.dispatch;
+
+/**
+ * Published when a driver goes offline, either by changing their status or by missing
+ * their heartbeats.
+ */
+public record DriverOfflineEvent(Long driverId) {
+}
@@ -0,0 +1,214 @@
+package com.ridesharing.driver.dispatch;
+
+import com.ridesharing.driver.dto.DriverStatus;
+import com.ridesharing.driver.exception.ResourceNotFoundException;
+import com.ridesharing.driver.repository.DriverProfileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which drivers are online, tracked in memory from status changes and heartbeats.
+ * <p>
+ * A driver who goes online has to keep heartbeating (explicitly or with location pings);
+ * one who stays silent for longer than the heartbeat timeout is taken offline. Status changes
+ * are not written one by one: only the latest status of each driver is kept and written
+ * periodically with one batched {@code UPDATE} per status, so a driver toggling many times
+ * between two flushes costs at most one row update. The presence of a driver is tracked by
+ * the instance receiving their requests. A {@link DriverOfflineEvent} is published whenever
+ * a driver goes offline.
+ */
+@Component
+@Log4j2
+public class DriverPresenceService {
+
+    private final DriverProfileRepository driverProfileRepository;
+    private final DriverLocationService driverLocationService;
+    private final OnlineDriverRegistry onlineDriverRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long heartbeatTimeoutMillis;
+    private final int flushBatchSize;
+
+    // Online drivers and the time of their last heartbeat
+    private final Map<Long, Long> online = new ConcurrentHashMap<>();
+    // Latest status of each driver not yet written to driver_profiles
+    private final Map<Long, DriverStatus> pending = new ConcurrentHashMap<>();
+    // Drivers known to have a profile, so status changes need no lookup
+    private final Set<Long> knownDrivers = ConcurrentHashMap.newKeySet();
+
+    private final Counter expired;
+    private final Counter rowsWritten;
+    private final Timer flushTimer;
+
+    public DriverPresenceService(DriverProfileRepository driverProfileRepository,
+                                 DriverLocationService driverLocationService,
+                                 OnlineDriverRegistry onlineDriverRegistry,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${presence.heartbeat-timeout:90s}") Duration heartbeatTimeout,
+                                 @Value("${presence.flush-batch-size:1000}") int flushBatchSize) {
+        this.driverProfileRepository = driverProfileRepository;
+        this.driverLocationService = driverLocationService;
+        this.onlineDriverRegistry = onlineDriverRegistry;
+        this.eventPublisher = eventPublisher;
+        this.heartbeatTimeoutMillis = heartbeatTimeout.toMillis();
+        this.flushBatchSize = flushBatchSize;
+
+        Gauge.builder("driver.presence.online", online, Map::size)
+                .description("Drivers currently online")
+                .register(meterRegistry);
+        Gauge.builder("driver.presence.pending", pending, Map::size)
+                .description("Driver status changes waiting to be written")
+                .register(meterRegistry);
+        this.expired = Counter.builder("driver.presence.expired")
+                .description("Drivers taken offline after missing their heartbeats")
+                .register(meterRegistry);
+        this.rowsWritten = Counter.builder("driver.presence.writes")
+                .description("Driver profile rows updated by status flushes")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("driver.presence.flush")
+                .description("Time to write the pending driver status changes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Restores the drivers that were online when the service last wrote their status.
+     * They get a full heartbeat timeout to check in again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long now = System.currentTimeMillis();
+        List<Long> onlineDrivers = driverProfileRepository.findUserIdsByStatus(DriverStatus.ONLINE);
+        for (Long driverId : onlineDrivers) {
+            knownDrivers.add(driverId);
+            online.computeIfAbsent(driverId, id -> {
+                onlineDriverRegistry.goOnline(id, null);
+                return now;
+            });
+        }
+        log.info("Driver presence loaded with {} online drivers", onlineDrivers.size());
+    }
+
+    public void registerDriver(Long driverId) {
+        knownDrivers.add(driverId);
+    }
+
+    public void setStatus(Long driverId, DriverStatus status) {
+        if (!knownDrivers.contains(driverId)) {
+            if (!driverProfileRepository.existsByUserId(driverId)) {
+                throw new ResourceNotFoundException("Driver profile not found");
+            }
+            knownDrivers.add(driverId);
+        }
+
+        // The registry and the status to write are updated under the same key, so both follow
+        // the order of the changes when the same driver toggles concurrently
+        if (status == DriverStatus.ONLINE) {
+            online.compute(driverId, (id, lastHeartbeat) -> {
+                onlineDriverRegistry.goOnline(id, driverLocationService.get(id));
+                pending.put(id, DriverStatus.ONLINE);
+                return System.currentTimeMillis();
+            });
+        } else {
+            online.compute(driverId, (id, lastHeartbeat) -> {
+                onlineDriverRegistry.goOffline(id);
+                pending.put(id, DriverStatus.OFFLINE);
+                return null;
+            });
+            eventPublisher.publishEvent(new DriverOfflineEvent(driverId));
+        }
+    }
+
+    /**
+     * Keeps an online driver online. Heartbeats of offline drivers are ignored.
+     */
+    public boolean heartbeat(long driverId) {
+        return online.computeIfPresent(driverId, (id, lastHeartbeat) -> System.currentTimeMillis()) != null;
+    }
+
+    public boolean isOnline(Long driverId) {
+        return driverId != null && online.containsKey(driverId);
+    }
+
+    public DriverStatus getStatus(Long driverId) {
+        return isOnline(driverId) ? DriverStatus.ONLINE : DriverStatus.OFFLINE;
+    }
+
+    public Set<Long> getOnlineDrivers() {
+        return Collections.unmodifiableSet(online.keySet());
+    }
+
+    @Scheduled(fixedDelayString = "${presence.sweep-interval-ms:10000}")
+    public void expireSilentDrivers() {
+        long cutoff = System.currentTimeMillis() - heartbeatTimeoutMillis;
+        List<Long> silent = new ArrayList<>();
+        for (Long driverId : online.keySet()) {
+            online.computeIfPresent(driverId, (id, lastHeartbeat) -> {
+                if (lastHeartbeat >= cutoff) {
+                    return lastHeartbeat;
+                }
+                onlineDriverRegistry.goOffline(id);
+                pending.put(id, DriverStatus.OFFLINE);
+                silent.add(id);
+                expired.increment();
+                log.debug("Driver {} missed their heartbeats and went offline", id);
+                return null;
+            });
+        }
+        silent.forEach(driverId -> eventPublisher.publishEvent(new DriverOfflineEvent(driverId)));
+    }
+
+    @Scheduled(fixedDelayString = "${presence.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> {
+            List<Long> goingOnline = new ArrayList<>();
+            List<Long> goingOffline = new ArrayList<>();
+            for (Map.Entry<Long, DriverStatus> entry : pending.entrySet()) {
+                // Only drop the change that is written; a newer one stays for the next flush
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    (entry.getValue() == DriverStatus.ONLINE ? goingOnline : goingOffline).add(entry.getKey());
+                }
+            }
+            write(goingOnline, DriverStatus.ONLINE);
+            write(goingOffline, DriverStatus.OFFLINE);
+        });
+    }
+
+    private void write(List<Long> driverIds, DriverStatus status) {
+        for (int from = 0; from < driverIds.size(); from += flushBatchSize) {
+            List<Long> batch = driverIds.subList(from, Math.min(from + flushBatchSize, driverIds.size()));
+            try {
+                rowsWritten.increment(driverProfileRepository.updateStatus(batch, status));
+            } catch (RuntimeException e) {
+                log.warn("Could not write status {} for {} drivers, retrying with the next flush: {}",
+                        status, batch.size(), e.getMessage());
+                batch.forEach(driverId -> pending.putIfAbsent(driverId, status));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,123 @@
+package com.ridesharing.driver.dispatch;
+
+import com.ridesharing.driver.geo.SpatialIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online drivers indexed by their last position, for radius and nearest-driver queries.
+ * <p>
+ * {@link DriverPresenceService} adds and removes drivers as they go online and offline, and
+ * {@link DriverLocationService} moves them as their pings arrive. Each driver's changes are
+ * applied atomically through the online map, so a ping racing with going offline cannot
+ * leave the driver in the index; the {@link SpatialIndex} underneath only locks the grid
+ * cells an update touches. Positions older than the location TTL are left out of results.
+ */
+@Component
+public class OnlineDriverRegistry {
+
+    private static final Object ONLINE = new Object();
+
+    private final Map<Long, Object> online = new ConcurrentHashMap<>();
+    private final SpatialIndex<DriverLocationService.DriverPosition> index;
+    private final long ttlMillis;
+    private final Timer queryTimer;
+
+    public OnlineDriverRegistry(MeterRegistry meterRegistry,
+                                @Value("${rides.index.cell-size-degrees:0.01}") double cellSizeDegrees,
+                                @Value("${dispatch.location-ttl:2m}") Duration ttl) {
+        this.index = new SpatialIndex<>(cellSizeDegrees);
+        this.ttlMillis = ttl.toMillis();
+
+        Gauge.builder("driver.registry.online", online, Map::size)
+                .description("Online drivers in the registry")
+                .register(meterRegistry);
+        Gauge.builder("driver.registry.located", index, SpatialIndex::size)
+                .description("Online drivers with a position in the registry")
+                .register(meterRegistry);
+        this.queryTimer = Timer.builder("driver.registry.query")
+                .description("Nearby online driver queries")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds the driver, placed at {@code position} when it is known.
+     */
+    public void goOnline(long driverId, DriverLocationService.DriverPosition position) {
+        online.compute(driverId, (id, current) -> {
+            if (position != null) {
+                index.put(driverId, position.latitude(), position.longitude(), position);
+            }
+            return ONLINE;
+        });
+    }
+
+    public void goOffline(long driverId) {
+        online.compute(driverId, (id, current) -> {
+            index.remove(driverId);
+            return null;
+        });
+    }
+
+    /**
+     * Moves the driver if they are online; positions of offline drivers are not indexed.
+     * Like the location table, a position older than the indexed one is ignored, so pings
+     * applied out of order cannot move the driver back.
+     */
+    public void move(long driverId, double latitude, double longitude, long reportedAt) {
+        online.computeIfPresent(driverId, (id, current) -> {
+            DriverLocationService.DriverPosition indexed = index.get(driverId);
+            if (indexed == null || indexed.reportedAt() <= reportedAt) {
+                index.put(driverId, latitude, longitude,
+                        new DriverLocationService.DriverPosition(latitude, longitude, reportedAt));
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Up to {@code limit} online drivers with a recent position within {@code radiusKm}, nearest first.
+     */
+    public List<SpatialIndex.Neighbor<DriverLocationService.DriverPosition>> nearby(double latitude, double longitude,
+                                                                                   double radiusKm, int limit) {
+        return queryTimer.record(() -> {
+            long oldest = System.currentTimeMillis() - ttlMillis;
+            List<SpatialIndex.Neighbor<DriverLocationService.DriverPosition>> neighbors =
+                    index.nearest(latitude, longitude, radiusKm, limit);
+            if (neighbors.stream().allMatch(neighbor -> neighbor.value().reportedAt() >= oldest)) {
+                return neighbors;
+            }
+            // Stale drivers took some of the slots: drop them and search again
+            neighbors.stream()
+                    .filter(neighbor -> neighbor.value().reportedAt() < oldest)
+                    .forEach(neighbor -> removeIfStale(neighbor.id(), oldest));
+            return index.within(latitude, longitude, radiusKm).stream()
+                    .filter(neighbor -> neighbor.value().reportedAt() >= oldest)
+                    .limit(limit)
+                    .toList();
+        });
+    }
+
+    private void removeIfStale(long driverId, long oldest) {
+        online.computeIfPresent(driverId, (id, current) -> {
+            DriverLocationService.DriverPosition position = index.get(driverId);
+            if (position != null && position.reportedAt() < oldest) {
+                index.remove(driverId);
+            }
+            return current;
+        });
+    }
+
+    public int size() {
+        return online.size();
+    }
+}
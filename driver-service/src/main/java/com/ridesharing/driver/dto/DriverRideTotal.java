@@ -0,0 +1,18 @@
+package com.ridesharing.driver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ride total stored on a driver profile.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverRideTotal {
+    private Long userId;
+    private Integer totalRides;
+}
@@ -0,0 +1,18 @@
+package com.ridesharing.driver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a location ping batch: pings decoded and pings that became a driver's position.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationBatchResult {
+    private Integer received;
+    private Integer accepted;
+}
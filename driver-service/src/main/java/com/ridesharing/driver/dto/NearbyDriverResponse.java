@@ -0,0 +1,23 @@
+package com.ridesharing.driver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Online driver near a queried point, with their last reported position.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyDriverResponse {
+    private Long driverId;
+    private Double latitude;
+    private Double longitude;
+    private Double distanceKm;
+    private LocalDateTime reportedAt;
+}
@@ -0,0 +1,20 @@
+package com.ridesharing.driver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Pending rides as of ride event {@code sequence}; stream events after it apply on top.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingRidesSnapshot {
+    private List<RideResponse> rides;
+    private Long sequence;
+}
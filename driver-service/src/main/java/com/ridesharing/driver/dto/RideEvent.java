@@ -0,0 +1,19 @@
+package com.ridesharing.driver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideEvent {
+    private Long sequence;
+    private RideEventType type;
+    private RideResponse ride;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,6 @@
+package com.ridesharing.driver.dto;
+
+public enum RideEventType {
+    RIDE_REQUESTED,
+    RIDE_ASSIGNED
+}
@@ -0,0 +1,22 @@
+package com.ridesharing.driver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ride offered to a driver by the dispatch engine, to accept or decline before it expires.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideOfferResponse {
+    private RideResponse ride;
+    private Double distanceKm;
+    private LocalDateTime offeredAt;
+    private LocalDateTime expiresAt;
+}
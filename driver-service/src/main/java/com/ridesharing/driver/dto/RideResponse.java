@@ -19,6 +19,8 @@ public class RideResponse {
     private String driverName;
     private String pickupLocation;
     private String dropOffLocation;
+    private Double pickupLatitude;
+    private Double pickupLongitude;
     private RideStatus status;
     private LocalDateTime requestedAt;
     private LocalDateTime acceptedAt;
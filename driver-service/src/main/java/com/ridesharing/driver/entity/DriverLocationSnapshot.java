@@ -0,0 +1,39 @@
+package com.ridesharing.driver.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Downsampled driver position, written periodically from the in-memory location table.
+ */
+@Entity
+@Table(name = "driver_location_snapshots", schema = "driver")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverLocationSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "driver_location_snapshot_id_seq")
+    @SequenceGenerator(name = "driver_location_snapshot_id_seq", schema = "driver",
+            sequenceName = "driver_location_snapshot_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "driver_id", nullable = false)
+    private Long driverId;
+
+    @Column(nullable = false)
+    private Double latitude;
+
+    @Column(nullable = false)
+    private Double longitude;
+
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+}
@@ -0,0 +1,347 @@
+package com.ridesharing.driver.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ridesharing.driver.dto.RideEvent;
+import com.ridesharing.driver.service.PendingRideIndex;
+import com.ridesharing.driver.service.PendingRideSync;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the local replica of pending rides from Customer Service.
+ * <p>
+ * The replica is bootstrapped from a snapshot that carries its ride event sequence, and
+ * the event stream is then followed from exactly that sequence, resuming with
+ * {@code Last-Event-ID} after a disconnect. A {@code RESET} from upstream triggers a new
+ * snapshot. Events are also fanned out to the driver feed.
+ * <p>
+ * Customer Service sends heartbeats on an idle stream, so a watchdog drops a connection that
+ * has been silent for longer than the idle timeout; a half-open connection would otherwise
+ * block the reader forever.
+ */
+@Component
+@Log4j2
+public class RideEventStreamClient {
+
+    private static final String EVENTS_PATH = "/api/customer/internal/rides/events";
+
+    private final PendingRideSync pendingRideSync;
+    private final RideFeedBroadcaster rideFeedBroadcaster;
+    private final ObjectMapper objectMapper;
+    private final URI eventsUri;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration idleTimeout;
+    private final HttpClient httpClient;
+
+    private final Timer eventDelay;
+    private final Counter resets;
+    private final Counter idleDisconnects;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Closeable currentStream;
+    private volatile Long cursor;
+    private volatile boolean resetRequested;
+    private volatile long upstreamHead;
+    private volatile long lastContactMillis;
+    private Thread worker;
+    private ScheduledExecutorService watchdog;
+
+    public RideEventStreamClient(PendingRideSync pendingRideSync,
+                                 PendingRideIndex pendingRideIndex,
+                                 RideFeedBroadcaster rideFeedBroadcaster,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${customer-service.url}") String customerServiceUrl,
+                                 @Value("${rides.events.connect-timeout:5s}") Duration connectTimeout,
+                                 @Value("${rides.events.reconnect-initial-backoff:500ms}") Duration initialBackoff,
+                                 @Value("${rides.events.reconnect-max-backoff:30s}") Duration maxBackoff,
+                                 @Value("${rides.events.idle-timeout:45s}") Duration idleTimeout) {
+        this.pendingRideSync = pendingRideSync;
+        this.rideFeedBroadcaster = rideFeedBroadcaster;
+        this.objectMapper = objectMapper;
+        this.eventsUri = URI.create(customerServiceUrl + EVENTS_PATH);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.idleTimeout = idleTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+
+        Gauge.builder("rides.replica.staleness", this, RideEventStreamClient::stalenessSeconds)
+                .description("Seconds since the pending ride replica last heard from Customer Service")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("rides.replica.lag", this, RideEventStreamClient::lagEvents)
+                .description("Ride events known upstream but not yet applied to the replica")
+                .register(meterRegistry);
+        Gauge.builder("rides.replica.connected", this, client -> client.connected ? 1 : 0)
+                .description("Whether the ride event stream is connected")
+                .register(meterRegistry);
+        Gauge.builder("rides.replica.size", pendingRideIndex, PendingRideIndex::size)
+                .description("Pending rides held in the replica")
+                .register(meterRegistry);
+        this.eventDelay = Timer.builder("rides.replica.event.delay")
+                .description("Time from a ride change in Customer Service to its application in the replica")
+                .register(meterRegistry);
+        this.resets = Counter.builder("rides.replica.resets")
+                .description("Snapshot reloads of the pending ride replica")
+                .register(meterRegistry);
+        this.idleDisconnects = Counter.builder("rides.replica.idle.disconnects")
+                .description("Ride event stream connections dropped after going silent")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "ride-event-stream");
+        worker.setDaemon(true);
+        worker.start();
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ride-event-stream-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMillis = Math.max(1000, idleTimeout.toMillis() / 3);
+        watchdog.scheduleWithFixedDelay(this::dropIfIdle, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        closeQuietly(currentStream);
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    public Long getCursor() {
+        return cursor;
+    }
+
+    private void run() {
+        long backoffMillis = initialBackoff.toMillis();
+        while (running) {
+            try {
+                if (cursor == null) {
+                    bootstrap();
+                }
+                if (consume()) {
+                    backoffMillis = initialBackoff.toMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("Ride event stream from Customer Service interrupted: {}", e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+
+            if (!running) {
+                return;
+            }
+            if (resetRequested) {
+                // Reload right away instead of backing off
+                resetRequested = false;
+                continue;
+            }
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoffMillis = Math.min(backoffMillis * 2, maxBackoff.toMillis());
+        }
+    }
+
+    private void bootstrap() {
+        long sequence = pendingRideSync.loadSnapshot();
+        resets.increment();
+        rideFeedBroadcaster.reset(sequence);
+        cursor = sequence;
+        upstreamHead = Math.max(upstreamHead, sequence);
+        lastContactMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Reads the stream until it ends or is reset. Returns whether a connection was established.
+     */
+    private boolean consume() throws IOException, InterruptedException {
+        Long resumeFrom = cursor;
+        HttpRequest request = HttpRequest.newBuilder(eventsUri)
+                .timeout(idleTimeout)
+                .header("Accept", "text/event-stream")
+                .header("Last-Event-ID", String.valueOf(resumeFrom))
+                .GET()
+                .build();
+
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("Unexpected status " + response.statusCode());
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            // The body rather than the reader, which cannot be closed while a read is blocked
+            currentStream = response.body();
+            lastContactMillis = System.currentTimeMillis();
+            connected = true;
+            log.info("Connected to ride event stream from sequence {}", resumeFrom);
+
+            String id = null;
+            String name = null;
+            StringBuilder data = new StringBuilder();
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                lastContactMillis = System.currentTimeMillis();
+                if (line.isEmpty()) {
+                    if (!data.isEmpty() && !dispatch(id, name, data.toString())) {
+                        break;
+                    }
+                    id = null;
+                    name = null;
+                    data.setLength(0);
+                    continue;
+                }
+                if (line.startsWith(":")) {
+                    continue;
+                }
+
+                int colon = line.indexOf(':');
+                String field = colon < 0 ? line : line.substring(0, colon);
+                String value = colon < 0 ? "" : line.substring(colon + 1);
+                if (value.startsWith(" ")) {
+                    value = value.substring(1);
+                }
+
+                switch (field) {
+                    case "id" -> id = value;
+                    case "event" -> name = value;
+                    case "data" -> {
+                        if (!data.isEmpty()) {
+                            data.append('\n');
+                        }
+                        data.append(value);
+                    }
+                    default -> {
+                        // retry and unknown fields are not used
+                    }
+                }
+            }
+        } finally {
+            currentStream = null;
+        }
+        return true;
+    }
+
+    /**
+     * Applies one frame. Returns false when the stream has to be re-bootstrapped.
+     */
+    private boolean dispatch(String id, String name, String data) throws IOException {
+        if (RideFeedBroadcaster.HEARTBEAT_EVENT.equals(name)) {
+            upstreamHead = Math.max(upstreamHead, objectMapper.readTree(data).path("sequence").asLong());
+            return true;
+        }
+
+        if (RideFeedBroadcaster.RESET_EVENT.equals(name)) {
+            JsonNode reset = objectMapper.readTree(data);
+            log.info("Ride event stream reset at sequence {}, reloading pending rides", reset.path("sequence").asLong());
+            cursor = null;
+            resetRequested = true;
+            return false;
+        }
+
+        RideEvent event = objectMapper.readValue(data, RideEvent.class);
+        if (event.getType() == null || event.getSequence() == null) {
+            log.debug("Ignoring ride event {} without type or sequence", id);
+            return true;
+        }
+        if (cursor != null && event.getSequence() <= cursor) {
+            return true;
+        }
+
+        pendingRideSync.apply(event);
+        rideFeedBroadcaster.publish(event);
+        cursor = event.getSequence();
+        upstreamHead = Math.max(upstreamHead, event.getSequence());
+        if (event.getOccurredAt() != null) {
+            Duration delay = Duration.between(event.getOccurredAt(), LocalDateTime.now());
+            if (!delay.isNegative()) {
+                eventDelay.record(delay);
+            }
+        }
+        return true;
+    }
+
+    private void dropIfIdle() {
+        Closeable stream = currentStream;
+        long silentMillis = System.currentTimeMillis() - lastContactMillis;
+        if (stream != null && silentMillis > idleTimeout.toMillis()) {
+            log.warn("Ride event stream silent for {} ms, reconnecting", silentMillis);
+            idleDisconnects.increment();
+            closeQuietly(stream);
+        }
+    }
+
+    private double stalenessSeconds() {
+        long lastContact = lastContactMillis;
+        if (lastContact == 0) {
+            return Double.NaN;
+        }
+        return (System.currentTimeMillis() - lastContact) / 1000.0;
+    }
+
+    private double lagEvents() {
+        Long applied = cursor;
+        if (applied == null) {
+            return Double.NaN;
+        }
+        return Math.max(0, upstreamHead - applied);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Closing only to unblock the reader
+        }
+    }
+}
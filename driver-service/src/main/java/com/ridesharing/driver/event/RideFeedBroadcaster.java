@@ -0,0 +1,284 @@
+package com.ridesharing.driver.event;
+
+import com.ridesharing.driver.dto.RideEvent;
+import com.ridesharing.driver.dto.RideEventType;
+import com.ridesharing.driver.dto.RideResponse;
+import com.ridesharing.driver.geo.GeoUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans ride events received from Customer Service out to connected drivers.
+ * <p>
+ * Events keep the sequence assigned by Customer Service, so a driver can resume with
+ * {@code Last-Event-ID} from any driver-service instance. Recent events are buffered for
+ * replay; a driver whose cursor is not covered gets a {@code RESET} event and should
+ * reload the available rides. Ride requests can be limited to a pickup radius.
+ */
+@Component
+@Log4j2
+public class RideFeedBroadcaster {
+
+    public static final String RESET_EVENT = "RESET";
+    public static final String HEARTBEAT_EVENT = "HEARTBEAT";
+
+    private final int bufferSize;
+    private final int subscriberQueueSize;
+    private final Duration emitterTimeout;
+
+    private final Deque<RideEvent> buffer = new ArrayDeque<>();
+    private final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher;
+
+    private long headSequence;
+
+    public RideFeedBroadcaster(@Value("${rides.feed.buffer-size:10000}") int bufferSize,
+                               @Value("${rides.feed.subscriber-queue-size:1000}") int subscriberQueueSize,
+                               @Value("${rides.feed.emitter-timeout:30m}") Duration emitterTimeout,
+                               @Value("${rides.feed.dispatcher-threads:4}") int dispatcherThreads) {
+        this.bufferSize = bufferSize;
+        this.subscriberQueueSize = subscriberQueueSize;
+        this.emitterTimeout = emitterTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ride-feed-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void publish(RideEvent event) {
+        if (event.getSequence() == null || event.getSequence() <= headSequence) {
+            return;
+        }
+        headSequence = event.getSequence();
+
+        buffer.addLast(event);
+        if (buffer.size() > bufferSize) {
+            buffer.removeFirst();
+        }
+
+        Frame frame = Frame.of(event);
+        for (Subscription subscription : subscribers) {
+            if (subscription.filter().matches(event)) {
+                subscription.offer(frame);
+            }
+        }
+    }
+
+    /**
+     * Drops the replay buffer after the upstream stream was reset and tells every
+     * connected driver to reload the available rides.
+     */
+    public synchronized void reset(long sequence) {
+        buffer.clear();
+        headSequence = sequence;
+
+        Frame frame = Frame.reset(sequence);
+        for (Subscription subscription : subscribers) {
+            subscription.offer(frame);
+        }
+    }
+
+    /**
+     * Opens a feed that first replays the buffered events after {@code cursor}
+     * and then delivers new events as they arrive.
+     */
+    public SseEmitter subscribe(Long driverId, Long cursor, FeedFilter filter) {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscription subscription = new Subscription(emitter, driverId, filter);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+
+        synchronized (this) {
+            List<Frame> replay = new ArrayList<>();
+            if (cursor != null && cursor != headSequence) {
+                long oldest = buffer.isEmpty() ? headSequence + 1 : buffer.peekFirst().getSequence();
+                if (cursor > headSequence || cursor < oldest - 1) {
+                    replay.add(Frame.reset(headSequence));
+                } else {
+                    for (RideEvent event : buffer) {
+                        if (event.getSequence() > cursor && filter.matches(event)) {
+                            replay.add(Frame.of(event));
+                        }
+                    }
+                }
+            }
+
+            subscribers.add(subscription);
+            replay.forEach(subscription::offer);
+        }
+
+        log.debug("Driver connected to ride feed from cursor {} ({} subscribers)", cursor, subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Sends an event to the feeds of one driver only. Such events are not part of
+     * the sequenced stream and are not replayed.
+     */
+    public void sendToDriver(Long driverId, String name, Object data) {
+        Frame frame = new Frame(null, name, data);
+        for (Subscription subscription : subscribers) {
+            if (driverId.equals(subscription.driverId())) {
+                subscription.offer(frame);
+            }
+        }
+    }
+
+    public synchronized long getHeadSequence() {
+        return headSequence;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedDelayString = "${rides.feed.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        Frame frame = Frame.heartbeat(getHeadSequence());
+        for (Subscription subscription : subscribers) {
+            subscription.offer(frame);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscription::close);
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Optional pickup area a driver is interested in. Assignments are always delivered
+     * so drivers can drop rides that were taken by someone else.
+     */
+    public record FeedFilter(Double latitude, Double longitude, double radiusKm) {
+
+        public static final FeedFilter ALL = new FeedFilter(null, null, 0);
+
+        boolean matches(RideEvent event) {
+            if (event.getType() != RideEventType.RIDE_REQUESTED || latitude == null || longitude == null) {
+                return true;
+            }
+            RideResponse ride = event.getRide();
+            if (ride == null || !GeoUtils.isValid(ride.getPickupLatitude(), ride.getPickupLongitude())) {
+                return false;
+            }
+            return GeoUtils.distanceKm(latitude, longitude, ride.getPickupLatitude(), ride.getPickupLongitude()) <= radiusKm;
+        }
+    }
+
+    private record Frame(String id, String name, Object data) {
+
+        static Frame of(RideEvent event) {
+            return new Frame(String.valueOf(event.getSequence()), event.getType().name(), event);
+        }
+
+        static Frame reset(long headSequence) {
+            return new Frame(String.valueOf(headSequence), RESET_EVENT, Map.of("sequence", headSequence));
+        }
+
+        static Frame heartbeat(long headSequence) {
+            return new Frame(null, HEARTBEAT_EVENT, Map.of("sequence", headSequence));
+        }
+    }
+
+    private final class Subscription {
+
+        private final SseEmitter emitter;
+        private final Long driverId;
+        private final FeedFilter filter;
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(subscriberQueueSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscription(SseEmitter emitter, Long driverId, FeedFilter filter) {
+            this.emitter = emitter;
+            this.driverId = driverId;
+            this.filter = filter;
+        }
+
+        Long driverId() {
+            return driverId;
+        }
+
+        FeedFilter filter() {
+            return filter;
+        }
+
+        void offer(Frame frame) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                log.warn("Disconnecting slow ride feed subscriber after {} queued events", subscriberQueueSize);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Frame frame;
+                while (!closed && (frame = queue.poll()) != null) {
+                    SseEmitter.SseEventBuilder builder = SseEmitter.event().name(frame.name());
+                    if (frame.id() != null) {
+                        builder.id(frame.id());
+                    }
+                    emitter.send(builder.data(frame.data(), MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Ride feed subscriber disconnected: {}", e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+                if (!closed && !queue.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // Already completed by the container
+            }
+        }
+    }
+}
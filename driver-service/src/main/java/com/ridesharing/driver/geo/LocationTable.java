@@ -0,0 +1,271 @@
+package com.ridesharing.driver.geo;
+
+import java.util.List;
+
+/**
+ * Latest position per id in primitive arrays, split into independently locked stripes.
+ * <p>
+ * Each stripe is an open-addressing hash table (linear probing) over parallel arrays, so an
+ * update is a hash, a short probe and four array stores under the stripe's lock, with no
+ * allocation. Ids must be positive; {@code 0} marks a free slot. Every entry also remembers
+ * the timestamp of its last snapshot so changed positions can be collected for persistence.
+ */
+public class LocationTable {
+
+    private static final long EMPTY = 0L;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int stripeBits;
+
+    public LocationTable(int stripeCount, int initialCapacity) {
+        if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a positive power of two");
+        }
+        this.stripeMask = stripeCount - 1;
+        this.stripeBits = Integer.numberOfTrailingZeros(stripeCount);
+        int perStripe = Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity / stripeCount)) * 2);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Stores the position unless a newer one is already known for the id.
+     * Returns whether the position was stored.
+     */
+    public boolean put(long id, double latitude, double longitude, long timestamp) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Id must be positive");
+        }
+        long hash = mix(id);
+        Stripe stripe = stripes[(int) hash & stripeMask];
+        synchronized (stripe) {
+            return stripe.put(id, hash >>> stripeBits, latitude, longitude, timestamp);
+        }
+    }
+
+    public Location get(long id) {
+        if (id <= 0) {
+            return null;
+        }
+        long hash = mix(id);
+        Stripe stripe = stripes[(int) hash & stripeMask];
+        synchronized (stripe) {
+            int slot = stripe.find(id, hash >>> stripeBits);
+            return slot < 0 ? null : stripe.location(slot);
+        }
+    }
+
+    /**
+     * Removes the entry if its position is not newer than {@code timestamp}.
+     */
+    public boolean removeIfNotNewer(long id, long timestamp) {
+        if (id <= 0) {
+            return false;
+        }
+        long hash = mix(id);
+        Stripe stripe = stripes[(int) hash & stripeMask];
+        synchronized (stripe) {
+            int slot = stripe.find(id, hash >>> stripeBits);
+            if (slot < 0 || stripe.timestamps[slot] > timestamp) {
+                return false;
+            }
+            stripe.delete(slot);
+            return true;
+        }
+    }
+
+    /**
+     * Adds every position that changed since its last snapshot to {@code changed} and marks
+     * it as snapshotted. Entries last updated before {@code expireBefore} are dropped.
+     * Returns the number of dropped entries.
+     */
+    public int collectChanged(List<Location> changed, long expireBefore) {
+        int expired = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                expired += stripe.collectChanged(changed, expireBefore);
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Finalizer of MurmurHash3: spreads sequential ids over stripes and slots.
+     */
+    private static long mix(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public record Location(long id, double latitude, double longitude, long timestamp) {
+    }
+
+    private static final class Stripe {
+
+        private long[] ids;
+        private long[] hashes;
+        private double[] latitudes;
+        private double[] longitudes;
+        private long[] timestamps;
+        private long[] snapshotTimestamps;
+        private int size;
+
+        Stripe(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            ids = new long[capacity];
+            hashes = new long[capacity];
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+            timestamps = new long[capacity];
+            snapshotTimestamps = new long[capacity];
+        }
+
+        int find(long id, long hash) {
+            int mask = ids.length - 1;
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                long current = ids[slot];
+                if (current == id) {
+                    return slot;
+                }
+                if (current == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        boolean put(long id, long hash, double latitude, double longitude, long timestamp) {
+            int mask = ids.length - 1;
+            int slot = (int) hash & mask;
+            while (ids[slot] != EMPTY && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (ids[slot] == id) {
+                if (timestamps[slot] > timestamp) {
+                    return false;
+                }
+            } else {
+                if ((size + 1) * 2 > ids.length) {
+                    grow();
+                    return put(id, hash, latitude, longitude, timestamp);
+                }
+                ids[slot] = id;
+                hashes[slot] = hash;
+                snapshotTimestamps[slot] = Long.MIN_VALUE;
+                size++;
+            }
+            latitudes[slot] = latitude;
+            longitudes[slot] = longitude;
+            timestamps[slot] = timestamp;
+            return true;
+        }
+
+        Location location(int slot) {
+            return new Location(ids[slot], latitudes[slot], longitudes[slot], timestamps[slot]);
+        }
+
+        int collectChanged(List<Location> changed, long expireBefore) {
+            int expired = 0;
+            int slot = 0;
+            while (slot < ids.length) {
+                if (ids[slot] == EMPTY) {
+                    slot++;
+                } else if (timestamps[slot] < expireBefore) {
+                    // Deleting shifts a later entry into this slot, so look at it again
+                    delete(slot);
+                    expired++;
+                } else {
+                    if (timestamps[slot] > snapshotTimestamps[slot]) {
+                        changed.add(location(slot));
+                        snapshotTimestamps[slot] = timestamps[slot];
+                    }
+                    slot++;
+                }
+            }
+            return expired;
+        }
+
+        /**
+         * Backward-shift deletion: moves later entries of the probe run into the hole so
+         * lookups never need tombstones.
+         */
+        void delete(int slot) {
+            int mask = ids.length - 1;
+            int hole = slot;
+            int next = hole;
+            while (true) {
+                next = (next + 1) & mask;
+                if (ids[next] == EMPTY) {
+                    break;
+                }
+                int home = (int) hashes[next] & mask;
+                boolean stays = hole <= next
+                        ? hole < home && home <= next
+                        : hole < home || home <= next;
+                if (stays) {
+                    continue;
+                }
+                move(next, hole);
+                hole = next;
+            }
+            ids[hole] = EMPTY;
+            size--;
+        }
+
+        private void move(int from, int to) {
+            ids[to] = ids[from];
+            hashes[to] = hashes[from];
+            latitudes[to] = latitudes[from];
+            longitudes[to] = longitudes[from];
+            timestamps[to] = timestamps[from];
+            snapshotTimestamps[to] = snapshotTimestamps[from];
+        }
+
+        private void grow() {
+            long[] oldIds = ids;
+            long[] oldHashes = hashes;
+            double[] oldLatitudes = latitudes;
+            double[] oldLongitudes = longitudes;
+            long[] oldTimestamps = timestamps;
+            long[] oldSnapshotTimestamps = snapshotTimestamps;
+
+            allocate(oldIds.length * 2);
+            int mask = ids.length - 1;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] == EMPTY) {
+                    continue;
+                }
+                int slot = (int) oldHashes[i] & mask;
+                while (ids[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                ids[slot] = oldIds[i];
+                hashes[slot] = oldHashes[i];
+                latitudes[slot] = oldLatitudes[i];
+                longitudes[slot] = oldLongitudes[i];
+                timestamps[slot] = oldTimestamps[i];
+                snapshotTimestamps[slot] = oldSnapshotTimestamps[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.ridesharing.driver.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent in-memory grid index of located values keyed by id.
+ * <p>
+ * Points are bucketed into fixed-size latitude/longitude cells. Updates only lock the
+ * cells they touch, and radius / k-nearest queries only visit the cells that can hold
+ * a match, so query cost depends on local density rather than on the total size.
+ */
+public class SpatialIndex<V> {
+
+    private final double cellSizeDegrees;
+
+    private final Map<Long, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final Map<Long, Map<Long, Entry<V>>> cells = new ConcurrentHashMap<>();
+
+    public SpatialIndex(double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 10) {
+            throw new IllegalArgumentException("Cell size must be in (0, 10] degrees");
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+    }
+
+    /**
+     * Inserts the value or moves it to its new position.
+     */
+    public void put(long id, double latitude, double longitude, V value) {
+        Entry<V> entry = new Entry<>(id, latitude, longitude, cellKey(latitude, longitude), value);
+        entries.compute(id, (key, previous) -> {
+            if (previous != null && previous.cellKey() != entry.cellKey()) {
+                removeFromCell(previous);
+            }
+            cells.compute(entry.cellKey(), (cellKey, cell) -> {
+                Map<Long, Entry<V>> members = cell != null ? cell : new ConcurrentHashMap<>();
+                members.put(id, entry);
+                return members;
+            });
+            return entry;
+        });
+    }
+
+    public V remove(long id) {
+        Entry<V> removed = entries.remove(id);
+        if (removed == null) {
+            return null;
+        }
+        removeFromCell(removed);
+        return removed.value();
+    }
+
+    public V get(long id) {
+        Entry<V> entry = entries.get(id);
+        return entry != null ? entry.value() : null;
+    }
+
+    public boolean contains(long id) {
+        return entries.containsKey(id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.keySet().forEach(this::remove);
+    }
+
+    /**
+     * All values within {@code radiusKm} of the given point, nearest first.
+     */
+    public List<Neighbor<V>> within(double latitude, double longitude, double radiusKm) {
+        return nearest(latitude, longitude, radiusKm, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Up to {@code limit} values within {@code radiusKm} of the given point, nearest first.
+     * Cells are scanned in rings around the query cell and the scan stops as soon as no
+     * unvisited ring can contain a closer match.
+     */
+    public List<Neighbor<V>> nearest(double latitude, double longitude, double radiusKm, int limit) {
+        if (limit <= 0 || radiusKm < 0 || entries.isEmpty()) {
+            return List.of();
+        }
+
+        PriorityQueue<Neighbor<V>> best = new PriorityQueue<>(
+                Comparator.comparingDouble((Neighbor<V> n) -> n.distanceKm()).reversed());
+
+        double minCellKm = minCellSizeKm(latitude, radiusKm);
+        int maxRing = (int) Math.ceil(radiusKm / minCellKm);
+        long centerRow = row(latitude);
+        long centerColumn = column(longitude);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            scanRing(centerRow, centerColumn, ring, latitude, longitude, radiusKm, limit, best);
+
+            // Any cell in ring r + 1 is at least r cell sizes away from the query point
+            if (best.size() >= limit && best.peek().distanceKm() <= ring * minCellKm) {
+                break;
+            }
+        }
+
+        List<Neighbor<V>> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return result;
+    }
+
+    private void scanRing(long centerRow, long centerColumn, int ring, double latitude, double longitude,
+                          double radiusKm, int limit, PriorityQueue<Neighbor<V>> best) {
+        for (long row = centerRow - ring; row <= centerRow + ring; row++) {
+            boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+            long step = edgeRow || ring == 0 ? 1 : 2L * ring;
+            for (long column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                Map<Long, Entry<V>> cell = cells.get(pack(row, column));
+                if (cell == null) {
+                    continue;
+                }
+                for (Entry<V> entry : cell.values()) {
+                    double distance = GeoUtils.distanceKm(latitude, longitude, entry.latitude(), entry.longitude());
+                    if (distance > radiusKm) {
+                        continue;
+                    }
+                    if (best.size() < limit) {
+                        best.add(new Neighbor<>(entry.id(), entry.value(), distance));
+                    } else if (distance < best.peek().distanceKm()) {
+                        best.poll();
+                        best.add(new Neighbor<>(entry.id(), entry.value(), distance));
+                    }
+                }
+            }
+        }
+    }
+
+    private void removeFromCell(Entry<V> entry) {
+        cells.computeIfPresent(entry.cellKey(), (cellKey, members) -> {
+            members.remove(entry.id(), entry);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private double minCellSizeKm(double latitude, double radiusKm) {
+        double heightKm = cellSizeDegrees * GeoUtils.KM_PER_DEGREE_LATITUDE;
+        double farthestLatitude = Math.min(89.0, Math.abs(latitude)
+                + radiusKm / GeoUtils.KM_PER_DEGREE_LATITUDE + cellSizeDegrees);
+        double widthKm = heightKm * Math.cos(Math.toRadians(farthestLatitude));
+        return Math.max(0.001, Math.min(heightKm, widthKm));
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return pack(row(latitude), column(longitude));
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor(latitude / cellSizeDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor(longitude / cellSizeDegrees);
+    }
+
+    private static long pack(long row, long column) {
+        return (row << 32) ^ (column & 0xFFFFFFFFL);
+    }
+
+    private record Entry<V>(long id, double latitude, double longitude, long cellKey, V value) {
+    }
+
+    public record Neighbor<V>(long id, V value, double distanceKm) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.ridesharing.driver.repository;
+
+import com.ridesharing.driver.entity.DriverLocationSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DriverLocationSnapshotRepository extends JpaRepository<DriverLocationSnapshot, Long> {
+}
@@ -1,9 +1,19 @@
 package com.ridesharing.driver.repository;
 
+import com.ridesharing.driver.dto.DriverRideTotal;
+import com.ridesharing.driver.dto.DriverStatus;
 import com.ridesharing.driver.entity.DriverProfile;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +21,45 @@ public interface DriverProfileRepository extends JpaRepository<DriverProfile, Lo
     
     Optional<DriverProfile> findByUserId(Long userId);
     
+    @Query("SELECT p.userId FROM DriverProfile p WHERE p.status = :status")
+    List<Long> findUserIdsByStatus(@Param("status") DriverStatus status);
+    
+    boolean existsByUserId(Long userId);
+    
+    /**
+     * Sets the status of several drivers at once, skipping rows that already have it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DriverProfile p SET p.status = :status, p.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE p.userId IN :userIds AND p.status <> :status")
+    int updateStatus(@Param("userIds") Collection<Long> userIds, @Param("status") DriverStatus status);
+    
+    /**
+     * Counts one more ride for the driver in a single statement, so concurrent
+     * assignments cannot overwrite each other's increments.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DriverProfile p SET p.totalRides = COALESCE(p.totalRides, 0) + 1, p.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE p.userId = :userId")
+    int incrementTotalRides(@Param("userId") Long userId);
+    
+    /**
+     * Ride totals of the drivers after {@code afterUserId}, in user id order, for reconciliation.
+     */
+    @Query("SELECT new com.ridesharing.driver.dto.DriverRideTotal(p.userId, p.totalRides) FROM DriverProfile p "
+            + "WHERE p.userId > :afterUserId ORDER BY p.userId")
+    List<DriverRideTotal> findRideTotalsAfter(@Param("afterUserId") Long afterUserId, Limit limit);
+    
+    /**
+     * Corrects a ride total, only if it still has the value it was compared with.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DriverProfile p SET p.totalRides = :totalRides "
+            + "WHERE p.userId = :userId AND COALESCE(p.totalRides, 0) = :expected")
+    int correctTotalRides(@Param("userId") Long userId,
+                          @Param("expected") int expected,
+                          @Param("totalRides") int totalRides);
 }
@@ -1,5 +1,6 @@
 package com.ridesharing.driver.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,12 @@ public class SecurityConfig {
             .csrf(AbstractHttpConfigurer::disable)
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Health and metrics for the platform's probes and Prometheus
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                // Internal endpoints (location ingest, nearby driver supply) - not exposed through the Gateway
+                .requestMatchers("/api/driver/internal/**").permitAll()
+                // Async dispatches complete already authorized streaming responses (ride feed)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
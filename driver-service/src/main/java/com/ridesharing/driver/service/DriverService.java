@@ -1,62 +1,143 @@
 package com.ridesharing.driver.service;
 
 import com.ridesharing.driver.client.CustomerServiceClient;
+import com.ridesharing.driver.client.HedgedReads;
+import com.ridesharing.driver.dispatch.DispatchEngine;
+import com.ridesharing.driver.dispatch.DriverLocationService;
+import com.ridesharing.driver.dispatch.DriverPresenceService;
+import com.ridesharing.driver.dispatch.OnlineDriverRegistry;
 import com.ridesharing.driver.dto.*;
 import com.ridesharing.driver.entity.DriverProfile;
+import com.ridesharing.driver.event.RideFeedBroadcaster;
 import com.ridesharing.driver.exception.BadRequestException;
-import com.ridesharing.driver.exception.ResourceNotFoundException;
+import com.ridesharing.driver.exception.ConflictException;
+import com.ridesharing.driver.geo.GeoUtils;
 import com.ridesharing.driver.repository.DriverProfileRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "driver.service", description = "Driver service calls", histogram = true)
 @Log4j2
 public class DriverService {
     
 
     private final DriverProfileRepository driverProfileRepository;
     private final CustomerServiceClient customerServiceClient;  // Feign Client
+    private final HedgedReads hedgedReads;
+    private final PendingRideIndex pendingRideIndex;
+    private final RideFeedBroadcaster rideFeedBroadcaster;
+    private final DispatchEngine dispatchEngine;
+    private final DriverLocationService driverLocationService;
+    private final DriverPresenceService driverPresenceService;
+    private final OnlineDriverRegistry onlineDriverRegistry;
+    
+    private static final double MAX_SEARCH_RADIUS_KM = 50.0;
+    private static final int MAX_AVAILABLE_RIDES = 100;
     
 
     
-    @Transactional
     public void updateStatus(Long userId, DriverStatus status) {
-        log.info("Updating status for driver ID: {} to {}", userId, status);
+        log.debug("Updating status for driver ID: {} to {}", userId, status);
+        driverPresenceService.setStatus(userId, status);
+    }
+    
+    /**
+     * Keeps an online driver online and returns their status; a driver who was taken
+     * offline after missing heartbeats has to go online again.
+     */
+    public DriverStatus heartbeat(Long userId) {
+        return driverPresenceService.heartbeat(userId) ? DriverStatus.ONLINE : DriverStatus.OFFLINE;
+    }
+    
+    public void updateLocation(Long userId, Double latitude, Double longitude) {
+        driverLocationService.report(userId, latitude, longitude);
+        driverPresenceService.heartbeat(userId);
+    }
+    
+    public List<RideResponse> getPendingRides(Long userId, Double latitude, Double longitude, double radiusKm, int limit) {
+        if (latitude == null && longitude == null) {
+            log.debug("Fetching all pending rides from local index");
+            return pendingRideIndex.all();
+        }
         
-        DriverProfile profile = driverProfileRepository.findByUserId(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Driver profile not found"));
+        if (!GeoUtils.isValid(latitude, longitude)) {
+            throw new BadRequestException("Valid latitude and longitude must be provided together");
+        }
+        
+        if (radiusKm <= 0 || radiusKm > MAX_SEARCH_RADIUS_KM) {
+            throw new BadRequestException("Radius must be between 0 and " + MAX_SEARCH_RADIUS_KM + " km");
+        }
+        
+        if (limit <= 0 || limit > MAX_AVAILABLE_RIDES) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_AVAILABLE_RIDES);
+        }
         
-        profile.setStatus(status);
-       driverProfileRepository.save(profile);
+        driverLocationService.report(userId, latitude, longitude);
+        log.debug("Fetching up to {} pending rides within {} km of ({}, {})", limit, radiusKm, latitude, longitude);
+        return pendingRideIndex.nearest(latitude, longitude, radiusKm, limit);
     }
     
-
+    public List<NearbyDriverResponse> getNearbyDrivers(Double latitude, Double longitude, double radiusKm, int limit) {
+        if (!GeoUtils.isValid(latitude, longitude)) {
+            throw new BadRequestException("Valid latitude and longitude must be provided together");
+        }
+        
+        if (radiusKm <= 0 || radiusKm > MAX_SEARCH_RADIUS_KM) {
+            throw new BadRequestException("Radius must be between 0 and " + MAX_SEARCH_RADIUS_KM + " km");
+        }
+        
+        if (limit <= 0 || limit > MAX_AVAILABLE_RIDES) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_AVAILABLE_RIDES);
+        }
+        
+        return onlineDriverRegistry.nearby(latitude, longitude, radiusKm, limit).stream()
+                .map(neighbor -> NearbyDriverResponse.builder()
+                        .driverId(neighbor.id())
+                        .latitude(neighbor.value().latitude())
+                        .longitude(neighbor.value().longitude())
+                        .distanceKm(neighbor.distanceKm())
+                        .reportedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(neighbor.value().reportedAt()), ZoneId.systemDefault()))
+                        .build())
+                .toList();
+    }
     
-    @Transactional(readOnly = true)
-    public List<RideResponse> getPendingRides() {
-        log.info("Fetching pending rides via Feign Client");
+    public SseEmitter openRideFeed(Long userId, Long cursor, Double latitude, Double longitude, double radiusKm) {
+        if (latitude == null && longitude == null) {
+            log.debug("Opening unfiltered ride feed from cursor {}", cursor);
+            return rideFeedBroadcaster.subscribe(userId, cursor, RideFeedBroadcaster.FeedFilter.ALL);
+        }
         
-        ApiResponse<List<RideResponse>> response = customerServiceClient.getPendingRides();
+        if (!GeoUtils.isValid(latitude, longitude)) {
+            throw new BadRequestException("Valid latitude and longitude must be provided together");
+        }
         
-        if (response != null && response.isSuccess() && response.getData() != null) {
-            log.info("Found {} pending rides", response.getData().size());
-            return response.getData();
+        if (radiusKm <= 0 || radiusKm > MAX_SEARCH_RADIUS_KM) {
+            throw new BadRequestException("Radius must be between 0 and " + MAX_SEARCH_RADIUS_KM + " km");
         }
         
-        log.warn("No pending rides found or service error");
-        return Collections.emptyList();
+        driverLocationService.report(userId, latitude, longitude);
+        log.debug("Opening ride feed within {} km of ({}, {}) from cursor {}", radiusKm, latitude, longitude, cursor);
+        return rideFeedBroadcaster.subscribe(userId, cursor, new RideFeedBroadcaster.FeedFilter(latitude, longitude, radiusKm));
     }
     @Transactional
     public DriverProfileResponse getOrCreateProfile(Long userId, String username, String email, String phone) {
-        log.info("Getting or creating profile for driver: {} (ID: {})", username, userId);
+        log.debug("Getting or creating profile for driver: {} (ID: {})", username, userId);
 
         DriverProfile profile = driverProfileRepository.findByUserId(userId)
                 .orElseGet(() -> {
@@ -71,45 +152,76 @@ public class DriverService {
                             .build();
                     return driverProfileRepository.save(newProfile);
                 });
+        driverPresenceService.registerDriver(userId);
 
         return mapToResponse(profile);
     }
 
 
-    @Transactional
+    /**
+     * Not transactional: no connection is held during the call to Customer Service, and the
+     * ride total is incremented in its own statement once the ride is ours. A missed
+     * increment is repaired by the {@link TotalRidesReconciler}. Retries of the assignment
+     * carry the same idempotency key, so one that timed out after Customer Service committed
+     * it is answered with the assigned ride. A repeated accept of a ride the driver already
+     * has is answered with the ride too, without counting it or starting the trip again.
+     */
     public RideResponse assignRide(Long userId, String username, Long rideId) {
-        log.info("Driver {} assigning ride ID: {} via Feign Client", username, rideId);
+        log.debug("Driver {} assigning ride ID: {} via Feign Client", username, rideId);
         
-        DriverProfile profile = driverProfileRepository.findByUserId(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Driver profile not found"));
-        
-        if (profile.getStatus() != DriverStatus.ONLINE) {
+        // Only drivers with a profile can go online
+        if (!driverPresenceService.isOnline(userId)) {
             throw new BadRequestException("You must be online to accept rides");
         }
         
-        ApiResponse<RideResponse> response = customerServiceClient.assignDriver(rideId, userId, username);
+        dispatchEngine.checkCanAccept(userId, rideId);
+        
+        ApiResponse<RideAssignmentResponse> response;
+        try {
+            response = customerServiceClient.assignDriver(rideId, userId, username, UUID.randomUUID().toString());
+        } catch (ConflictException e) {
+            // Another driver won the ride; stop offering it from this instance
+            pendingRideIndex.remove(rideId);
+            throw e;
+        }
         
         if (response != null && response.isSuccess() && response.getData() != null) {
-            profile.setTotalRides(profile.getTotalRides() + 1);
-            driverProfileRepository.save(profile);
+            pendingRideIndex.remove(rideId);
+            if (response.getData().isAlreadyAssigned()) {
+                log.debug("Ride {} was already assigned to driver {}", rideId, username);
+                return response.getData().getRide();
+            }
+            dispatchEngine.onAccepted(userId, rideId);
+            if (driverProfileRepository.incrementTotalRides(userId) == 0) {
+                log.warn("No driver profile to count ride {} for driver {}", rideId, userId);
+            }
             log.info("Successfully assigned ride {} to driver {}", rideId, username);
-            return response.getData();
+            return response.getData().getRide();
         }
         
         throw new BadRequestException(response != null ? response.getMessage() : "Failed to assign ride");
     }
     
+    public Optional<RideOfferResponse> getCurrentOffer(Long userId) {
+        return dispatchEngine.currentOffer(userId);
+    }
+    
+    public void declineRide(Long userId, String username, Long rideId) {
+        log.debug("Driver {} declining offered ride ID: {}", username, rideId);
+        dispatchEngine.decline(userId, rideId);
+    }
+    
     @Transactional(readOnly = true)
-    public List<RideResponse> getRideHistory(Long userId) {
-        log.info("Fetching ride history for driver ID: {} via Feign Client", userId);
+    public RidePage getRideHistory(Long userId, String cursor, Integer size) {
+        log.debug("Fetching ride history for driver ID: {} via Feign Client", userId);
         
-        ApiResponse<List<RideResponse>> response = customerServiceClient.getDriverRideHistory(userId);
+        ApiResponse<RidePage> response = hedgedReads.read(() -> customerServiceClient.getDriverRideHistory(userId, cursor, size));
         
         if (response != null && response.isSuccess() && response.getData() != null) {
             return response.getData();
         }
         
-        return Collections.emptyList();
+        return RidePage.builder().rides(Collections.emptyList()).build();
     }
 
     private DriverProfileResponse mapToResponse(DriverProfile profile) {
@@ -119,7 +231,7 @@ public class DriverService {
                 .username(profile.getUsername())
                 .email(profile.getEmail())
                 .phone(profile.getPhone())
-                .status(profile.getStatus())
+                .status(driverPresenceService.getStatus(profile.getUserId()))
                 .vehicleModel(profile.getVehicleModel())
                 .vehiclePlate(profile.getVehiclePlate())
                 .totalRides(profile.getTotalRides())
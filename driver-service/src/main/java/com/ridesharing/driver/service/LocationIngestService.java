@@ -0,0 +1,88 @@
+package com.ridesharing.driver.service;
+
+import com.ridesharing.driver.dispatch.DriverLocationService;
+import com.ridesharing.driver.dispatch.DriverPresenceService;
+import com.ridesharing.driver.dto.LocationBatchResult;
+import com.ridesharing.driver.exception.BadRequestException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes batches of driver location pings and applies them to the {@link DriverLocationService}.
+ * An accepted ping also counts as a presence heartbeat.
+ * <p>
+ * A batch is binary and big-endian: a one-byte format version ({@code 1}) and the batch's base
+ * time in epoch milliseconds (8 bytes), followed by 20-byte pings made of the driver id
+ * (8 bytes), latitude and longitude in microdegrees (4 bytes each) and the ping time as an
+ * offset in milliseconds from the base time (4 bytes).
+ */
+@Service
+public class LocationIngestService {
+
+    public static final byte FORMAT_VERSION = 1;
+    public static final int HEADER_BYTES = 9;
+    public static final int PING_BYTES = 20;
+
+    private static final double MICRODEGREES = 1_000_000.0;
+
+    private final DriverLocationService driverLocationService;
+    private final DriverPresenceService driverPresenceService;
+    private final int maxPings;
+    private final DistributionSummary batchSize;
+
+    public LocationIngestService(DriverLocationService driverLocationService,
+                                 DriverPresenceService driverPresenceService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${locations.ingest.max-pings-per-batch:50000}") int maxPings) {
+        this.driverLocationService = driverLocationService;
+        this.driverPresenceService = driverPresenceService;
+        this.maxPings = maxPings;
+        this.batchSize = DistributionSummary.builder("driver.location.batch.size")
+                .description("Pings per location batch")
+                .register(meterRegistry);
+    }
+
+    public LocationBatchResult ingest(InputStream body) throws IOException {
+        int maxBytes = HEADER_BYTES + maxPings * PING_BYTES;
+        byte[] bytes = body.readNBytes(maxBytes + 1);
+        if (bytes.length > maxBytes) {
+            throw new BadRequestException("Batch exceeds " + maxPings + " pings");
+        }
+        return ingest(ByteBuffer.wrap(bytes));
+    }
+
+    private LocationBatchResult ingest(ByteBuffer batch) {
+        if (batch.remaining() < HEADER_BYTES || (batch.remaining() - HEADER_BYTES) % PING_BYTES != 0) {
+            throw new BadRequestException("Malformed location batch");
+        }
+        byte version = batch.get();
+        if (version != FORMAT_VERSION) {
+            throw new BadRequestException("Unsupported location batch version " + version);
+        }
+        long baseTime = batch.getLong();
+
+        int received = batch.remaining() / PING_BYTES;
+        int accepted = 0;
+        for (int i = 0; i < received; i++) {
+            long driverId = batch.getLong();
+            double latitude = batch.getInt() / MICRODEGREES;
+            double longitude = batch.getInt() / MICRODEGREES;
+            long reportedAt = baseTime + batch.getInt();
+            if (driverLocationService.report(driverId, latitude, longitude, reportedAt)) {
+                driverPresenceService.heartbeat(driverId);
+                accepted++;
+            }
+        }
+        batchSize.record(received);
+        return LocationBatchResult.builder()
+                .received(received)
+                .accepted(accepted)
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.ridesharing.driver.service;
+
+import com.ridesharing.driver.dispatch.DriverLocationService;
+import com.ridesharing.driver.entity.DriverLocationSnapshot;
+import com.ridesharing.driver.geo.LocationTable;
+import com.ridesharing.driver.repository.DriverLocationSnapshotRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists driver positions downsampled to at most one row per driver per interval.
+ * <p>
+ * Pings only update the in-memory location table; on each interval the positions that
+ * changed since the previous one are written in batches on a dedicated thread. A failed
+ * write loses that interval's snapshots, the live positions are unaffected.
+ */
+@Component
+@Log4j2
+public class LocationSnapshotWriter {
+
+    private final DriverLocationService driverLocationService;
+    private final DriverLocationSnapshotRepository snapshotRepository;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int batchSize;
+
+    private final Counter written;
+    private final Counter failed;
+    private final Timer flushTimer;
+
+    private ScheduledExecutorService scheduler;
+
+    public LocationSnapshotWriter(DriverLocationService driverLocationService,
+                                  DriverLocationSnapshotRepository snapshotRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${locations.snapshot.enabled:true}") boolean enabled,
+                                  @Value("${locations.snapshot.interval:30s}") Duration interval,
+                                  @Value("${locations.snapshot.batch-size:1000}") int batchSize) {
+        this.driverLocationService = driverLocationService;
+        this.snapshotRepository = snapshotRepository;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.batchSize = batchSize;
+
+        this.written = Counter.builder("driver.location.snapshots")
+                .description("Driver location snapshots persisted")
+                .tag("result", "written")
+                .register(meterRegistry);
+        this.failed = Counter.builder("driver.location.snapshots")
+                .description("Driver location snapshots persisted")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("driver.location.snapshot.flush")
+                .description("Time to persist one interval of driver location snapshots")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Driver location snapshots are disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "location-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (scheduler.awaitTermination(interval.toMillis(), TimeUnit.MILLISECONDS)) {
+                flushQuietly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flushTimer.record(this::flush);
+        } catch (RuntimeException e) {
+            log.warn("Driver location snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    private void flush() {
+        List<LocationTable.Location> changed = new ArrayList<>();
+        driverLocationService.collectChanged(changed);
+
+        for (int from = 0; from < changed.size(); from += batchSize) {
+            List<LocationTable.Location> chunk = changed.subList(from, Math.min(from + batchSize, changed.size()));
+            List<DriverLocationSnapshot> snapshots = new ArrayList<>(chunk.size());
+            for (LocationTable.Location location : chunk) {
+                snapshots.add(DriverLocationSnapshot.builder()
+                        .driverId(location.id())
+                        .latitude(location.latitude())
+                        .longitude(location.longitude())
+                        .recordedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(location.timestamp()), ZoneId.systemDefault()))
+                        .build());
+            }
+            try {
+                snapshotRepository.saveAll(snapshots);
+                written.increment(snapshots.size());
+            } catch (RuntimeException e) {
+                failed.increment(snapshots.size());
+                log.warn("Could not persist {} driver location snapshots: {}", snapshots.size(), e.getMessage());
+            }
+        }
+        if (!changed.isEmpty()) {
+            log.debug("Persisted snapshots of {} driver locations", changed.size());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.ridesharing.driver.service;
+
+import com.ridesharing.driver.dto.RideResponse;
+import com.ridesharing.driver.dto.RideStatus;
+import com.ridesharing.driver.geo.GeoUtils;
+import com.ridesharing.driver.geo.SpatialIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory index of pending rides.
+ * Rides are kept in request order, and rides with pickup coordinates are also held in a
+ * spatial grid so nearest-ride lookups only touch the cells around the driver.
+ */
+@Component
+public class PendingRideIndex {
+
+    private final ConcurrentNavigableMap<Long, RideResponse> rides = new ConcurrentSkipListMap<>();
+
+    private final SpatialIndex<RideResponse> spatialIndex;
+
+    public PendingRideIndex(@Value("${rides.index.cell-size-degrees:0.01}") double cellSizeDegrees) {
+        this.spatialIndex = new SpatialIndex<>(cellSizeDegrees);
+    }
+
+    public void upsert(RideResponse ride) {
+        if (ride.getStatus() != null && ride.getStatus() != RideStatus.PENDING) {
+            remove(ride.getId());
+            return;
+        }
+
+        rides.put(ride.getId(), ride);
+        if (GeoUtils.isValid(ride.getPickupLatitude(), ride.getPickupLongitude())) {
+            spatialIndex.put(ride.getId(), ride.getPickupLatitude(), ride.getPickupLongitude(), ride);
+        } else {
+            spatialIndex.remove(ride.getId());
+        }
+    }
+
+    public void remove(Long rideId) {
+        rides.remove(rideId);
+        spatialIndex.remove(rideId);
+    }
+
+    /**
+     * Replaces the indexed rides with the given snapshot of pending rides.
+     */
+    public void replaceAll(Collection<RideResponse> snapshot) {
+        Set<Long> snapshotIds = new HashSet<>();
+        for (RideResponse ride : snapshot) {
+            snapshotIds.add(ride.getId());
+            upsert(ride);
+        }
+        for (Long rideId : rides.keySet()) {
+            if (!snapshotIds.contains(rideId)) {
+                remove(rideId);
+            }
+        }
+    }
+
+    public boolean contains(Long rideId) {
+        return rides.containsKey(rideId);
+    }
+
+    /**
+     * All pending rides, oldest request first.
+     */
+    public List<RideResponse> all() {
+        return new ArrayList<>(rides.values());
+    }
+
+    /**
+     * Up to {@code limit} pending rides whose pickup is within {@code radiusKm}, nearest first.
+     */
+    public List<RideResponse> nearest(double latitude, double longitude, double radiusKm, int limit) {
+        return spatialIndex.nearest(latitude, longitude, radiusKm, limit).stream()
+                .map(SpatialIndex.Neighbor::value)
+                .toList();
+    }
+
+    public int size() {
+        return rides.size();
+    }
+}
@@ -0,0 +1,55 @@
+package com.ridesharing.driver.service;
+
+import com.ridesharing.driver.client.CustomerServiceClient;
+import com.ridesharing.driver.client.HedgedReads;
+import com.ridesharing.driver.dto.ApiResponse;
+import com.ridesharing.driver.dto.PendingRidesSnapshot;
+import com.ridesharing.driver.dto.RideEvent;
+import com.ridesharing.driver.dto.RideEventType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link PendingRideIndex} in line with the pending rides in Customer Service.
+ * <p>
+ * The index is bootstrapped from a snapshot that carries the ride event sequence it
+ * reflects, and then follows the ride event stream from that sequence.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class PendingRideSync {
+
+    private final CustomerServiceClient customerServiceClient;
+    private final HedgedReads hedgedReads;
+    private final PendingRideIndex pendingRideIndex;
+
+    /**
+     * Replaces the index with a fresh snapshot and returns the sequence to resume the stream from.
+     */
+    public long loadSnapshot() {
+        ApiResponse<PendingRidesSnapshot> response = hedgedReads.read(customerServiceClient::getPendingRidesSnapshot);
+        if (response == null || !response.isSuccess() || response.getData() == null
+                || response.getData().getRides() == null || response.getData().getSequence() == null) {
+            throw new IllegalStateException("Could not load pending rides snapshot: "
+                    + (response != null ? response.getMessage() : "no response"));
+        }
+
+        PendingRidesSnapshot snapshot = response.getData();
+        pendingRideIndex.replaceAll(snapshot.getRides());
+        log.info("Pending ride index loaded with {} rides at sequence {}", snapshot.getRides().size(), snapshot.getSequence());
+        return snapshot.getSequence();
+    }
+
+    public void apply(RideEvent event) {
+        if (event.getRide() == null) {
+            return;
+        }
+        if (event.getType() == RideEventType.RIDE_REQUESTED) {
+            pendingRideIndex.upsert(event.getRide());
+        } else {
+            pendingRideIndex.remove(event.getRide().getId());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.ridesharing.driver.service;
+
+import com.ridesharing.driver.client.CustomerServiceClient;
+import com.ridesharing.driver.client.HedgedReads;
+import com.ridesharing.driver.dto.ApiResponse;
+import com.ridesharing.driver.dto.DriverRideCounts;
+import com.ridesharing.driver.dto.DriverRideTotal;
+import com.ridesharing.driver.repository.DriverProfileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically compares each driver's ride total with the rides Customer Service has
+ * assigned to them and corrects the totals that drifted, e.g. after an increment failed.
+ * <p>
+ * Totals are read before the counts, and a correction only applies if the total has not
+ * changed since it was read, so an increment committed during the run is not overwritten.
+ * A ride is counted by Customer Service before Driver Service increments the total, so
+ * Customer Service reports drivers assigned a ride in the last few minutes as unsettled
+ * rather than have their pending increment counted twice; those drivers are checked by a
+ * later run. Drivers without any ride are counted as {@code 0}, so a total that should have
+ * stayed at zero is corrected too.
+ * <p>
+ * Runs page through remote calls, so they get their own thread instead of delaying the
+ * other scheduled tasks.
+ */
+@Component
+@Log4j2
+public class TotalRidesReconciler {
+
+    private final DriverProfileRepository driverProfileRepository;
+    private final CustomerServiceClient customerServiceClient;
+    private final HedgedReads hedgedReads;
+    private final boolean enabled;
+    private final long initialDelayMillis;
+    private final long intervalMillis;
+    private final int pageSize;
+
+    private final Counter corrected;
+
+    private ScheduledExecutorService scheduler;
+
+    public TotalRidesReconciler(DriverProfileRepository driverProfileRepository,
+                                CustomerServiceClient customerServiceClient,
+                                HedgedReads hedgedReads,
+                                MeterRegistry meterRegistry,
+                                @Value("${rides.total-reconciliation.enabled:true}") boolean enabled,
+                                @Value("${rides.total-reconciliation.initial-delay-ms:300000}") long initialDelayMillis,
+                                @Value("${rides.total-reconciliation.interval-ms:3600000}") long intervalMillis,
+                                @Value("${rides.total-reconciliation.page-size:500}") int pageSize) {
+        this.driverProfileRepository = driverProfileRepository;
+        this.customerServiceClient = customerServiceClient;
+        this.hedgedReads = hedgedReads;
+        this.enabled = enabled;
+        this.initialDelayMillis = initialDelayMillis;
+        this.intervalMillis = intervalMillis;
+        this.pageSize = pageSize;
+        this.corrected = Counter.builder("driver.total.rides.corrections")
+                .description("Driver ride totals corrected by reconciliation")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Ride total reconciliation is disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ride-total-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly, initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Ride total reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    public void reconcile() {
+        long afterUserId = 0;
+        int corrections = 0;
+        while (true) {
+            List<DriverRideTotal> totals = driverProfileRepository.findRideTotalsAfter(afterUserId, Limit.of(pageSize));
+            if (totals.isEmpty()) {
+                break;
+            }
+            List<Long> driverIds = totals.stream().map(DriverRideTotal::getUserId).toList();
+            ApiResponse<DriverRideCounts> response = hedgedReads.read(() -> customerServiceClient.getDriverRideCounts(driverIds));
+            if (response == null || !response.isSuccess() || response.getData() == null
+                    || response.getData().getCounts() == null) {
+                log.warn("Ride total reconciliation stopped: {}", response != null ? response.getMessage() : "no response");
+                return;
+            }
+
+            Map<Long, Long> counts = response.getData().getCounts();
+            Set<Long> unsettled = response.getData().getUnsettled() != null
+                    ? new HashSet<>(response.getData().getUnsettled())
+                    : Set.of();
+            for (DriverRideTotal total : totals) {
+                if (unsettled.contains(total.getUserId())) {
+                    continue;
+                }
+                Long count = counts.get(total.getUserId());
+                if (count == null) {
+                    log.warn("Ride total reconciliation got no count for driver {}", total.getUserId());
+                    continue;
+                }
+                int stored = total.getTotalRides() != null ? total.getTotalRides() : 0;
+                if (count == stored) {
+                    continue;
+                }
+                if (driverProfileRepository.correctTotalRides(total.getUserId(), stored, Math.toIntExact(count)) > 0) {
+                    log.info("Corrected ride total of driver {} from {} to {}", total.getUserId(), stored, count);
+                    corrections++;
+                    corrected.increment();
+                }
+            }
+            afterUserId = driverIds.get(driverIds.size() - 1);
+        }
+        log.debug("Ride total reconciliation finished with {} corrections", corrections);
+    }
+}
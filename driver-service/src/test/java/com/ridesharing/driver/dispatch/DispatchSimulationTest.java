@@ -0,0 +1,160 @@
+package com.ridesharing.driver.dispatch;
+
+import com.ridesharing.driver.dto.RideResponse;
+import com.ridesharing.driver.dto.RideStatus;
+import com.ridesharing.driver.event.RideFeedBroadcaster;
+import com.ridesharing.driver.service.PendingRideIndex;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Simulates a city of online drivers receiving a steady stream of ride requests, with every
+ * offer accepted at once and drivers going offline and back online when their trip is over.
+ * Reports the matching throughput and the p99 time from request to offer; run with
+ * {@code -Pbenchmark} to see the numbers.
+ */
+class DispatchSimulationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DispatchSimulationTest.class);
+
+    private static final int DRIVERS = 5_000;
+    private static final int RIDES_PER_WINDOW = 250;
+    private static final int WINDOWS = 40;
+    private static final int TRIP_WINDOWS = 5;
+    private static final int MAX_DRAIN_WINDOWS = 20;
+
+    // Roughly a 50 km square city split into several dispatch partitions
+    private static final double MIN_LATITUDE = 40.50;
+    private static final double MIN_LONGITUDE = -74.20;
+    private static final double SPAN_DEGREES = 0.45;
+
+    private final Random random = new Random(42);
+    private final Set<Long> online = ConcurrentHashMap.newKeySet();
+
+    private SimpleMeterRegistry meterRegistry;
+    private PendingRideIndex pendingRideIndex;
+    private DriverLocationService driverLocationService;
+    private DispatchEngine dispatchEngine;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        OnlineDriverRegistry onlineDriverRegistry = new OnlineDriverRegistry(meterRegistry, 0.01, Duration.ofMinutes(2));
+        driverLocationService = new DriverLocationService(onlineDriverRegistry, meterRegistry,
+                Duration.ofMinutes(2), 16, 8192, Duration.ofSeconds(5));
+        pendingRideIndex = new PendingRideIndex(0.01);
+
+        DriverPresenceService driverPresenceService = mock(DriverPresenceService.class);
+        when(driverPresenceService.getOnlineDrivers()).thenReturn(online);
+
+        dispatchEngine = new DispatchEngine(pendingRideIndex, driverPresenceService, driverLocationService,
+                mock(RideFeedBroadcaster.class), meterRegistry, true, Duration.ofSeconds(15), Duration.ofHours(3),
+                5, 5, 0.15, 0.01, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatchEngine.shutdown();
+    }
+
+    @Test
+    void matchesEveryRideAndNeverOffersToDriversOnATrip() {
+        long now = System.currentTimeMillis();
+        for (long driverId = 1; driverId <= DRIVERS; driverId++) {
+            driverLocationService.report(driverId, randomLatitude(), randomLongitude(), now);
+            online.add(driverId);
+        }
+
+        // Drivers on a trip and the window their trip ends in
+        Map<Long, Integer> tripEnds = new HashMap<>();
+        long nextRideId = 1;
+        long matched = 0;
+        long windowNanos = 0;
+
+        int window = 0;
+        while (window < WINDOWS || (pendingRideIndex.size() > 0 && window < WINDOWS + MAX_DRAIN_WINDOWS)) {
+            if (window < WINDOWS) {
+                for (int i = 0; i < RIDES_PER_WINDOW; i++) {
+                    pendingRideIndex.upsert(RideResponse.builder()
+                            .id(nextRideId++)
+                            .pickupLatitude(randomLatitude())
+                            .pickupLongitude(randomLongitude())
+                            .status(RideStatus.PENDING)
+                            .requestedAt(LocalDateTime.now())
+                            .build());
+                }
+            }
+
+            long start = System.nanoTime();
+            dispatchEngine.runWindow();
+            windowNanos += System.nanoTime() - start;
+
+            for (Long driverId : online) {
+                Long rideId = dispatchEngine.currentOffer(driverId)
+                        .map(offer -> offer.getRide().getId())
+                        .orElse(null);
+                if (rideId == null) {
+                    continue;
+                }
+                assertThat(tripEnds).as("driver %d is on a trip", driverId).doesNotContainKey(driverId);
+                pendingRideIndex.remove(rideId);
+                dispatchEngine.onAccepted(driverId, rideId);
+                tripEnds.put(driverId, window + TRIP_WINDOWS);
+                matched++;
+            }
+
+            int current = window;
+            tripEnds.entrySet().removeIf(trip -> {
+                if (trip.getValue() > current) {
+                    return false;
+                }
+                // Off the trip: the driver goes offline and back online at the drop-off
+                dispatchEngine.onDriverOffline(new DriverOfflineEvent(trip.getKey()));
+                driverLocationService.report(trip.getKey(), randomLatitude(), randomLongitude(), System.currentTimeMillis());
+                return true;
+            });
+            window++;
+        }
+
+        HistogramSnapshot latency = meterRegistry.get("dispatch.match.latency").timer().takeSnapshot();
+        double p99Millis = 0;
+        for (ValueAtPercentile percentile : latency.percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                p99Millis = percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        double matchesPerSecond = matched / (windowNanos / 1e9);
+        log.info("Dispatch simulation: {} drivers, {} rides in {} windows, {} matches/s, p99 match latency {} ms",
+                DRIVERS, nextRideId - 1, window, Math.round(matchesPerSecond), String.format("%.1f", p99Millis));
+
+        assertThat(pendingRideIndex.size()).isZero();
+        assertThat(matched).isEqualTo(nextRideId - 1);
+    }
+
+    private double randomLatitude() {
+        return MIN_LATITUDE + random.nextDouble() * SPAN_DEGREES;
+    }
+
+    private double randomLongitude() {
+        return MIN_LONGITUDE + random.nextDouble() * SPAN_DEGREES;
+    }
+}
@@ -0,0 +1,119 @@
+package com.ridesharing.driver.dispatch;
+
+import com.ridesharing.driver.geo.SpatialIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures nearby online driver queries as the number of online drivers grows, with the
+ * drivers spread over the same city so density grows with the count. Two queries are timed
+ * at random points: a radius query returning every driver within 1 km, and the nearest
+ * drivers query the internal endpoint answers by default (20 drivers within 5 km). Reports
+ * latency percentiles and the mean result size at each count; run with {@code -Pbenchmark}.
+ * Counts can be changed with {@code -Dbenchmark.registry.driver-counts=1000,100000}.
+ */
+@Tag("benchmark")
+class OnlineDriverRegistryBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OnlineDriverRegistryBenchmarkTest.class);
+
+    private static final int[] DRIVER_COUNTS = Arrays.stream(
+                    System.getProperty("benchmark.registry.driver-counts", "1000,10000,100000,1000000").split(","))
+            .mapToInt(count -> Integer.parseInt(count.trim()))
+            .toArray();
+    private static final int WARMUP_QUERIES = 5_000;
+    private static final int QUERIES = 10_000;
+
+    private static final double RADIUS_KM = 1.0;
+    private static final double NEAREST_RADIUS_KM = 5.0;
+    private static final int NEAREST_LIMIT = 20;
+
+    // Roughly a 50 km square city
+    private static final double MIN_LATITUDE = 40.50;
+    private static final double MIN_LONGITUDE = -74.20;
+    private static final double SPAN_DEGREES = 0.45;
+
+    private final Random random = new Random(42);
+
+    // Consumed results, so the queries cannot be optimized away
+    private long sink;
+
+    @Test
+    void reportsQueryLatencyAgainstDriverCount() {
+        log.info("Online driver registry benchmark, {} queries per point, radius {} km, nearest {} within {} km",
+                QUERIES, RADIUS_KM, NEAREST_LIMIT, NEAREST_RADIUS_KM);
+        for (int drivers : DRIVER_COUNTS) {
+            OnlineDriverRegistry registry = registry(drivers);
+
+            Result radius = measure(registry, RADIUS_KM, Integer.MAX_VALUE);
+            Result nearest = measure(registry, NEAREST_RADIUS_KM, NEAREST_LIMIT);
+
+            log.info("  {} drivers: radius p50 {} us, p99 {} us, {} drivers per result; "
+                            + "nearest p50 {} us, p99 {} us, {} drivers per result",
+                    drivers, radius.micros(0.50), radius.micros(0.99), radius.meanResultSize(),
+                    nearest.micros(0.50), nearest.micros(0.99), nearest.meanResultSize());
+
+            assertThat(registry.size()).isEqualTo(drivers);
+        }
+    }
+
+    private OnlineDriverRegistry registry(int drivers) {
+        // A TTL longer than the run, so no driver turns stale while being measured
+        OnlineDriverRegistry registry = new OnlineDriverRegistry(new SimpleMeterRegistry(), 0.01, Duration.ofHours(1));
+        long now = System.currentTimeMillis();
+        for (long driverId = 1; driverId <= drivers; driverId++) {
+            registry.goOnline(driverId, new DriverLocationService.DriverPosition(latitude(), longitude(), now));
+        }
+        return registry;
+    }
+
+    private Result measure(OnlineDriverRegistry registry, double radiusKm, int limit) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            sink += registry.nearby(latitude(), longitude(), radiusKm, limit).size();
+        }
+        long[] latencies = new long[QUERIES];
+        long results = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            double latitude = latitude();
+            double longitude = longitude();
+            long start = System.nanoTime();
+            List<SpatialIndex.Neighbor<DriverLocationService.DriverPosition>> neighbors =
+                    registry.nearby(latitude, longitude, radiusKm, limit);
+            latencies[i] = System.nanoTime() - start;
+            results += neighbors.size();
+        }
+        sink += results;
+        Arrays.sort(latencies);
+        return new Result(latencies, (double) results / QUERIES);
+    }
+
+    private double latitude() {
+        return MIN_LATITUDE + random.nextDouble() * SPAN_DEGREES;
+    }
+
+    private double longitude() {
+        return MIN_LONGITUDE + random.nextDouble() * SPAN_DEGREES;
+    }
+
+    private record Result(long[] sortedLatencies, double meanResults) {
+
+        String micros(double percentile) {
+            int index = Math.max(0, (int) Math.ceil(percentile * sortedLatencies.length) - 1);
+            return String.format("%.1f", sortedLatencies[index] / 1e3);
+        }
+
+        String meanResultSize() {
+            return String.format("%.1f", meanResults);
+        }
+    }
+}
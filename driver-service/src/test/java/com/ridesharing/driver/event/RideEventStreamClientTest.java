@@ -0,0 +1,129 @@
+package com.ridesharing.driver.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ridesharing.driver.dto.RideEvent;
+import com.ridesharing.driver.service.PendingRideIndex;
+import com.ridesharing.driver.service.PendingRideSync;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Follows a scripted Customer Service event stream: the first connection ends after two
+ * events, the second is reset upstream and the third stays open.
+ */
+class RideEventStreamClientTest {
+
+    private final BlockingQueue<String> lastEventIds = new LinkedBlockingQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private HttpServer customerService;
+    private PendingRideSync pendingRideSync;
+    private RideFeedBroadcaster rideFeedBroadcaster;
+    private RideEventStreamClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        customerService = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        customerService.setExecutor(Executors.newCachedThreadPool());
+        customerService.createContext("/api/customer/internal/rides/events", this::stream);
+        customerService.start();
+
+        pendingRideSync = mock(PendingRideSync.class);
+        when(pendingRideSync.loadSnapshot()).thenReturn(10L, 50L);
+        rideFeedBroadcaster = mock(RideFeedBroadcaster.class);
+
+        client = new RideEventStreamClient(pendingRideSync, mock(PendingRideIndex.class), rideFeedBroadcaster,
+                new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(),
+                "http://localhost:" + customerService.getAddress().getPort(),
+                Duration.ofSeconds(2), Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.stop();
+        finished.countDown();
+        customerService.stop(0);
+    }
+
+    @Test
+    void resumesFromTheLastAppliedEventAndReloadsAfterAReset() throws Exception {
+        client.start();
+
+        assertThat(lastEventIds.poll(5, TimeUnit.SECONDS)).isEqualTo("10");
+        assertThat(lastEventIds.poll(5, TimeUnit.SECONDS)).isEqualTo("12");
+        assertThat(lastEventIds.poll(5, TimeUnit.SECONDS)).isEqualTo("50");
+
+        ArgumentCaptor<RideEvent> applied = ArgumentCaptor.forClass(RideEvent.class);
+        verify(pendingRideSync, timeout(5000).times(3)).apply(applied.capture());
+        assertThat(applied.getAllValues()).extracting(RideEvent::getSequence).containsExactly(11L, 12L, 51L);
+        assertThat(client.getCursor()).isEqualTo(51L);
+
+        verify(pendingRideSync, times(2)).loadSnapshot();
+        InOrder order = inOrder(rideFeedBroadcaster);
+        order.verify(rideFeedBroadcaster).reset(10);
+        order.verify(rideFeedBroadcaster, times(2)).publish(any());
+        order.verify(rideFeedBroadcaster).reset(50);
+        order.verify(rideFeedBroadcaster).publish(any());
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        lastEventIds.add(String.valueOf(exchange.getRequestHeaders().getFirst("Last-Event-ID")));
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            switch (connections.incrementAndGet()) {
+                case 1 -> {
+                    // Already applied events are skipped
+                    write(body, event(10) + event(11) + ": keep-alive\n\n" + event(12));
+                }
+                case 2 -> write(body, event(12) + "id:60\nevent:RESET\ndata:{\"sequence\":60}\n\n" + event(13));
+                default -> {
+                    write(body, event(50) + event(51));
+                    finished.await(10, TimeUnit.SECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // The client went away
+        }
+    }
+
+    private static String event(long sequence) {
+        return "event:RIDE_REQUESTED\nid:" + sequence + "\ndata:{\"sequence\":" + sequence
+                + ",\"type\":\"RIDE_REQUESTED\",\"ride\":{\"id\":" + sequence + "}}\n\n";
+    }
+
+    private static void write(OutputStream body, String frames) throws IOException {
+        body.write(frames.getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+}
@@ -0,0 +1,256 @@
+package com.ridesharing.driver.event;
+
+import com.ridesharing.driver.controller.DriverController;
+import com.ridesharing.driver.dto.RideEvent;
+import com.ridesharing.driver.dto.RideEventType;
+import com.ridesharing.driver.dto.RideResponse;
+import com.ridesharing.driver.security.UserPrincipal;
+import com.ridesharing.driver.service.DriverService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Drives the ride feed through {@link DriverController} so resuming is exercised from the
+ * {@code Last-Event-ID} header down to the frames written to the response.
+ */
+class RideFeedBroadcasterTest {
+
+    private static final int BUFFER_SIZE = 3;
+
+    private RideFeedBroadcaster broadcaster;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new RideFeedBroadcaster(BUFFER_SIZE, 100, Duration.ofMinutes(1), 2);
+
+        DriverService driverService = mock(DriverService.class);
+        when(driverService.openRideFeed(anyLong(), any(), any(), any(), anyDouble())).thenAnswer(invocation -> {
+            Double latitude = invocation.getArgument(2);
+            RideFeedBroadcaster.FeedFilter filter = latitude == null
+                    ? RideFeedBroadcaster.FeedFilter.ALL
+                    : new RideFeedBroadcaster.FeedFilter(latitude, invocation.getArgument(3), invocation.getArgument(4));
+            return broadcaster.subscribe(invocation.getArgument(0), invocation.getArgument(1), filter);
+        });
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new DriverController(driverService))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+
+        UserPrincipal driver = new UserPrincipal(1L, "driver", "DRIVER");
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(driver, null, driver.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void replaysBufferedEventsAfterTheLastEventIdAndThenDeliversNewOnes() throws Exception {
+        publishRequested(1, 2, 3);
+
+        MvcResult feed = open(get("/api/driver/rides/feed").header("Last-Event-ID", "1"));
+        assertThat(ids(awaitFrames(feed, 2))).containsExactly("2", "3");
+
+        publishRequested(4);
+        List<Frame> frames = awaitFrames(feed, 3);
+        assertThat(ids(frames)).containsExactly("2", "3", "4");
+        assertThat(frames.get(2).event()).isEqualTo("RIDE_REQUESTED");
+        assertThat(frames.get(2).data()).contains("\"sequence\":4");
+    }
+
+    @Test
+    void fallsBackToTheCursorParameterWithoutLastEventId() throws Exception {
+        publishRequested(1, 2, 3);
+
+        MvcResult feed = open(get("/api/driver/rides/feed").param("cursor", "2"));
+
+        assertThat(ids(awaitFrames(feed, 1))).containsExactly("3");
+    }
+
+    @Test
+    void replaysNothingForACursorAtTheHead() throws Exception {
+        publishRequested(1, 2, 3);
+
+        MvcResult feed = open(get("/api/driver/rides/feed").header("Last-Event-ID", "3"));
+        publishRequested(4);
+
+        assertThat(ids(awaitFrames(feed, 1))).containsExactly("4");
+    }
+
+    @Test
+    void replaysTheWholeBufferForACursorJustBeforeIt() throws Exception {
+        publishRequested(1, 2, 3, 4, 5);
+
+        MvcResult feed = open(get("/api/driver/rides/feed").header("Last-Event-ID", "2"));
+
+        assertThat(ids(awaitFrames(feed, 3))).containsExactly("3", "4", "5");
+    }
+
+    @Test
+    void resetsACursorOlderThanTheBuffer() throws Exception {
+        publishRequested(1, 2, 3, 4, 5);
+
+        MvcResult feed = open(get("/api/driver/rides/feed").header("Last-Event-ID", "1"));
+
+        List<Frame> frames = awaitFrames(feed, 1);
+        assertThat(frames).containsExactly(new Frame("5", RideFeedBroadcaster.RESET_EVENT, "{\"sequence\":5}"));
+    }
+
+    @Test
+    void resetsACursorAheadOfTheHead() throws Exception {
+        publishRequested(1, 2);
+
+        MvcResult feed = open(get("/api/driver/rides/feed").header("Last-Event-ID", "9"));
+
+        assertThat(awaitFrames(feed, 1))
+                .containsExactly(new Frame("2", RideFeedBroadcaster.RESET_EVENT, "{\"sequence\":2}"));
+    }
+
+    @Test
+    void upstreamResetIsBroadcastAndInvalidatesOlderCursors() throws Exception {
+        publishRequested(1, 2);
+        MvcResult connected = open(get("/api/driver/rides/feed").header("Last-Event-ID", "2"));
+
+        broadcaster.reset(20);
+
+        assertThat(awaitFrames(connected, 1))
+                .containsExactly(new Frame("20", RideFeedBroadcaster.RESET_EVENT, "{\"sequence\":20}"));
+
+        MvcResult resumed = open(get("/api/driver/rides/feed").header("Last-Event-ID", "2"));
+        assertThat(awaitFrames(resumed, 1))
+                .containsExactly(new Frame("20", RideFeedBroadcaster.RESET_EVENT, "{\"sequence\":20}"));
+
+        MvcResult current = open(get("/api/driver/rides/feed").header("Last-Event-ID", "20"));
+        broadcaster.publish(requested(21, 40.7, -74.0));
+        assertThat(ids(awaitFrames(current, 1))).containsExactly("21");
+    }
+
+    @Test
+    void ignoresEventsAtOrBelowTheHead() throws Exception {
+        publishRequested(1, 2);
+        MvcResult feed = open(get("/api/driver/rides/feed").header("Last-Event-ID", "2"));
+
+        publishRequested(2, 1, 3);
+
+        assertThat(ids(awaitFrames(feed, 1))).containsExactly("3");
+    }
+
+    @Test
+    void filtersReplayedAndLiveRequestsByPickupRadiusButKeepsAssignments() throws Exception {
+        broadcaster.publish(requested(1, 40.70, -74.00));
+        broadcaster.publish(requested(2, 41.50, -74.00));
+        broadcaster.publish(assigned(3));
+
+        MvcResult feed = open(get("/api/driver/rides/feed")
+                .header("Last-Event-ID", "0")
+                .param("lat", "40.71")
+                .param("lng", "-74.00")
+                .param("radiusKm", "5"));
+        assertThat(ids(awaitFrames(feed, 2))).containsExactly("1", "3");
+
+        broadcaster.publish(requested(4, 41.50, -74.00));
+        broadcaster.publish(requested(5, 40.72, -74.01));
+        assertThat(ids(awaitFrames(feed, 3))).containsExactly("1", "3", "5");
+    }
+
+    private MvcResult open(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private void publishRequested(long... sequences) {
+        for (long sequence : sequences) {
+            broadcaster.publish(requested(sequence, 40.7, -74.0));
+        }
+    }
+
+    private static RideEvent requested(long sequence, double latitude, double longitude) {
+        return RideEvent.builder()
+                .sequence(sequence)
+                .type(RideEventType.RIDE_REQUESTED)
+                .ride(RideResponse.builder().id(sequence).pickupLatitude(latitude).pickupLongitude(longitude).build())
+                .build();
+    }
+
+    private static RideEvent assigned(long sequence) {
+        return RideEvent.builder()
+                .sequence(sequence)
+                .type(RideEventType.RIDE_ASSIGNED)
+                .ride(RideResponse.builder().id(sequence).driverId(2L).build())
+                .build();
+    }
+
+    /**
+     * Waits until the feed has written at least {@code count} events, ignoring heartbeats,
+     * and gives any unexpected extra event a moment to show up as well.
+     */
+    private static List<Frame> awaitFrames(MvcResult feed, int count) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        List<Frame> frames = frames(feed);
+        while (frames.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            frames = frames(feed);
+        }
+        Thread.sleep(50);
+        return frames(feed);
+    }
+
+    private static List<Frame> frames(MvcResult feed) throws Exception {
+        List<Frame> frames = new ArrayList<>();
+        for (String block : feed.getResponse().getContentAsString().split("\n\n")) {
+            String id = null;
+            String event = null;
+            String data = null;
+            for (String line : block.split("\n")) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String value = line.substring(colon + 1);
+                switch (line.substring(0, colon)) {
+                    case "id" -> id = value;
+                    case "event" -> event = value;
+                    case "data" -> data = value;
+                    default -> {
+                        // Not written by the broadcaster
+                    }
+                }
+            }
+            if (event != null && !RideFeedBroadcaster.HEARTBEAT_EVENT.equals(event)) {
+                frames.add(new Frame(id, event, data));
+            }
+        }
+        return frames;
+    }
+
+    private static List<String> ids(List<Frame> frames) {
+        return frames.stream().map(Frame::id).toList();
+    }
+
+    private record Frame(String id, String event, String data) {
+    }
+}
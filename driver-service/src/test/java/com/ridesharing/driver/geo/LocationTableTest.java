@@ -0,0 +1,255 @@
+package com.ridesharing.driver.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocationTableTest {
+
+    @Test
+    void storesAndReturnsTheLatestPosition() {
+        LocationTable table = new LocationTable(4, 64);
+
+        assertThat(table.put(7, 40.7, -74.0, 1_000)).isTrue();
+        assertThat(table.put(7, 40.8, -74.1, 2_000)).isTrue();
+
+        assertThat(table.get(7)).isEqualTo(new LocationTable.Location(7, 40.8, -74.1, 2_000));
+        assertThat(table.get(8)).isNull();
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAnOlderPositionAndAcceptsOneAsOld() {
+        LocationTable table = new LocationTable(4, 64);
+        table.put(7, 40.7, -74.0, 2_000);
+
+        assertThat(table.put(7, 41.0, -75.0, 1_000)).isFalse();
+        assertThat(table.get(7).latitude()).isEqualTo(40.7);
+
+        assertThat(table.put(7, 41.0, -75.0, 2_000)).isTrue();
+        assertThat(table.get(7).latitude()).isEqualTo(41.0);
+    }
+
+    @Test
+    void rejectsIdsThatAreNotPositive() {
+        LocationTable table = new LocationTable(4, 64);
+
+        assertThatThrownBy(() -> table.put(0, 40.7, -74.0, 1_000)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> table.put(-1, 40.7, -74.0, 1_000)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(table.get(0)).isNull();
+        assertThat(table.removeIfNotNewer(-1, Long.MAX_VALUE)).isFalse();
+    }
+
+    @Test
+    void rejectsAStripeCountThatIsNotAPowerOfTwo() {
+        assertThatThrownBy(() -> new LocationTable(3, 64)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LocationTable(0, 64)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void removesOnlyPositionsThatAreNotNewer() {
+        LocationTable table = new LocationTable(4, 64);
+        table.put(7, 40.7, -74.0, 2_000);
+
+        assertThat(table.removeIfNotNewer(7, 1_999)).isFalse();
+        assertThat(table.get(7)).isNotNull();
+
+        assertThat(table.removeIfNotNewer(7, 2_000)).isTrue();
+        assertThat(table.get(7)).isNull();
+        assertThat(table.size()).isZero();
+        assertThat(table.removeIfNotNewer(7, 2_000)).isFalse();
+    }
+
+    @Test
+    void growsWithoutLosingEntries() {
+        LocationTable table = new LocationTable(4, 16);
+        for (long id = 1; id <= 10_000; id++) {
+            table.put(id, id / 1_000.0, -id / 1_000.0, id);
+        }
+
+        assertThat(table.size()).isEqualTo(10_000);
+        for (long id = 1; id <= 10_000; id++) {
+            assertThat(table.get(id)).isEqualTo(new LocationTable.Location(id, id / 1_000.0, -id / 1_000.0, id));
+        }
+    }
+
+    @Test
+    void collectsEachChangeOnceAndExpiresOldPositions() {
+        LocationTable table = new LocationTable(2, 16);
+        table.put(1, 40.1, -74.1, 1_000);
+        table.put(2, 40.2, -74.2, 5_000);
+        table.put(3, 40.3, -74.3, 5_000);
+
+        List<LocationTable.Location> changed = new ArrayList<>();
+        assertThat(table.collectChanged(changed, 2_000)).isEqualTo(1);
+        assertThat(changed).extracting(LocationTable.Location::id).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(table.get(1)).isNull();
+        assertThat(table.size()).isEqualTo(2);
+
+        changed.clear();
+        table.collectChanged(changed, 2_000);
+        assertThat(changed).isEmpty();
+
+        table.put(3, 40.4, -74.4, 6_000);
+        table.collectChanged(changed, 2_000);
+        assertThat(changed).containsExactly(new LocationTable.Location(3, 40.4, -74.4, 6_000));
+    }
+
+    @Test
+    void expiringAtTheEndOfTheArrayShiftsWrappedEntriesBack() {
+        // One stripe of 16 slots: three ids homed in the last slot wrap around to slots 0 and 1,
+        // and an id homed in slot 0 is pushed to slot 2
+        int capacity = 16;
+        LocationTable table = new LocationTable(1, capacity / 2);
+        List<Long> lastSlot = idsWithHomeSlot(capacity - 1, capacity, 3);
+        long firstSlot = idsWithHomeSlot(0, capacity, 1).get(0);
+
+        table.put(lastSlot.get(0), 40.0, -74.0, 1_000);
+        table.put(lastSlot.get(1), 40.1, -74.1, 5_000);
+        table.put(lastSlot.get(2), 40.2, -74.2, 5_000);
+        table.put(firstSlot, 40.3, -74.3, 5_000);
+
+        List<LocationTable.Location> changed = new ArrayList<>();
+        assertThat(table.collectChanged(changed, 2_000)).isEqualTo(1);
+
+        assertThat(changed).extracting(LocationTable.Location::id)
+                .containsExactlyInAnyOrder(lastSlot.get(1), lastSlot.get(2), firstSlot);
+        assertThat(table.get(lastSlot.get(0))).isNull();
+        assertThat(table.get(lastSlot.get(1)).latitude()).isEqualTo(40.1);
+        assertThat(table.get(lastSlot.get(2)).latitude()).isEqualTo(40.2);
+        assertThat(table.get(firstSlot).latitude()).isEqualTo(40.3);
+        assertThat(table.size()).isEqualTo(3);
+
+        changed.clear();
+        table.collectChanged(changed, 2_000);
+        assertThat(changed).isEmpty();
+    }
+
+    @Test
+    void removingBeforeAWrappedRunKeepsEntriesThatAreStillReachable() {
+        // Slots 14, 15, 0 and 1 hold ids homed in 14, 15, 15 and 0; removing the first must
+        // leave the id homed in 15 at slot 0, where a probe from its home still finds it
+        int capacity = 16;
+        LocationTable table = new LocationTable(1, capacity / 2);
+        long beforeLast = idsWithHomeSlot(capacity - 2, capacity, 1).get(0);
+        List<Long> lastSlot = idsWithHomeSlot(capacity - 1, capacity, 2);
+        long firstSlot = idsWithHomeSlot(0, capacity, 1).get(0);
+
+        table.put(beforeLast, 40.0, -74.0, 1_000);
+        table.put(lastSlot.get(0), 40.1, -74.1, 1_000);
+        table.put(lastSlot.get(1), 40.2, -74.2, 1_000);
+        table.put(firstSlot, 40.3, -74.3, 1_000);
+
+        assertThat(table.removeIfNotNewer(beforeLast, 1_000)).isTrue();
+
+        assertThat(table.get(lastSlot.get(0)).latitude()).isEqualTo(40.1);
+        assertThat(table.get(lastSlot.get(1)).latitude()).isEqualTo(40.2);
+        assertThat(table.get(firstSlot).latitude()).isEqualTo(40.3);
+        assertThat(table.size()).isEqualTo(3);
+    }
+
+    @Test
+    void matchesAMapUnderRandomUpdatesRemovalsAndExpiry() {
+        // Enough ids to make the stripes grow
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            ids.add(id);
+        }
+        assertMatchesMap(new LocationTable(2, 16), ids, new Random(7));
+    }
+
+    @Test
+    void matchesAMapWithProbeRunsWrappingAroundTheArray() {
+        // Seven ids homed in the last three slots and the first one of a single 16-slot stripe,
+        // which never grows, so nearly every removal shifts a run across the end of the array
+        int capacity = 16;
+        List<Long> ids = new ArrayList<>();
+        ids.addAll(idsWithHomeSlot(capacity - 3, capacity, 2));
+        ids.addAll(idsWithHomeSlot(capacity - 2, capacity, 2));
+        ids.addAll(idsWithHomeSlot(capacity - 1, capacity, 2));
+        ids.addAll(idsWithHomeSlot(0, capacity, 1));
+        assertMatchesMap(new LocationTable(1, capacity / 2), ids, new Random(11));
+    }
+
+    private static void assertMatchesMap(LocationTable table, List<Long> ids, Random random) {
+        Map<Long, LocationTable.Location> expected = new HashMap<>();
+        Map<Long, Long> snapshotted = new HashMap<>();
+        long clock = 0;
+
+        for (int i = 0; i < 100_000; i++) {
+            long id = ids.get(random.nextInt(ids.size()));
+            int operation = random.nextInt(100);
+            if (operation < 70) {
+                long timestamp = clock + random.nextInt(50) - 25;
+                double latitude = random.nextDouble();
+                boolean stored = table.put(id, latitude, -latitude, timestamp);
+                LocationTable.Location current = expected.get(id);
+                assertThat(stored).isEqualTo(current == null || current.timestamp() <= timestamp);
+                if (stored) {
+                    expected.put(id, new LocationTable.Location(id, latitude, -latitude, timestamp));
+                }
+            } else if (operation < 90) {
+                long timestamp = clock + random.nextInt(50) - 25;
+                LocationTable.Location current = expected.get(id);
+                boolean removed = table.removeIfNotNewer(id, timestamp);
+                assertThat(removed).isEqualTo(current != null && current.timestamp() <= timestamp);
+                if (removed) {
+                    expected.remove(id);
+                    snapshotted.remove(id);
+                }
+            } else if (operation < 99) {
+                assertThat(table.get(id)).isEqualTo(expected.get(id));
+            } else {
+                long expireBefore = clock - 200;
+                List<LocationTable.Location> changed = new ArrayList<>();
+                int expired = table.collectChanged(changed, expireBefore);
+
+                List<LocationTable.Location> expectedChanged = new ArrayList<>();
+                int expectedExpired = 0;
+                for (LocationTable.Location location : List.copyOf(expected.values())) {
+                    if (location.timestamp() < expireBefore) {
+                        expected.remove(location.id());
+                        snapshotted.remove(location.id());
+                        expectedExpired++;
+                    } else if (location.timestamp() > snapshotted.getOrDefault(location.id(), Long.MIN_VALUE)) {
+                        expectedChanged.add(location);
+                        snapshotted.put(location.id(), location.timestamp());
+                    }
+                }
+                assertThat(expired).isEqualTo(expectedExpired);
+                assertThat(changed).containsExactlyInAnyOrderElementsOf(expectedChanged);
+            }
+            clock += random.nextInt(3);
+            assertThat(table.size()).isEqualTo(expected.size());
+        }
+
+        expected.forEach((id, location) -> assertThat(table.get(id)).isEqualTo(location));
+    }
+
+    /**
+     * Ids whose home slot in a single-stripe table of {@code capacity} slots is {@code slot},
+     * using the same MurmurHash3 finalizer as the table.
+     */
+    private static List<Long> idsWithHomeSlot(int slot, int capacity, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; ids.size() < count; id++) {
+            long h = id;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            if (((int) h & (capacity - 1)) == slot) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,75 @@
+package com.ridesharing.driver.repository;
+
+import com.ridesharing.driver.entity.DriverProfile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "rides.total-reconciliation.enabled=false")
+@Testcontainers(disabledWithoutDocker = true)
+class DriverProfileRepositoryTest {
+
+    private static final int THREADS = 8;
+    private static final int INCREMENTS_PER_THREAD = 25;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withInitScript("init-schema.sql");
+
+    @Autowired
+    private DriverProfileRepository driverProfileRepository;
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        long userId = System.nanoTime();
+        driverProfileRepository.saveAndFlush(DriverProfile.builder()
+                .userId(userId)
+                .username("driver-" + userId)
+                .email(userId + "@example.com")
+                .phone("0000000000")
+                .build());
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    int updated = 0;
+                    for (int j = 0; j < INCREMENTS_PER_THREAD; j++) {
+                        updated += driverProfileRepository.incrementTotalRides(userId);
+                    }
+                    return updated;
+                }));
+            }
+            start.countDown();
+
+            int updated = 0;
+            for (Future<Integer> worker : workers) {
+                updated += worker.get();
+            }
+
+            assertThat(updated).isEqualTo(THREADS * INCREMENTS_PER_THREAD);
+            assertThat(driverProfileRepository.findByUserId(userId)).get()
+                    .extracting(DriverProfile::getTotalRides)
+                    .isEqualTo(THREADS * INCREMENTS_PER_THREAD);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
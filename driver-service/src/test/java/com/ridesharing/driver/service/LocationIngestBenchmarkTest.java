@@ -0,0 +1,236 @@
+package com.ridesharing.driver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ridesharing.driver.dispatch.DriverPresenceService;
+import com.ridesharing.driver.dto.DriverStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures driver location ingest: batches of pings from many online drivers, decoded and
+ * applied to the location table, the online driver registry and presence. The same batches
+ * are first applied in process through {@link LocationIngestService}, which is the ceiling
+ * of the ingest path, then posted to the internal endpoint by concurrent clients while the
+ * snapshot writer persists positions every second. Reports pings per second, batch latency
+ * percentiles and the snapshot rows written; run with {@code -Pbenchmark}. The load can be
+ * changed with {@code -Dbenchmark.ingest.pings}, {@code -Dbenchmark.ingest.batch-size} and
+ * {@code -Dbenchmark.ingest.clients}.
+ */
+@Tag("benchmark")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "rides.total-reconciliation.enabled=false",
+                "locations.snapshot.interval=1s",
+                "logging.level.com.ridesharing=INFO"
+        })
+@Testcontainers(disabledWithoutDocker = true)
+class LocationIngestBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationIngestBenchmarkTest.class);
+
+    private static final int PINGS = Integer.getInteger("benchmark.ingest.pings", 2_000_000);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.ingest.batch-size", 1_000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.ingest.clients", 8);
+    private static final int WARMUP_PINGS = 500_000;
+    private static final int DRIVERS = 50_000;
+    private static final int TEMPLATES = 256;
+    private static final int TARGET_PINGS_PER_SECOND = 100_000;
+
+    // Roughly a 50 km square city
+    private static final double MIN_LATITUDE = 40.50;
+    private static final double MIN_LONGITUDE = -74.20;
+    private static final double SPAN_DEGREES = 0.45;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withInitScript("init-schema.sql");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private LocationIngestService locationIngestService;
+
+    @Autowired
+    private DriverPresenceService driverPresenceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+    private final List<byte[]> templates = new ArrayList<>(TEMPLATES);
+
+    @BeforeEach
+    void putDriversOnline() {
+        for (long driverId = 1; driverId <= DRIVERS; driverId++) {
+            driverPresenceService.registerDriver(driverId);
+            driverPresenceService.setStatus(driverId, DriverStatus.ONLINE);
+        }
+        // Each batch carries the pings of BATCH_SIZE random drivers; the base time is set when it is sent
+        Random random = new Random(42);
+        for (int t = 0; t < TEMPLATES; t++) {
+            ByteBuffer batch = ByteBuffer.allocate(LocationIngestService.HEADER_BYTES
+                    + BATCH_SIZE * LocationIngestService.PING_BYTES);
+            batch.put(LocationIngestService.FORMAT_VERSION).putLong(0);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.putLong(1 + random.nextInt(DRIVERS))
+                        .putInt((int) Math.round((MIN_LATITUDE + random.nextDouble() * SPAN_DEGREES) * 1_000_000))
+                        .putInt((int) Math.round((MIN_LONGITUDE + random.nextDouble() * SPAN_DEGREES) * 1_000_000))
+                        .putInt(0);
+            }
+            templates.add(batch.array());
+        }
+    }
+
+    @AfterEach
+    void stopClients() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void ingestsOneHundredThousandPingsPerSecond() throws Exception {
+        run(this::applyInProcess, WARMUP_PINGS);
+        Result inProcess = run(this::applyInProcess, PINGS);
+
+        double snapshotsBefore = snapshotsWritten();
+        URI uri = URI.create("http://localhost:" + port + "/api/driver/internal/locations");
+        run(body -> post(uri, body), WARMUP_PINGS);
+        Result http = run(body -> post(uri, body), PINGS);
+        double snapshots = snapshotsWritten() - snapshotsBefore;
+
+        log.info("Location ingest benchmark, {} pings in batches of {} from {} clients over {} online drivers",
+                PINGS, BATCH_SIZE, CLIENTS, DRIVERS);
+        report("in process", inProcess);
+        report("HTTP", http);
+        log.info("  snapshot rows written during the HTTP run: {} ({} in the table)",
+                Math.round(snapshots), jdbcTemplate.queryForObject(
+                        "SELECT count(*) FROM driver.driver_location_snapshots", Long.class));
+
+        assertThat(inProcess.accepted() + http.accepted()).isPositive();
+        assertThat(http.failures()).isZero();
+        if (http.pingsPerSecond() < TARGET_PINGS_PER_SECOND) {
+            log.warn("  HTTP ingest is below the target of {} pings/s on this machine", TARGET_PINGS_PER_SECOND);
+        }
+    }
+
+    private int applyInProcess(byte[] body) throws IOException {
+        return locationIngestService.ingest(new ByteArrayInputStream(body)).getAccepted();
+    }
+
+    private int post(URI uri, byte[] body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return -1;
+        }
+        return objectMapper.readTree(response.body()).path("data").path("accepted").asInt();
+    }
+
+    private Result run(Ingest ingest, int pings) throws Exception {
+        int batches = pings / BATCH_SIZE;
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong accepted = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[batches];
+        List<Future<?>> futures = new ArrayList<>(CLIENTS);
+
+        long start = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            futures.add(clients.submit(() -> {
+                for (int i = next.getAndIncrement(); i < batches; i = next.getAndIncrement()) {
+                    byte[] body = templates.get(i % TEMPLATES).clone();
+                    ByteBuffer.wrap(body).putLong(1, System.currentTimeMillis());
+
+                    long batchStart = System.nanoTime();
+                    int result = ingest.apply(body);
+                    latencies[i] = System.nanoTime() - batchStart;
+                    if (result < 0) {
+                        failures.incrementAndGet();
+                    } else {
+                        accepted.addAndGet(result);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result((long) batches * BATCH_SIZE, elapsed, latencies, accepted.get(), failures.get());
+    }
+
+    private double snapshotsWritten() {
+        return meterRegistry.get("driver.location.snapshots").tag("result", "written").counter().count();
+    }
+
+    private static void report(String name, Result result) {
+        log.info("  {}: {} pings/s, batch p50 {} ms, p99 {} ms, {} of {} pings accepted",
+                name, Math.round(result.pingsPerSecond()), result.millis(0.50), result.millis(0.99),
+                result.accepted(), result.pings());
+    }
+
+    @FunctionalInterface
+    private interface Ingest {
+        /**
+         * Returns the accepted pings, or -1 when the batch was rejected.
+         */
+        int apply(byte[] body) throws Exception;
+    }
+
+    private record Result(long pings, long elapsedNanos, long[] sortedLatencies, long accepted, int failures) {
+
+        double pingsPerSecond() {
+            return pings / (elapsedNanos / 1e9);
+        }
+
+        String millis(double percentile) {
+            int index = Math.max(0, (int) Math.ceil(percentile * sortedLatencies.length) - 1);
+            return String.format("%.2f", sortedLatencies[index] / 1e6);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ridesharing.driver.service;
+
+import com.ridesharing.driver.client.CustomerServiceClient;
+import com.ridesharing.driver.client.HedgedReads;
+import com.ridesharing.driver.dto.ApiResponse;
+import com.ridesharing.driver.dto.DriverRideCounts;
+import com.ridesharing.driver.dto.DriverRideTotal;
+import com.ridesharing.driver.repository.DriverProfileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TotalRidesReconcilerTest {
+
+    private DriverProfileRepository driverProfileRepository;
+    private CustomerServiceClient customerServiceClient;
+    private TotalRidesReconciler reconciler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        driverProfileRepository = mock(DriverProfileRepository.class);
+        customerServiceClient = mock(CustomerServiceClient.class);
+        HedgedReads hedgedReads = mock(HedgedReads.class);
+        when(hedgedReads.read(any())).thenAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(0)).get());
+        when(driverProfileRepository.correctTotalRides(anyLong(), anyInt(), anyInt())).thenReturn(1);
+        reconciler = new TotalRidesReconciler(driverProfileRepository, customerServiceClient, hedgedReads,
+                new SimpleMeterRegistry(), false, 0, 1, 500);
+    }
+
+    @Test
+    void correctsDriftedTotalsIncludingDriversWithoutRides() {
+        givenTotals(new DriverRideTotal(1L, 5), new DriverRideTotal(2L, 3), new DriverRideTotal(3L, 4));
+        givenCounts(Map.of(1L, 7L, 2L, 0L, 3L, 4L), List.of());
+
+        reconciler.reconcile();
+
+        verify(driverProfileRepository).correctTotalRides(1L, 5, 7);
+        verify(driverProfileRepository).correctTotalRides(2L, 3, 0);
+        verify(driverProfileRepository, never()).correctTotalRides(eq(3L), anyInt(), anyInt());
+    }
+
+    @Test
+    void leavesUnsettledAndUncountedDriversAlone() {
+        givenTotals(new DriverRideTotal(1L, 5), new DriverRideTotal(2L, 3));
+        givenCounts(Map.of(), List.of(1L));
+
+        reconciler.reconcile();
+
+        verify(driverProfileRepository, never()).correctTotalRides(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void stopsWhenCustomerServiceIsUnavailable() {
+        givenTotals(new DriverRideTotal(1L, 5));
+        when(customerServiceClient.getDriverRideCounts(any()))
+                .thenReturn(ApiResponse.error("Customer Service is currently unavailable"));
+
+        reconciler.reconcile();
+
+        verify(driverProfileRepository, never()).correctTotalRides(anyLong(), anyInt(), anyInt());
+    }
+
+    private void givenTotals(DriverRideTotal... totals) {
+        long last = totals[totals.length - 1].getUserId();
+        when(driverProfileRepository.findRideTotalsAfter(eq(0L), any(Limit.class))).thenReturn(List.of(totals));
+        when(driverProfileRepository.findRideTotalsAfter(eq(last), any(Limit.class))).thenReturn(List.of());
+    }
+
+    private void givenCounts(Map<Long, Long> counts, List<Long> unsettled) {
+        when(customerServiceClient.getDriverRideCounts(any())).thenReturn(ApiResponse.success(
+                DriverRideCounts.builder().counts(counts).unsettled(unsettled).build()));
+    }
+}
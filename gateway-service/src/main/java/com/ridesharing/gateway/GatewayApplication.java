@@ -4,12 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main entry point for the API Gateway Service.
  * Handles routing, authentication, and authorization.
  */
 @SpringBootApplication
+@EnableScheduling
 public class GatewayApplication {
     
     private static final Logger log = LoggerFactory.getLogger(GatewayApplication.class);
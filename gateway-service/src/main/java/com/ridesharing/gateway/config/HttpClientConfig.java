@@ -0,0 +1,167 @@
+package com.ridesharing.gateway.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.log4j.Log4j2;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Pooled HTTP client used for gateway-to-backend calls.
+ * Each backend gets its own route in the connection pool with its own connection
+ * limit and response timeout; pool usage is exported through Actuator metrics.
+ */
+@Configuration
+@Log4j2
+public class HttpClientConfig {
+
+    private static final String METRICS_NAME = "gateway-proxy";
+
+    @Value("${customer-service.url:http://localhost:8081}")
+    private String customerServiceUrl;
+
+    @Value("${driver-service.url:http://localhost:8082}")
+    private String driverServiceUrl;
+
+    @Value("${gateway.http-client.max-total:400}")
+    private int maxTotal;
+
+    @Value("${gateway.http-client.default-max-per-route:50}")
+    private int defaultMaxPerRoute;
+
+    @Value("${gateway.http-client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${gateway.http-client.connection-request-timeout:1s}")
+    private Duration connectionRequestTimeout;
+
+    @Value("${gateway.http-client.response-timeout:30s}")
+    private Duration responseTimeout;
+
+    @Value("${gateway.http-client.idle-eviction:30s}")
+    private Duration idleEviction;
+
+    @Value("${gateway.http-client.time-to-live:5m}")
+    private Duration timeToLive;
+
+    @Value("${gateway.http-client.customer-service.max-connections:200}")
+    private int customerServiceMaxConnections;
+
+    @Value("${gateway.http-client.customer-service.response-timeout:${gateway.http-client.response-timeout:30s}}")
+    private Duration customerServiceResponseTimeout;
+
+    @Value("${gateway.http-client.driver-service.max-connections:200}")
+    private int driverServiceMaxConnections;
+
+    @Value("${gateway.http-client.driver-service.response-timeout:${gateway.http-client.response-timeout:30s}}")
+    private Duration driverServiceResponseTimeout;
+
+    @Bean
+    public PoolingHttpClientConnectionManager proxyConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(defaultMaxPerRoute)
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        for (BackendRoute backend : backendRoutes()) {
+            connectionManager.setMaxPerRoute(backend.route(), backend.maxConnections());
+            log.info("Configured HTTP client route {} ({}) with max {} connections",
+                    backend.name(), backend.route().getTargetHost(), backend.maxConnections());
+        }
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, METRICS_NAME).bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient proxyHttpClient(PoolingHttpClientConnectionManager proxyConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(proxyConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                        .setResponseTimeout(Timeout.of(responseTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .evictExpiredConnections()
+                .disableAutomaticRetries()
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .disableContentCompression()
+                .build();
+    }
+
+    @Bean
+    public HttpComponentsClientHttpRequestFactory proxyRequestFactory(CloseableHttpClient proxyHttpClient) {
+        List<BackendRoute> backends = backendRoutes();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(proxyHttpClient);
+        requestFactory.setHttpContextFactory((HttpMethod method, URI uri) -> createContext(backends, uri));
+        return requestFactory;
+    }
+
+    private HttpContext createContext(List<BackendRoute> backends, URI uri) {
+        HttpClientContext context = HttpClientContext.create();
+        HttpHost target = toHost(uri);
+        for (BackendRoute backend : backends) {
+            if (backend.route().getTargetHost().equals(target)) {
+                context.setRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                        .setResponseTimeout(Timeout.of(backend.responseTimeout()))
+                        .build());
+                break;
+            }
+        }
+        return context;
+    }
+
+    private List<BackendRoute> backendRoutes() {
+        return List.of(
+                new BackendRoute("customer-service", toRoute(customerServiceUrl),
+                        customerServiceMaxConnections, customerServiceResponseTimeout),
+                new BackendRoute("driver-service", toRoute(driverServiceUrl),
+                        driverServiceMaxConnections, driverServiceResponseTimeout)
+        );
+    }
+
+    private static HttpRoute toRoute(String url) {
+        HttpHost host = toHost(URI.create(url));
+        return new HttpRoute(host, null, "https".equalsIgnoreCase(host.getSchemeName()));
+    }
+
+    private static HttpHost toHost(URI uri) {
+        String scheme = uri.getScheme() != null ? uri.getScheme() : "http";
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(scheme) ? 443 : 80);
+        return new HttpHost(scheme, uri.getHost(), port);
+    }
+
+    private record BackendRoute(String name, HttpRoute route, int maxConnections, Duration responseTimeout) {
+    }
+}
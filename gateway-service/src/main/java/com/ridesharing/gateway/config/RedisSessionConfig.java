@@ -1,5 +1,7 @@
 package com.ridesharing.gateway.config;
 
+import com.ridesharing.gateway.security.CompactSessionSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
@@ -7,15 +9,18 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
-import org.springframework.session.data.redis.config.annotation.web.http.EnableRedisHttpSession;
+import org.springframework.session.data.redis.config.annotation.web.http.EnableRedisIndexedHttpSession;
 
 /**
  * Redis configuration for distributed session management.
  * Sessions are stored in Redis, allowing multiple Gateway instances to share sessions.
+ * The indexed repository publishes session deleted and expired events from Redis keyspace
+ * notifications, which keep the local session principal cache in line on every instance.
  */
 @Configuration
-@EnableRedisHttpSession(maxInactiveIntervalInSeconds = 3600) // 1 hour session timeout
+@EnableRedisIndexedHttpSession(maxInactiveIntervalInSeconds = 3600) // 1 hour session timeout
 public class RedisSessionConfig {
     
     private static final Logger log = LoggerFactory.getLogger(RedisSessionConfig.class);
@@ -34,4 +39,12 @@ public class RedisSessionConfig {
         
         return template;
     }
+    
+    /**
+     * Serializer Spring Session uses for session attributes, picked up by bean name.
+     */
+    @Bean
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer(MeterRegistry meterRegistry) {
+        return new CompactSessionSerializer(meterRegistry);
+    }
 }
@@ -1,15 +1,40 @@
 package com.ridesharing.gateway.config;
 
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
 
 @Configuration
 public class RestTemplateConfig {
-    
+
+    /**
+     * RestTemplate used by the proxy engine. Requests go through the pooled client from
+     * {@link HttpClientConfig}, and backend error statuses are passed through to the
+     * caller instead of being raised as exceptions.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     HttpComponentsClientHttpRequestFactory proxyRequestFactory) {
+        return builder
+                .requestFactory(() -> proxyRequestFactory)
+                .errorHandler(new PassThroughErrorHandler())
+                .build();
+    }
+
+    private static class PassThroughErrorHandler implements ResponseErrorHandler {
+
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response) {
+        }
     }
 }
@@ -0,0 +1,177 @@
+package com.ridesharing.gateway.config;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.config.Node;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.filter.AbstractFilter;
+import org.apache.logging.log4j.message.Message;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log4j2 filter that samples events at {@code level} or below from the given loggers (a name
+ * also covers the loggers below it) and lets everything else through, so per-request DEBUG
+ * lines on hot paths still show up without being written for every request:
+ * <pre>{@code <SamplingFilter level="DEBUG" oneIn="100" loggers="com.example.web, com.example.AuthFilter"/>}</pre>
+ * Requests are sampled whole: the lines of one in {@code oneIn} trace ids are kept, so a
+ * sampled request can be followed through the filter, the controller and the other services.
+ * Lines logged outside a trace keep one in {@code oneIn} per listed logger. Configured
+ * context-wide, the filter runs on the request thread before the event is created, so a
+ * sampled-out line costs neither the hand-off to the asynchronous logging thread nor its
+ * formatting. Sampling is allocation-free; level checks without a message
+ * ({@code isDebugEnabled()}) are not sampled.
+ * <p>
+ * Each service keeps its own copy, as with {@code ApiResponse}: the services are built
+ * separately and share no module.
+ */
+@Plugin(name = "SamplingFilter", category = Node.CATEGORY, elementType = Filter.ELEMENT_TYPE, printObject = true)
+public final class SamplingFilter extends AbstractFilter {
+
+    // Put in the logging context by Micrometer Tracing
+    private static final String TRACE_ID = "traceId";
+
+    private final Level level;
+    private final long oneIn;
+    private final String[] loggers;
+    private final String[] prefixes;
+    private final AtomicLong[] counts;
+
+    private SamplingFilter(Level level, long oneIn, String[] loggers) {
+        super(Result.NEUTRAL, Result.DENY);
+        this.level = level;
+        this.oneIn = oneIn;
+        this.loggers = loggers;
+        this.prefixes = new String[loggers.length];
+        this.counts = new AtomicLong[loggers.length];
+        for (int i = 0; i < loggers.length; i++) {
+            prefixes[i] = loggers[i] + ".";
+            counts[i] = new AtomicLong();
+        }
+    }
+
+    private Result sample(String loggerName, Level eventLevel, Level loggerLevel, String traceId) {
+        // Lower int levels are more severe: ERROR is 200, DEBUG 500. Events the logger
+        // drops anyway are left to its level check and not counted.
+        if (eventLevel.intLevel() < level.intLevel() || eventLevel.intLevel() > loggerLevel.intLevel()) {
+            return Result.NEUTRAL;
+        }
+        for (int i = 0; i < loggers.length; i++) {
+            if (loggerName.equals(loggers[i]) || loggerName.startsWith(prefixes[i])) {
+                long n = traceId != null ? traceId.hashCode() & Integer.MAX_VALUE : counts[i].getAndIncrement();
+                return n % oneIn == 0 ? onMatch : onMismatch;
+            }
+        }
+        return Result.NEUTRAL;
+    }
+
+    private Result sample(Logger logger, Level eventLevel, Object msg) {
+        return msg == null
+                ? Result.NEUTRAL
+                : sample(logger.getName(), eventLevel, logger.getLevel(), ThreadContext.get(TRACE_ID));
+    }
+
+    @Override
+    public Result filter(LogEvent event) {
+        return sample(event.getLoggerName(), event.getLevel(), Level.ALL, event.getContextData().getValue(TRACE_ID));
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, Message msg, Throwable t) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, Object msg, Throwable t) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object... params) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2,
+                         Object p3) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2,
+                         Object p3, Object p4) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2,
+                         Object p3, Object p4, Object p5) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2,
+                         Object p3, Object p4, Object p5, Object p6) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2,
+                         Object p3, Object p4, Object p5, Object p6, Object p7) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2,
+                         Object p3, Object p4, Object p5, Object p6, Object p7, Object p8) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2,
+                         Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9) {
+        return sample(logger, level, msg);
+    }
+
+    @Override
+    public String toString() {
+        return "level=" + level + ", oneIn=" + oneIn + ", loggers=" + Arrays.toString(loggers);
+    }
+
+    @PluginFactory
+    public static SamplingFilter createFilter(
+            @PluginAttribute(value = "level", defaultString = "DEBUG") String level,
+            @PluginAttribute(value = "oneIn", defaultLong = 100) long oneIn,
+            @PluginAttribute("loggers") String loggers) {
+        if (oneIn < 1) {
+            throw new IllegalArgumentException("SamplingFilter oneIn must be at least 1, was " + oneIn);
+        }
+        String[] names = loggers == null ? new String[0] : Arrays.stream(loggers.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toArray(String[]::new);
+        return new SamplingFilter(Level.toLevel(level, Level.DEBUG), oneIn, names);
+    }
+}
@@ -1,10 +1,21 @@
 package com.ridesharing.gateway.config;
 
+import com.ridesharing.gateway.security.AuthMode;
+import com.ridesharing.gateway.security.CachingSecurityContextRepository;
+import com.ridesharing.gateway.security.CaffeineUserCache;
 import com.ridesharing.gateway.security.CustomUserDetailsService;
+import com.ridesharing.gateway.security.TokenAuthenticationFilter;
+import com.ridesharing.gateway.security.TokenDenyList;
+import com.ridesharing.gateway.security.TokenService;
+import com.ridesharing.gateway.service.AuthService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -18,8 +29,16 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.session.web.http.CookieSerializer;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.FlashMapManager;
+
+import java.time.Duration;
 
 
 @Configuration
@@ -31,23 +50,56 @@ public class SecurityConfig {
     
 
     private final CustomUserDetailsService userDetailsService;
+    private final CaffeineUserCache userCache;
+    
+    @Value("${gateway.auth.mode:session}")
+    private AuthMode authMode;
+    
+    @Value("${gateway.auth.bcrypt-strength:10}")
+    private int bcryptStrength;
     
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        log.info("Configuring Session-based Security");
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   CachingSecurityContextRepository securityContextRepository,
+                                                   TokenService tokenService,
+                                                   TokenDenyList tokenDenyList,
+                                                   AuthService authService) throws Exception {
+        if (authMode == AuthMode.TOKEN) {
+            // Stateless: every request is authenticated from its bearer token, nothing is kept in Redis
+            log.info("Configuring Token-based Security");
+            http
+                .sessionManagement(session -> session
+                    .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                )
+                .securityContext(context -> context
+                    .securityContextRepository(new RequestAttributeSecurityContextRepository())
+                )
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService, tokenDenyList),
+                        UsernamePasswordAuthenticationFilter.class)
+                .logout(logout -> logout
+                    .addLogoutHandler((request, response, authentication) ->
+                            authService.revokeTokens(TokenAuthenticationFilter.bearerToken(request)))
+                );
+        } else {
+            log.info("Configuring Session-based Security");
+            http
+                .sessionManagement(session -> session
+                    .sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED)
+                )
+                .securityContext(context -> context
+                    .securityContextRepository(securityContextRepository)
+                )
+                .logout(logout -> logout
+                    .addLogoutHandler((request, response, authentication) -> securityContextRepository.evict(request))
+                    .invalidateHttpSession(true)
+                    .deleteCookies("SESSION")
+                );
+        }
         
         http
             .csrf(AbstractHttpConfigurer::disable)
-            .sessionManagement(session -> session
-                .sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED)
-                .maximumSessions(1)
-                .maxSessionsPreventsLogin(false)
-            )
-            .securityContext(context -> context
-                .securityContextRepository(securityContextRepository())
-            )
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/auth/register", "/auth/login").permitAll()
+                .requestMatchers("/auth/register", "/auth/login", "/auth/refresh").permitAll()
                 .requestMatchers("/actuator/**").permitAll()
                 .requestMatchers("/api/customer/**").hasRole("CUSTOMER")
                 .requestMatchers("/api/driver/**").hasRole("DRIVER")
@@ -55,8 +107,6 @@ public class SecurityConfig {
             )
             .logout(logout -> logout
                 .logoutUrl("/auth/logout")
-                .invalidateHttpSession(true)
-                .deleteCookies("SESSION")
                 .logoutSuccessHandler((request, response, authentication) -> {
                     response.setStatus(200);
                     response.getWriter().write("{\"success\":true,\"message\":\"Logged out successfully\"}");
@@ -79,9 +129,38 @@ public class SecurityConfig {
         return http.build();
     }
     
+    /**
+     * Session-backed security context with a local cache of the principal per session,
+     * so most requests are authorized without reading the session from Redis.
+     */
     @Bean
-    public SecurityContextRepository securityContextRepository() {
-        return new HttpSessionSecurityContextRepository();
+    public CachingSecurityContextRepository securityContextRepository(
+            CookieSerializer cookieSerializer,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.session-cache.maximum-size:100000}") long maximumSize,
+            @Value("${gateway.session-cache.ttl:30s}") Duration ttl) {
+        SecurityContextRepository sessionRepository = new HttpSessionSecurityContextRepository();
+        return new CachingSecurityContextRepository(sessionRepository, cookieSerializer, meterRegistry, maximumSize, ttl);
+    }
+    
+    /**
+     * The gateway does not use flash attributes. The default flash map manager looks them up
+     * in the HTTP session on every request, which would load the session from Redis even when
+     * the principal was found in the local cache.
+     */
+    @Bean(name = DispatcherServlet.FLASH_MAP_MANAGER_BEAN_NAME)
+    public FlashMapManager flashMapManager() {
+        return new FlashMapManager() {
+            @Override
+            public FlashMap retrieveAndUpdate(HttpServletRequest request, HttpServletResponse response) {
+                return null;
+            }
+            
+            @Override
+            public void saveOutputFlashMap(FlashMap flashMap, HttpServletRequest request, HttpServletResponse response) {
+                // Nothing is kept between requests
+            }
+        };
     }
     
     @Bean
@@ -89,6 +168,9 @@ public class SecurityConfig {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService);
         provider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes passwords stored at a lower strength on their next successful login
+        provider.setUserDetailsPasswordService(userDetailsService);
+        provider.setUserCache(userCache);
         return provider;
     }
     
@@ -99,6 +181,6 @@ public class SecurityConfig {
     
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 }
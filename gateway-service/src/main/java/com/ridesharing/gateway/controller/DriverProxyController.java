@@ -1,16 +1,23 @@
 package com.ridesharing.gateway.controller;
 
+import com.ridesharing.gateway.proxy.EventStreamRelay;
+import com.ridesharing.gateway.proxy.ProxyEngine;
 import com.ridesharing.gateway.security.CurrentUser;
 import com.ridesharing.gateway.security.CustomUserDetails;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Proxy controller to forward driver requests to Driver Service.
@@ -23,7 +30,8 @@ import org.springframework.web.client.RestTemplate;
 public class DriverProxyController {
     
 
-    private final RestTemplate restTemplate;
+    private final ProxyEngine proxyEngine;
+    private final EventStreamRelay eventStreamRelay;
     
     @Value("${driver-service.url:http://localhost:8082}")
     private String driverServiceUrl;
@@ -31,70 +39,121 @@ public class DriverProxyController {
 
     @GetMapping("/profile")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<String> getProfile(
-            @CurrentUser CustomUserDetails currentUser) {
+    public void getProfile(
+            @CurrentUser CustomUserDetails currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) {
 
-        log.info("Proxying profile for driver: {}", currentUser.getUsername());
-        return forwardRequest("/api/driver/profile", HttpMethod.GET,null, currentUser);
+        log.debug("Proxying profile for driver: {}", currentUser.getUsername());
+        forwardRequest("/api/driver/profile", HttpMethod.GET, request, response, currentUser);
     }
     
     @PutMapping("/status")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<String> updateStatus(
+    public void updateStatus(
             @CurrentUser CustomUserDetails currentUser,
-            @RequestBody String body) {
+            HttpServletRequest request,
+            HttpServletResponse response) {
         
-        log.info("Proxying status update for driver: {}", currentUser.getUsername());
-        return forwardRequest("/api/driver/status", HttpMethod.PUT, body, currentUser);
+        log.debug("Proxying status update for driver: {}", currentUser.getUsername());
+        forwardRequest("/api/driver/status", HttpMethod.PUT, request, response, currentUser);
     }
 
     
+    @PostMapping("/heartbeat")
+    @PreAuthorize("hasRole('DRIVER')")
+    public void heartbeat(
+            @CurrentUser CustomUserDetails currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+
+        forwardRequest("/api/driver/heartbeat", HttpMethod.POST, request, response, currentUser);
+    }
+    
+    @PutMapping("/location")
+    @PreAuthorize("hasRole('DRIVER')")
+    public void updateLocation(
+            @CurrentUser CustomUserDetails currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+
+        forwardRequest("/api/driver/location", HttpMethod.PUT, request, response, currentUser);
+    }
+    
     @GetMapping("/rides/available")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<String> getAvailableRides(@CurrentUser CustomUserDetails currentUser) {
-        log.info("Proxying available rides request for driver: {}", currentUser.getUsername());
-        return forwardRequest("/api/driver/rides/available", HttpMethod.GET, null, currentUser);
+    public void getAvailableRides(
+            @CurrentUser CustomUserDetails currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+
+        log.debug("Proxying available rides request for driver: {}", currentUser.getUsername());
+        forwardRequest("/api/driver/rides/available", HttpMethod.GET, request, response, currentUser);
+    }
+    
+    /**
+     * The ride feed stays open for as long as the driver is online, so it is relayed
+     * asynchronously instead of through the proxy engine.
+     */
+    @GetMapping("/rides/feed")
+    @PreAuthorize("hasRole('DRIVER')")
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> getRideFeed(
+            @CurrentUser CustomUserDetails currentUser,
+            HttpServletRequest request) {
+
+        log.debug("Relaying ride feed for driver: {}", currentUser.getUsername());
+        return eventStreamRelay.relay("Driver Service", driverServiceUrl, "/api/driver/rides/feed", request, currentUser);
     }
     
     @PostMapping("/rides/{rideId}/accept")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<String> acceptRide(
+    public void acceptRide(
             @CurrentUser CustomUserDetails currentUser,
-            @PathVariable Long rideId) {
+            @PathVariable Long rideId,
+            HttpServletRequest request,
+            HttpServletResponse response) {
         
-        log.info("Proxying accept ride request for driver: {}, rideId: {}", currentUser.getUsername(), rideId);
-        return forwardRequest("/api/driver/rides/" + rideId + "/accept", HttpMethod.POST, null, currentUser);
+        log.debug("Proxying accept ride request for driver: {}, rideId: {}", currentUser.getUsername(), rideId);
+        forwardRequest("/api/driver/rides/" + rideId + "/accept", HttpMethod.POST, request, response, currentUser);
     }
 
     
+    @GetMapping("/rides/offer")
+    @PreAuthorize("hasRole('DRIVER')")
+    public void getCurrentOffer(
+            @CurrentUser CustomUserDetails currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+
+        log.debug("Proxying ride offer request for driver: {}", currentUser.getUsername());
+        forwardRequest("/api/driver/rides/offer", HttpMethod.GET, request, response, currentUser);
+    }
+    
+    @PostMapping("/rides/{rideId}/decline")
+    @PreAuthorize("hasRole('DRIVER')")
+    public void declineRide(
+            @CurrentUser CustomUserDetails currentUser,
+            @PathVariable Long rideId,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        
+        log.debug("Proxying decline ride request for driver: {}, rideId: {}", currentUser.getUsername(), rideId);
+        forwardRequest("/api/driver/rides/" + rideId + "/decline", HttpMethod.POST, request, response, currentUser);
+    }
+    
     @GetMapping("/rides/history")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<String> getRideHistory(@CurrentUser CustomUserDetails currentUser) {
-        log.info("Proxying ride history request for driver: {}", currentUser.getUsername());
-        return forwardRequest("/api/driver/rides/history", HttpMethod.GET, null, currentUser);
+    public void getRideHistory(
+            @CurrentUser CustomUserDetails currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+
+        log.debug("Proxying ride history request for driver: {}", currentUser.getUsername());
+        forwardRequest("/api/driver/rides/history", HttpMethod.GET, request, response, currentUser);
     }
 
-    private ResponseEntity<String> forwardRequest(String path, HttpMethod method, String body, CustomUserDetails user) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        
-        if (user != null) {
-            headers.set("X-User-Id", String.valueOf(user.getId()));
-            headers.set("X-User-Name", user.getUsername());
-            headers.set("X-User-Role", user.getRole());
-        }
-        
-        HttpEntity<String> entity = new HttpEntity<>(body, headers);
-        String url = driverServiceUrl + path;
-        
-        log.debug("Forwarding {} request to: {}", method, url);
-        
-        try {
-            return restTemplate.exchange(url, method, entity, String.class);
-        } catch (Exception e) {
-            log.error("Error forwarding request to Driver Service: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                    .body("{\"success\":false,\"message\":\"Driver Service unavailable\"}");
-        }
+    private void forwardRequest(String path, HttpMethod method, HttpServletRequest request,
+                                HttpServletResponse response, CustomUserDetails user) {
+        proxyEngine.forward("Driver Service", driverServiceUrl, path, method, request, response, user);
     }
 }
@@ -12,6 +12,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class LoginResponse {
     private String sessionId;
+    private String accessToken;
+    private String refreshToken;
+    private String tokenType;
     private Long expiresIn;
     private UserResponse user;
     
@@ -22,4 +25,14 @@ public class LoginResponse {
                 .user(user)
                 .build();
     }
+    
+    public static LoginResponse ofTokens(String accessToken, String refreshToken, Long expiresIn, UserResponse user) {
+        return LoginResponse.builder()
+                .accessToken(accessToken)
+                .refreshToken(refreshToken)
+                .tokenType("Bearer")
+                .expiresIn(expiresIn)
+                .user(user)
+                .build();
+    }
 }
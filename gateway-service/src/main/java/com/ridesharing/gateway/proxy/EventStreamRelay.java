@@ -0,0 +1,305 @@
+package com.ridesharing.gateway.proxy;
+
+import com.ridesharing.gateway.security.CustomUserDetails;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Relays long-lived Server-Sent Event streams from a backend without holding a request
+ * thread or a pooled proxy connection for the lifetime of the stream.
+ * <p>
+ * The backend is called with a non-blocking HTTP client on connections of its own, so open
+ * streams cannot starve the proxy connection pool used by ordinary requests. The servlet
+ * request is handled asynchronously and each chunk from the backend is written as it arrives;
+ * the next chunk is only requested once the previous one was written to the client. Open
+ * streams are bounded and further streams are rejected with 503 until one closes.
+ */
+@Component
+@Log4j2
+public class EventStreamRelay {
+
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            HttpHeaders.ACCEPT_LANGUAGE,
+            "Last-Event-ID"
+    );
+
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CACHE_CONTROL
+    );
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final int maxStreams;
+    private final Semaphore streams;
+    private final Duration responseTimeout;
+    private final Duration streamTimeout;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    public EventStreamRelay(MeterRegistry meterRegistry,
+                            @Value("${gateway.event-stream.max-streams:2000}") int maxStreams,
+                            @Value("${gateway.event-stream.connect-timeout:2s}") Duration connectTimeout,
+                            @Value("${gateway.event-stream.response-timeout:10s}") Duration responseTimeout,
+                            @Value("${gateway.event-stream.timeout:30m}") Duration streamTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.maxStreams = maxStreams;
+        this.streams = new Semaphore(maxStreams);
+        this.responseTimeout = responseTimeout;
+        this.streamTimeout = streamTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "event-stream-relay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+
+        Gauge.builder("gateway.event-stream.active", streams, semaphore -> maxStreams - semaphore.availablePermits())
+                .description("Event streams currently relayed to clients")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("gateway.event-stream.rejected")
+                .description("Event streams rejected because the limit of open streams was reached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens the event stream at {@code baseUrl + path} with the query of the current request,
+     * the resume headers and the user headers expected by the backend services. The result
+     * completes once the backend responded, with its status and a body that is streamed to the client.
+     */
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> relay(String serviceName, String baseUrl, String path,
+                                                                        HttpServletRequest request, CustomUserDetails user) {
+        if (!streams.tryAcquire()) {
+            rejected.increment();
+            log.warn("Rejecting {} event stream, all {} streams are open", serviceName, maxStreams);
+            return CompletableFuture.completedFuture(unavailable(serviceName));
+        }
+
+        URI uri = buildUri(baseUrl, path, request.getQueryString());
+        log.debug("Relaying event stream from: {}", uri);
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(streamTimeout.toMillis());
+        Relay relay = new Relay(emitter);
+        emitter.onCompletion(relay::cancel);
+        emitter.onTimeout(() -> {
+            relay.cancel();
+            emitter.complete();
+        });
+        emitter.onError(error -> relay.cancel());
+
+        long start = System.nanoTime();
+        CompletableFuture<ResponseEntity<ResponseBodyEmitter>> result = new CompletableFuture<>();
+        httpClient.sendAsync(buildRequest(uri, request, user), responseInfo -> {
+            upstreamTimer(serviceName, String.valueOf(responseInfo.statusCode()))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(responseInfo.statusCode());
+            for (String name : FORWARDED_RESPONSE_HEADERS) {
+                responseInfo.headers().firstValue(name).ifPresent(value -> response.header(name, value));
+            }
+            result.complete(response.body(emitter));
+            return HttpResponse.BodySubscribers.fromSubscriber(relay);
+        }).whenComplete((response, error) -> {
+            if (error == null) {
+                return;
+            }
+            if (!result.isDone()) {
+                log.error("Error relaying event stream from {}: {}", serviceName, error.getMessage());
+                upstreamTimer(serviceName, "UNAVAILABLE").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                relay.cancel();
+                result.complete(unavailable(serviceName));
+            } else {
+                // The stream broke after it started: end it so the client resumes with Last-Event-ID
+                log.debug("Event stream from {} interrupted: {}", serviceName, error.getMessage());
+                relay.finish();
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private HttpRequest buildRequest(URI uri, HttpServletRequest request, CustomUserDetails user) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(responseTimeout)
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .GET();
+
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                builder.header(name, value);
+            }
+        }
+
+        if (user != null) {
+            builder.header("X-User-Id", String.valueOf(user.getId()));
+            builder.header("X-User-Name", user.getUsername());
+            builder.header("X-User-Role", user.getRole());
+        }
+        return builder.build();
+    }
+
+    private Timer upstreamTimer(String serviceName, String status) {
+        return Timer.builder("gateway.proxy.upstream")
+                .description("Time until the backend responded")
+                .tag("service", serviceName)
+                .tag("method", "GET")
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static URI buildUri(String baseUrl, String path, String queryString) {
+        String url = baseUrl + path;
+        if (StringUtils.hasText(queryString)) {
+            url = url + "?" + queryString;
+        }
+        return URI.create(url);
+    }
+
+    private static ResponseEntity<ResponseBodyEmitter> unavailable(String serviceName) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        try {
+            emitter.send(("{\"success\":false,\"message\":\"" + serviceName + " unavailable\"}")
+                    .getBytes(StandardCharsets.UTF_8));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(emitter);
+    }
+
+    /**
+     * Writes the backend body to the client one chunk at a time and releases the stream
+     * slot once either side ends the stream.
+     */
+    private final class Relay implements Flow.Subscriber<List<ByteBuffer>> {
+
+        private final ResponseBodyEmitter emitter;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile Flow.Subscription subscription;
+
+        private Relay(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (finished.get()) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            int size = 0;
+            for (ByteBuffer buffer : buffers) {
+                size += buffer.remaining();
+            }
+            byte[] chunk = new byte[size];
+            int offset = 0;
+            for (ByteBuffer buffer : buffers) {
+                int length = buffer.remaining();
+                buffer.get(chunk, offset, length);
+                offset += length;
+            }
+
+            try {
+                emitter.send(chunk);
+                subscription.request(1);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Event stream client disconnected: {}", e.getMessage());
+                cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            finish();
+        }
+
+        @Override
+        public void onComplete() {
+            finish();
+        }
+
+        /**
+         * The backend ended the stream: release the slot and end the client response.
+         */
+        void finish() {
+            if (release()) {
+                try {
+                    emitter.complete();
+                } catch (IllegalStateException ignored) {
+                    // Already completed by the container
+                }
+            }
+        }
+
+        /**
+         * The client went away or the stream timed out: release the slot and close the backend connection.
+         */
+        void cancel() {
+            if (release()) {
+                Flow.Subscription current = subscription;
+                if (current != null) {
+                    current.cancel();
+                }
+            }
+        }
+
+        private boolean release() {
+            if (finished.compareAndSet(false, true)) {
+                streams.release();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ridesharing.gateway.proxy;
+
+import com.ridesharing.gateway.security.CustomUserDetails;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared proxy engine used by the gateway controllers.
+ * Request and response bodies are streamed between the client and the backend
+ * without being materialized, over the pooled connections of the proxy RestTemplate.
+ * <p>
+ * Each hop records {@code gateway.proxy.upstream} (until the backend's response headers
+ * arrive) and {@code gateway.proxy.requests} (including streaming the body back), so the
+ * gateway's own share of request latency can be told apart from the backend's.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class ProxyEngine {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            HttpHeaders.ACCEPT,
+            HttpHeaders.ACCEPT_LANGUAGE,
+            "Last-Event-ID"
+    );
+
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.CACHE_CONTROL
+    );
+
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Forwards the current request to {@code baseUrl + path}, adding the user headers
+     * expected by the backend services, and streams the backend response back to the client.
+     */
+    public void forward(String serviceName, String baseUrl, String path, HttpMethod method,
+                        HttpServletRequest request, HttpServletResponse response, CustomUserDetails user) {
+        URI uri = buildUri(baseUrl, path, request.getQueryString());
+
+        log.debug("Forwarding {} request to: {}", method, uri);
+
+        long start = System.nanoTime();
+        String[] status = {"UNAVAILABLE"};
+        try {
+            restTemplate.execute(uri, method,
+                    upstreamRequest -> writeRequest(upstreamRequest, request, user),
+                    upstreamResponse -> {
+                        status[0] = String.valueOf(upstreamResponse.getStatusCode().value());
+                        timer("gateway.proxy.upstream", "Time until the backend responded", serviceName, method, status[0])
+                                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        copyResponse(upstreamResponse, response);
+                        return null;
+                    });
+        } catch (RestClientException e) {
+            log.error("Error forwarding request to {}: {}", serviceName, e.getMessage());
+            writeUnavailable(serviceName, response);
+        } finally {
+            timer("gateway.proxy.requests", "Proxied requests including the streamed response", serviceName, method, status[0])
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String name, String description, String serviceName, HttpMethod method, String status) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("service", serviceName)
+                .tag("method", method.name())
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private URI buildUri(String baseUrl, String path, String queryString) {
+        String url = baseUrl + path;
+        if (StringUtils.hasText(queryString)) {
+            url = url + "?" + queryString;
+        }
+        return URI.create(url);
+    }
+
+    private void writeRequest(ClientHttpRequest upstreamRequest, HttpServletRequest request,
+                              CustomUserDetails user) throws IOException {
+        HttpHeaders headers = upstreamRequest.getHeaders();
+        headers.setContentType(request.getContentType() != null
+                ? MediaType.parseMediaType(request.getContentType())
+                : MediaType.APPLICATION_JSON);
+
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                headers.set(name, value);
+            }
+        }
+
+        if (user != null) {
+            headers.set("X-User-Id", String.valueOf(user.getId()));
+            headers.set("X-User-Name", user.getUsername());
+            headers.set("X-User-Role", user.getRole());
+        }
+
+        long contentLength = request.getContentLengthLong();
+        if (contentLength == 0) {
+            return;
+        }
+        if (contentLength > 0) {
+            headers.setContentLength(contentLength);
+        }
+
+        if (upstreamRequest instanceof StreamingHttpOutputMessage streamingRequest) {
+            streamingRequest.setBody(body -> request.getInputStream().transferTo(body));
+        } else {
+            request.getInputStream().transferTo(upstreamRequest.getBody());
+        }
+    }
+
+    private void copyResponse(ClientHttpResponse upstreamResponse, HttpServletResponse response) throws IOException {
+        response.setStatus(upstreamResponse.getStatusCode().value());
+
+        HttpHeaders upstreamHeaders = upstreamResponse.getHeaders();
+        for (String name : FORWARDED_RESPONSE_HEADERS) {
+            String value = upstreamHeaders.getFirst(name);
+            if (value != null) {
+                response.setHeader(name, value);
+            }
+        }
+
+        InputStream in = upstreamResponse.getBody();
+        OutputStream out = response.getOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            // Flush whenever the upstream has nothing more buffered so streamed responses reach the client promptly
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    private void writeUnavailable(String serviceName, HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+        try {
+            response.resetBuffer();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"success\":false,\"message\":\"" + serviceName + " unavailable\"}");
+        } catch (IOException e) {
+            log.warn("Could not write unavailable response for {}: {}", serviceName, e.getMessage());
+        }
+    }
+}
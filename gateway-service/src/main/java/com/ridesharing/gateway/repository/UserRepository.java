@@ -2,9 +2,13 @@ package com.ridesharing.gateway.repository;
 
 import com.ridesharing.gateway.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 @Repository
@@ -16,4 +20,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
     
     boolean existsByEmail(String email);
+    
+    @Query("SELECT u.username FROM User u")
+    Stream<String> streamAllUsernames();
+    
+    @Query("SELECT u.email FROM User u")
+    Stream<String> streamAllEmails();
+    
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
 }
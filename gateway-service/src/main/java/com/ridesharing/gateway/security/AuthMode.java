@@ -0,0 +1,11 @@
+package com.ridesharing.gateway.security;
+
+/**
+ * How the gateway authenticates requests, selected with {@code gateway.auth.mode}.
+ */
+public enum AuthMode {
+    /** Spring Session stored in Redis, identified by the SESSION cookie. */
+    SESSION,
+    /** Signed bearer tokens verified locally by every gateway instance. */
+    TOKEN
+}
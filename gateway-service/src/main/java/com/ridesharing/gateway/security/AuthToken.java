@@ -0,0 +1,26 @@
+package com.ridesharing.gateway.security;
+
+import java.time.Instant;
+
+/**
+ * Verified content of a gateway token. Access and refresh tokens issued together share a
+ * {@code familyId}, so a logout can revoke both at once.
+ */
+public record AuthToken(Type type,
+                        String tokenId,
+                        String familyId,
+                        Long userId,
+                        String username,
+                        String role,
+                        Instant issuedAt,
+                        Instant expiresAt) {
+
+    public enum Type {
+        ACCESS,
+        REFRESH
+    }
+
+    public CustomUserDetails toUserDetails() {
+        return new CustomUserDetails(userId, username, role);
+    }
+}
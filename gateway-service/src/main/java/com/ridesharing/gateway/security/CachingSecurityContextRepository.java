@@ -0,0 +1,165 @@
+package com.ridesharing.gateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.session.events.SessionDestroyedEvent;
+import org.springframework.session.web.http.CookieHttpSessionIdResolver;
+import org.springframework.session.web.http.CookieSerializer;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Keeps the authenticated {@link SecurityContext} of recently used sessions in memory.
+ * <p>
+ * On a hit the request is authorized without touching the HTTP session, so the session is
+ * not loaded from Redis at all. Entries expire after {@code ttl}; the next request then
+ * loads the session again, which also refreshes its last access time in Redis. Logouts and
+ * expirations on any gateway instance reach every instance through Redis keyspace
+ * notifications and evict the entry.
+ */
+@Log4j2
+public class CachingSecurityContextRepository implements SecurityContextRepository {
+
+    private final SecurityContextRepository delegate;
+    private final CookieHttpSessionIdResolver sessionIdResolver = new CookieHttpSessionIdResolver();
+    private final Cache<String, Authentication> cache;
+    private final Counter invalidations;
+    private final Timer sessionLoads;
+
+    public CachingSecurityContextRepository(SecurityContextRepository delegate,
+                                            CookieSerializer cookieSerializer,
+                                            MeterRegistry meterRegistry,
+                                            long maximumSize,
+                                            Duration ttl) {
+        this.delegate = delegate;
+        this.sessionIdResolver.setCookieSerializer(cookieSerializer);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.session.principal");
+        this.invalidations = Counter.builder("gateway.session.principal.invalidations")
+                .description("Cached session principals evicted because the session was deleted or expired")
+                .register(meterRegistry);
+        this.sessionLoads = Timer.builder("gateway.session.load")
+                .description("Loading the security context from the Redis session on a cache miss")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        String sessionId = requestedSessionId(request);
+        Authentication cached = sessionId != null ? cache.getIfPresent(sessionId) : null;
+        if (cached != null) {
+            return new LoadedContext(new SecurityContextImpl(cached));
+        }
+
+        DeferredSecurityContext loaded = delegate.loadDeferredContext(request);
+        return new DeferredSecurityContext() {
+            private SecurityContext context;
+
+            @Override
+            public SecurityContext get() {
+                if (context == null) {
+                    context = sessionLoads.record(loaded::get);
+                    remember(request, context);
+                }
+                return context;
+            }
+
+            @Override
+            public boolean isGenerated() {
+                return loaded.isGenerated();
+            }
+        };
+    }
+
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        return delegate.loadContext(requestResponseHolder);
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        delegate.saveContext(context, request, response);
+        String sessionId = requestedSessionId(request);
+        if (sessionId != null) {
+            cache.invalidate(sessionId);
+        }
+        remember(request, context);
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        String sessionId = requestedSessionId(request);
+        return (sessionId != null && cache.getIfPresent(sessionId) != null) || delegate.containsContext(request);
+    }
+
+    /**
+     * Drops the cached principal of a session that was logged out.
+     */
+    public void evict(HttpServletRequest request) {
+        String sessionId = requestedSessionId(request);
+        if (sessionId != null) {
+            cache.invalidate(sessionId);
+        }
+    }
+
+    @EventListener
+    public void onSessionDestroyed(SessionDestroyedEvent event) {
+        if (cache.asMap().remove(event.getSessionId()) != null) {
+            invalidations.increment();
+            log.debug("Evicted cached principal of session {}", event.getSessionId());
+        }
+    }
+
+    private void remember(HttpServletRequest request, SecurityContext context) {
+        Authentication authentication = context != null ? context.getAuthentication() : null;
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return;
+        }
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            cache.put(session.getId(), authentication);
+        }
+    }
+
+    private String requestedSessionId(HttpServletRequest request) {
+        List<String> sessionIds = sessionIdResolver.resolveSessionIds(request);
+        return sessionIds.isEmpty() ? null : sessionIds.get(0);
+    }
+
+    private record LoadedContext(SecurityContext context) implements DeferredSecurityContext {
+
+        @Override
+        public SecurityContext get() {
+            return context;
+        }
+
+        @Override
+        public boolean isGenerated() {
+            return false;
+        }
+    }
+}
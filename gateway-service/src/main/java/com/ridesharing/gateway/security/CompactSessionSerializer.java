@@ -0,0 +1,168 @@
+package com.ridesharing.gateway.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializer for session attributes stored in Redis.
+ * <p>
+ * The security context and the plain values Spring Session keeps per session (times and
+ * intervals) are written in a small versioned binary format. The security context carries
+ * only the user id, username and role as tagged fields; readers skip tags they do not
+ * know, so fields can be added without breaking older instances. Anything else falls back
+ * to JDK serialization, and values written by JDK serialization (recognized by the stream
+ * magic {@code 0xACED}) are still read, so sessions created before this format keep working
+ * until they expire.
+ */
+public class CompactSessionSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = (byte) 0xC5;
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final byte TYPE_SECURITY_CONTEXT = 4;
+
+    private static final byte FIELD_END = 0;
+    private static final byte FIELD_USER_ID = 1;
+    private static final byte FIELD_USERNAME = 2;
+    private static final byte FIELD_ROLE = 3;
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+    private final Counter legacyReads;
+
+    public CompactSessionSerializer(MeterRegistry meterRegistry) {
+        this.legacyReads = Counter.builder("gateway.session.codec.legacy.reads")
+                .description("Session attributes read in the previous JDK serialization format")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (value instanceof Long longValue) {
+                writeHeader(out, TYPE_LONG);
+                out.writeLong(longValue);
+            } else if (value instanceof Integer intValue) {
+                writeHeader(out, TYPE_INT);
+                out.writeInt(intValue);
+            } else if (value instanceof String stringValue) {
+                writeHeader(out, TYPE_STRING);
+                out.writeUTF(stringValue);
+            } else if (value instanceof SecurityContext context && isCompact(context)) {
+                writeHeader(out, TYPE_SECURITY_CONTEXT);
+                writeSecurityContext(out, (CustomUserDetails) context.getAuthentication().getPrincipal());
+            } else {
+                return jdkSerializer.serialize(value);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Could not serialize session attribute", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            legacyReads.increment();
+            return jdkSerializer.deserialize(bytes);
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            in.readByte();
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new SerializationException("Unsupported session attribute format version " + version);
+            }
+            byte type = in.readByte();
+            return switch (type) {
+                case TYPE_LONG -> in.readLong();
+                case TYPE_INT -> in.readInt();
+                case TYPE_STRING -> in.readUTF();
+                case TYPE_SECURITY_CONTEXT -> readSecurityContext(in);
+                default -> throw new SerializationException("Unknown session attribute type " + type);
+            };
+        } catch (IOException e) {
+            throw new SerializationException("Could not deserialize session attribute", e);
+        }
+    }
+
+    private static boolean isCompact(SecurityContext context) {
+        Authentication authentication = context.getAuthentication();
+        return authentication instanceof UsernamePasswordAuthenticationToken
+                && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof CustomUserDetails;
+    }
+
+    private static void writeHeader(DataOutputStream out, byte type) throws IOException {
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(type);
+    }
+
+    private static void writeSecurityContext(DataOutputStream out, CustomUserDetails user) throws IOException {
+        out.writeByte(FIELD_USER_ID);
+        out.writeShort(Long.BYTES);
+        out.writeLong(user.getId());
+        writeStringField(out, FIELD_USERNAME, user.getUsername());
+        writeStringField(out, FIELD_ROLE, user.getRole());
+        out.writeByte(FIELD_END);
+    }
+
+    private static void writeStringField(DataOutputStream out, byte tag, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(tag);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static SecurityContext readSecurityContext(DataInputStream in) throws IOException {
+        Long id = null;
+        String username = null;
+        String role = null;
+
+        byte tag;
+        while ((tag = in.readByte()) != FIELD_END) {
+            byte[] field = new byte[in.readUnsignedShort()];
+            in.readFully(field);
+            switch (tag) {
+                case FIELD_USER_ID -> id = new DataInputStream(new ByteArrayInputStream(field)).readLong();
+                case FIELD_USERNAME -> username = new String(field, StandardCharsets.UTF_8);
+                case FIELD_ROLE -> role = new String(field, StandardCharsets.UTF_8);
+                default -> {
+                    // Written by a newer version, not needed here
+                }
+            }
+        }
+        if (id == null || username == null || role == null) {
+            throw new SerializationException("Incomplete security context in session");
+        }
+
+        CustomUserDetails user = new CustomUserDetails(id, username, role);
+        return new SecurityContextImpl(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+    }
+}
@@ -34,6 +34,20 @@ public class CustomUserDetails implements UserDetails, Serializable {
         this.enabled = user.getEnabled();
     }
     
+    /**
+     * Principal restored from a session. Sessions only carry what requests need,
+     * so the password, email and phone are not available.
+     */
+    public CustomUserDetails(Long id, String username, String role) {
+        this.id = id;
+        this.username = username;
+        this.password = null;
+        this.email = null;
+        this.phone = null;
+        this.role = role;
+        this.enabled = true;
+    }
+    
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role));
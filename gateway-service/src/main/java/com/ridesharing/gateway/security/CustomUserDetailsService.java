@@ -6,6 +6,7 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -14,11 +15,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     
     private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
     
     private final UserRepository userRepository;
+    private final CaffeineUserCache userCache;
     
     @Override
     @Transactional(readOnly = true)
@@ -31,7 +33,21 @@ public class CustomUserDetailsService implements UserDetailsService {
                     return new UsernameNotFoundException("User not found: " + username);
                 });
         
-        log.info("User loaded: {}, role: {}", user.getUsername(), user.getRole());
+        log.debug("User loaded: {}, role: {}", user.getUsername(), user.getRole());
         return new CustomUserDetails(user);
     }
+    
+    /**
+     * Stores a password hash re-encoded at the current BCrypt strength after a successful login.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        userCache.removeUserFromCache(user.getUsername());
+        log.info("Password hash upgraded for user: {}", user.getUsername());
+        return userRepository.findByUsername(user.getUsername())
+                .map(CustomUserDetails::new)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + user.getUsername()));
+    }
 }
@@ -0,0 +1,188 @@
+package com.ridesharing.gateway.security;
+
+import com.ridesharing.gateway.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password verification and hashing on a small dedicated pool.
+ * <p>
+ * BCrypt is deliberately CPU-bound, so a burst of logins or registrations on request threads
+ * would starve all other traffic. The work is queued for a fixed number of threads instead;
+ * when the queue is full, or the work waits longer than {@code queue-timeout}, the request
+ * is shed with 429. Concurrent attempts for the same username or from the same client
+ * address are capped, so retries and duplicate submissions do not hash the same password
+ * several times at once. The client address is the one Tomcat resolved from
+ * {@code X-Forwarded-For} for trusted proxies; a {@code max-per-address} of 0 turns the
+ * address limit off, for deployments where it cannot see the real client address.
+ */
+@Component
+@Log4j2
+public class PasswordVerificationPool {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration queueTimeout;
+    private final int maxPerUsername;
+    private final int maxPerAddress;
+
+    private final ConcurrentMap<String, Integer> inFlightByUsername = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> inFlightByAddress = new ConcurrentHashMap<>();
+
+    private final Timer verifyTimer;
+    private final Timer hashTimer;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+    private final Counter rejectedUsername;
+    private final Counter rejectedAddress;
+
+    public PasswordVerificationPool(MeterRegistry meterRegistry,
+                                    @Value("${gateway.auth.verification.threads:0}") int threads,
+                                    @Value("${gateway.auth.verification.queue-capacity:200}") int queueCapacity,
+                                    @Value("${gateway.auth.verification.queue-timeout:3s}") Duration queueTimeout,
+                                    @Value("${gateway.auth.verification.max-per-username:1}") int maxPerUsername,
+                                    @Value("${gateway.auth.verification.max-per-address:4}") int maxPerAddress) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verify-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.queueTimeout = queueTimeout;
+        this.maxPerUsername = maxPerUsername;
+        this.maxPerAddress = maxPerAddress;
+
+        this.verifyTimer = Timer.builder("gateway.auth.password.verify")
+                .description("Time spent verifying login credentials on the verification pool")
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("gateway.auth.password.hash")
+                .description("Time spent hashing registration passwords on the verification pool")
+                .register(meterRegistry);
+        Gauge.builder("gateway.auth.password.queue", executor, pool -> pool.getQueue().size())
+                .description("Logins and registrations waiting for the verification pool")
+                .register(meterRegistry);
+        Gauge.builder("gateway.auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password verifications and hashes in progress")
+                .register(meterRegistry);
+        this.rejectedQueueFull = rejectedCounter(meterRegistry, "queue_full");
+        this.rejectedTimeout = rejectedCounter(meterRegistry, "timeout");
+        this.rejectedUsername = rejectedCounter(meterRegistry, "username_limit");
+        this.rejectedAddress = rejectedCounter(meterRegistry, "address_limit");
+
+        log.info("Password verification pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Runs the verification on the pool and waits for its result. Runtime exceptions
+     * thrown by the verification (such as bad credentials) are rethrown as they are.
+     */
+    public <T> T verify(String username, String clientAddress, Callable<T> verification) {
+        return run(username, clientAddress, verification, verifyTimer);
+    }
+
+    /**
+     * Runs the hashing of a new password on the pool and waits for its result, under the
+     * same limits as logins.
+     */
+    public <T> T hash(String username, String clientAddress, Callable<T> hashing) {
+        return run(username, clientAddress, hashing, hashTimer);
+    }
+
+    private <T> T run(String username, String clientAddress, Callable<T> work, Timer timer) {
+        if (!acquire(inFlightByUsername, username, maxPerUsername)) {
+            rejectedUsername.increment();
+            throw new TooManyRequestsException("A request for this user is already in progress");
+        }
+        try {
+            boolean limitAddress = maxPerAddress > 0;
+            if (limitAddress && !acquire(inFlightByAddress, clientAddress, maxPerAddress)) {
+                rejectedAddress.increment();
+                throw new TooManyRequestsException("Too many concurrent logins from this address");
+            }
+            try {
+                return submitAndWait(work, timer);
+            } finally {
+                if (limitAddress) {
+                    release(inFlightByAddress, clientAddress);
+                }
+            }
+        } finally {
+            release(inFlightByUsername, username);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T submitAndWait(Callable<T> work, Timer timer) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.recordCallable(work));
+        } catch (RejectedExecutionException e) {
+            rejectedQueueFull.increment();
+            throw new TooManyRequestsException("Login service is busy, please retry");
+        }
+
+        try {
+            return future.get(queueTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password verification failed", e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedTimeout.increment();
+            throw new TooManyRequestsException("Login service is busy, please retry");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new TooManyRequestsException("Login was interrupted, please retry");
+        }
+    }
+
+    private static boolean acquire(ConcurrentMap<String, Integer> inFlight, String key, int limit) {
+        boolean[] acquired = new boolean[1];
+        inFlight.compute(key, (k, count) -> {
+            int current = count != null ? count : 0;
+            acquired[0] = current < limit;
+            return acquired[0] ? current + 1 : count;
+        });
+        return acquired[0];
+    }
+
+    private static void release(ConcurrentMap<String, Integer> inFlight, String key) {
+        inFlight.computeIfPresent(key, (k, count) -> count <= 1 ? null : count - 1);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("gateway.auth.password.rejected")
+                .description("Logins shed before password verification")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
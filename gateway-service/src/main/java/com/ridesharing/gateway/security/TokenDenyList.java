@@ -0,0 +1,136 @@
+package com.ridesharing.gateway.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked token and token family ids, held in memory on every gateway instance.
+ * <p>
+ * Entries are only kept until the revoked tokens would have expired anyway, so the list
+ * stays small. Revocations are stored in a Redis sorted set scored by expiry and announced
+ * on a pub/sub channel; instances apply announcements as they arrive and periodically
+ * reload the set to catch anything missed while disconnected. Checking a token never
+ * touches Redis, and verification keeps working if Redis is down.
+ */
+@Component
+@Log4j2
+public class TokenDenyList {
+
+    private static final String DENY_LIST_KEY = "ridesharing:auth:denied-tokens";
+    private static final String CHANNEL = "ridesharing:auth:token-revoked";
+
+    private final boolean enabled;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final Map<String, Long> denied = new ConcurrentHashMap<>();
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    public TokenDenyList(@Value("${gateway.auth.mode:session}") AuthMode mode,
+                         StringRedisTemplate redisTemplate,
+                         RedisConnectionFactory connectionFactory,
+                         MeterRegistry meterRegistry) {
+        this.enabled = mode == AuthMode.TOKEN;
+        this.redisTemplate = redisTemplate;
+        this.connectionFactory = connectionFactory;
+        Gauge.builder("gateway.auth.denied.tokens", denied, Map::size)
+                .description("Revoked token ids held in the local deny-list")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener(
+                (message, pattern) -> apply(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        sync();
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    /**
+     * Revokes a token or token family id until {@code expiresAt}.
+     */
+    public void revoke(String id, Instant expiresAt) {
+        long expiry = expiresAt.getEpochSecond();
+        denied.merge(id, expiry, Math::max);
+        try {
+            redisTemplate.opsForZSet().add(DENY_LIST_KEY, id, expiry);
+            redisTemplate.convertAndSend(CHANNEL, id + ":" + expiry);
+        } catch (Exception e) {
+            // Applied locally; other instances pick it up on their next sync
+            log.warn("Could not share token revocation: {}", e.getMessage());
+        }
+    }
+
+    public boolean isRevoked(AuthToken token) {
+        return denied.containsKey(token.tokenId()) || denied.containsKey(token.familyId());
+    }
+
+    /**
+     * Reloads the revocations from Redis and drops entries that have expired.
+     */
+    @Scheduled(fixedDelayString = "${gateway.auth.token.deny-list-sync-interval-ms:60000}")
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        long now = Instant.now().getEpochSecond();
+        denied.values().removeIf(expiry -> expiry <= now);
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(DENY_LIST_KEY, Double.NEGATIVE_INFINITY, now);
+            Set<ZSetOperations.TypedTuple<String>> entries =
+                    redisTemplate.opsForZSet().rangeByScoreWithScores(DENY_LIST_KEY, now, Double.POSITIVE_INFINITY);
+            if (entries != null) {
+                for (ZSetOperations.TypedTuple<String> entry : entries) {
+                    if (entry.getValue() != null && entry.getScore() != null) {
+                        denied.merge(entry.getValue(), entry.getScore().longValue(), Math::max);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not sync token deny-list from Redis: {}", e.getMessage());
+        }
+    }
+
+    private void apply(String message) {
+        int separator = message.lastIndexOf(':');
+        if (separator <= 0) {
+            return;
+        }
+        try {
+            denied.merge(message.substring(0, separator), Long.parseLong(message.substring(separator + 1)), Math::max);
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring malformed token revocation: {}", message);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.ridesharing.gateway.security;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies the signed tokens used in {@link AuthMode#TOKEN} mode.
+ * <p>
+ * A token is {@code base64url(payload).base64url(HMAC-SHA256(payload))}, where the payload
+ * is a small versioned binary record with the token and user fields. Verification needs
+ * only the shared secret, so no storage is consulted per request; revoked tokens are
+ * rejected through the {@link TokenDenyList}.
+ */
+@Component
+@Log4j2
+public class TokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Mac> mac;
+
+    public TokenService(@Value("${gateway.auth.mode:session}") AuthMode mode,
+                        @Value("${gateway.auth.token.secret:}") String secret,
+                        @Value("${gateway.auth.token.access-ttl:15m}") Duration accessTtl,
+                        @Value("${gateway.auth.token.refresh-ttl:7d}") Duration refreshTtl) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (mode == AuthMode.TOKEN && secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("gateway.auth.token.secret must be at least " + MIN_SECRET_BYTES + " bytes in token mode");
+        }
+        // Session mode never issues tokens; a throwaway key keeps the bean usable
+        if (secretBytes.length == 0) {
+            secretBytes = new byte[MIN_SECRET_BYTES];
+            random.nextBytes(secretBytes);
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public Duration getAccessTtl() {
+        return accessTtl;
+    }
+
+    public Duration getRefreshTtl() {
+        return refreshTtl;
+    }
+
+    /**
+     * Issues an access and a refresh token for the user. Pass {@code null} as
+     * {@code familyId} to start a new family, or the family of the refresh token being
+     * rotated to continue it.
+     */
+    public TokenPair issuePair(CustomUserDetails user, String familyId) {
+        String family = familyId != null ? familyId : newId();
+        return new TokenPair(issue(AuthToken.Type.ACCESS, user, family), issue(AuthToken.Type.REFRESH, user, family));
+    }
+
+    private String issue(AuthToken.Type type, CustomUserDetails user, String familyId) {
+        Instant now = Instant.now();
+        AuthToken token = new AuthToken(
+                type,
+                newId(),
+                familyId,
+                user.getId(),
+                user.getUsername(),
+                user.getRole(),
+                now,
+                now.plus(type == AuthToken.Type.ACCESS ? accessTtl : refreshTtl));
+
+        byte[] payload = encode(token);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Returns the token if it is well formed, correctly signed, of the expected type
+     * and not expired.
+     */
+    public Optional<AuthToken> verify(String value, AuthToken.Type expectedType) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        int dot = value.indexOf('.');
+        if (dot <= 0 || dot == value.length() - 1) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] payload = DECODER.decode(value.substring(0, dot));
+            byte[] signature = DECODER.decode(value.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return Optional.empty();
+            }
+            AuthToken token = decode(payload);
+            if (token.type() != expectedType || !token.expiresAt().isAfter(Instant.now())) {
+                return Optional.empty();
+            }
+            return Optional.of(token);
+        } catch (IllegalArgumentException | IOException e) {
+            log.debug("Rejected malformed token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static byte[] encode(AuthToken token) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeByte(token.type().ordinal());
+            out.writeUTF(token.tokenId());
+            out.writeUTF(token.familyId());
+            out.writeLong(token.userId());
+            out.writeUTF(token.username());
+            out.writeUTF(token.role());
+            out.writeLong(token.issuedAt().getEpochSecond());
+            out.writeLong(token.expiresAt().getEpochSecond());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode token", e);
+        }
+    }
+
+    private static AuthToken decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported token version " + version);
+        }
+        int type = in.readUnsignedByte();
+        if (type >= AuthToken.Type.values().length) {
+            throw new IOException("Unknown token type " + type);
+        }
+        return new AuthToken(
+                AuthToken.Type.values()[type],
+                in.readUTF(),
+                in.readUTF(),
+                in.readLong(),
+                in.readUTF(),
+                in.readUTF(),
+                Instant.ofEpochSecond(in.readLong()),
+                Instant.ofEpochSecond(in.readLong()));
+    }
+
+    private byte[] sign(byte[] payload) {
+        return mac.get().doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private String newId() {
+        byte[] id = new byte[12];
+        random.nextBytes(id);
+        return ENCODER.encodeToString(id);
+    }
+
+    public record TokenPair(String accessToken, String refreshToken) {
+    }
+}
@@ -6,13 +6,18 @@ import com.ridesharing.gateway.exception.BadRequestException;
 import com.ridesharing.gateway.exception.ConflictException;
 import com.ridesharing.gateway.exception.UnauthorizedException;
 import com.ridesharing.gateway.repository.UserRepository;
+import com.ridesharing.gateway.security.AuthMode;
+import com.ridesharing.gateway.security.AuthToken;
 import com.ridesharing.gateway.security.CustomUserDetails;
+import com.ridesharing.gateway.security.PasswordVerificationPool;
+import com.ridesharing.gateway.security.TokenDenyList;
+import com.ridesharing.gateway.security.TokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -24,9 +29,10 @@ import org.springframework.security.web.context.HttpSessionSecurityContextReposi
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+
 
 @Service
-@RequiredArgsConstructor
 @Log4j2
 public class AuthService {
     
@@ -34,19 +40,66 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final PasswordVerificationPool passwordVerificationPool;
+    private final TakenAccountFilter takenAccountFilter;
+    private final TokenService tokenService;
+    private final TokenDenyList tokenDenyList;
+    private final AuthMode authMode;
     
     private static final long SESSION_TIMEOUT = 3600L; // 1 hour in seconds
     
-    @Transactional(readOnly = true)
+    // Names PostgreSQL gave the unique constraints on gateway.users
+    private static final String USERNAME_CONSTRAINT = "users_username_key";
+    private static final String EMAIL_CONSTRAINT = "users_email_key";
+    
+    public AuthService(UserRepository userRepository,
+                       PasswordEncoder passwordEncoder,
+                       AuthenticationManager authenticationManager,
+                       PasswordVerificationPool passwordVerificationPool,
+                       TakenAccountFilter takenAccountFilter,
+                       TokenService tokenService,
+                       TokenDenyList tokenDenyList,
+                       @Value("${gateway.auth.mode:session}") AuthMode authMode) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.authenticationManager = authenticationManager;
+        this.passwordVerificationPool = passwordVerificationPool;
+        this.takenAccountFilter = takenAccountFilter;
+        this.tokenService = tokenService;
+        this.tokenDenyList = tokenDenyList;
+        this.authMode = authMode;
+    }
+    
+    /**
+     * Not transactional: the request waits for the verification pool, whose threads need
+     * connections for the user lookup, so it must not hold one of its own while it waits.
+     */
     public LoginResponse login(LoginRequest request, HttpServletRequest httpRequest) {
-        log.info("Login attempt for user: {}", request.getUsername());
+        log.debug("Login attempt for user: {}", request.getUsername());
         
         try {
-            // Authenticate using Spring Security
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
+            // Authenticate using Spring Security, hashing on the verification pool instead of the request thread
+            Authentication authentication = passwordVerificationPool.verify(
+                    request.getUsername(),
+                    httpRequest.getRemoteAddr(),
+                    () -> authenticationManager.authenticate(
+                            new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()))
             );
             
+            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+            UserResponse userResponse = UserResponse.builder()
+                    .id(userDetails.getId())
+                    .username(userDetails.getUsername())
+                    .email(userDetails.getEmail())
+                    .phone(userDetails.getPhone())
+                    .role(Role.valueOf(userDetails.getRole()))
+                    .build();
+            
+            if (authMode == AuthMode.TOKEN) {
+                log.info("Login successful for user: {}, issuing tokens", request.getUsername());
+                return issueTokens(userDetails, null, userResponse);
+            }
+            
             // Set authentication in SecurityContext
             SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
             securityContext.setAuthentication(authentication);
@@ -57,15 +110,6 @@ public class AuthService {
             session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, securityContext);
             session.setMaxInactiveInterval((int) SESSION_TIMEOUT);
             
-            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            UserResponse userResponse = UserResponse.builder()
-                    .id(userDetails.getId())
-                    .username(userDetails.getUsername())
-                    .email(userDetails.getEmail())
-                    .phone(userDetails.getPhone())
-                    .role(Role.valueOf(userDetails.getRole()))
-                    .build();
-            
             log.info("Login successful for user: {}, session: {}", request.getUsername(), session.getId());
             return LoginResponse.of(session.getId(), SESSION_TIMEOUT, userResponse);
             
@@ -75,30 +119,82 @@ public class AuthService {
         }
     }
     
-    @Transactional
-    public UserResponse register(RegisterRequest request) {
-        log.info("Registration attempt for user: {}, role: {}", request.getUsername(), request.getRole());
+    /**
+     * Exchanges a refresh token for a new token pair. The refresh token is rotated: the one
+     * presented is revoked, and the user is re-read so disabled accounts stop getting tokens.
+     */
+    @Transactional(readOnly = true)
+    public LoginResponse refresh(RefreshRequest request) {
+        if (authMode != AuthMode.TOKEN) {
+            throw new BadRequestException("Token authentication is not enabled");
+        }
+        
+        AuthToken refreshToken = tokenService.verify(request.getRefreshToken(), AuthToken.Type.REFRESH)
+                .filter(token -> !tokenDenyList.isRevoked(token))
+                .orElseThrow(() -> new UnauthorizedException("Invalid or expired refresh token"));
+        
+        User user = userRepository.findById(refreshToken.userId())
+                .filter(found -> Boolean.TRUE.equals(found.getEnabled()))
+                .orElseThrow(() -> new UnauthorizedException("Invalid or expired refresh token"));
+        
+        tokenDenyList.revoke(refreshToken.tokenId(), refreshToken.expiresAt());
+        log.debug("Refreshing tokens for user: {}", user.getUsername());
+        return issueTokens(new CustomUserDetails(user), refreshToken.familyId(), mapToUserResponse(user));
+    }
+    
+    /**
+     * Revokes the access token and every token issued with it, including refresh tokens.
+     */
+    public void revokeTokens(String accessToken) {
+        tokenService.verify(accessToken, AuthToken.Type.ACCESS).ifPresent(token -> {
+            tokenDenyList.revoke(token.familyId(), Instant.now().plus(tokenService.getRefreshTtl()));
+            log.info("Revoked tokens for user: {}", token.username());
+        });
+    }
+    
+    /**
+     * Not transactional for the same reason as {@link #login}: the password is hashed on the
+     * verification pool, and no connection is held while waiting for it. The unique
+     * constraints, not a transaction, settle concurrent registrations.
+     */
+    public UserResponse register(RegisterRequest request, HttpServletRequest httpRequest) {
+        log.debug("Registration attempt for user: {}, role: {}", request.getUsername(), request.getRole());
         
-        if (userRepository.existsByUsername(request.getUsername())) {
+        // Only values the filter may have seen need a lookup; everything else goes straight to the insert
+        if (takenAccountFilter.mightHaveUsername(request.getUsername())
+                && userRepository.existsByUsername(request.getUsername())) {
             log.warn("Registration failed: Username already exists - {}", request.getUsername());
             throw new ConflictException("Username already exists");
         }
         
-        if (userRepository.existsByEmail(request.getEmail())) {
+        if (takenAccountFilter.mightHaveEmail(request.getEmail())
+                && userRepository.existsByEmail(request.getEmail())) {
             log.warn("Registration failed: Email already exists - {}", request.getEmail());
             throw new ConflictException("Email already exists");
         }
         
         User user = User.builder()
                 .username(request.getUsername())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordVerificationPool.hash(
+                        request.getUsername(),
+                        httpRequest.getRemoteAddr(),
+                        () -> passwordEncoder.encode(request.getPassword())))
                 .email(request.getEmail())
                 .phone(request.getPhone())
                 .role(request.getRole())
                 .enabled(true)
                 .build();
         
-        User savedUser = userRepository.save(user);
+        // The unique constraints settle concurrent registrations of the same username or email
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            String message = conflictMessage(e);
+            log.warn("Registration failed: {} - {}", message, request.getUsername());
+            throw new ConflictException(message);
+        }
+        takenAccountFilter.add(savedUser.getUsername(), savedUser.getEmail());
         log.info("User registered successfully: {}, id: {}", savedUser.getUsername(), savedUser.getId());
         
         return mapToUserResponse(savedUser);
@@ -107,6 +203,26 @@ public class AuthService {
 
 
     
+    private static String conflictMessage(DataIntegrityViolationException e) {
+        String constraint = e.getCause() instanceof ConstraintViolationException violation
+                ? violation.getConstraintName()
+                : null;
+        String detail = constraint != null ? constraint : String.valueOf(e.getMostSpecificCause().getMessage());
+        if (detail.contains(USERNAME_CONSTRAINT) || detail.contains("(username)")) {
+            return "Username already exists";
+        }
+        if (detail.contains(EMAIL_CONSTRAINT) || detail.contains("(email)")) {
+            return "Email already exists";
+        }
+        return "Account already exists";
+    }
+    
+    private LoginResponse issueTokens(CustomUserDetails user, String familyId, UserResponse userResponse) {
+        TokenService.TokenPair tokens = tokenService.issuePair(user, familyId);
+        return LoginResponse.ofTokens(tokens.accessToken(), tokens.refreshToken(),
+                tokenService.getAccessTtl().toSeconds(), userResponse);
+    }
+    
     private UserResponse mapToUserResponse(User user) {
         return UserResponse.builder()
                 .id(user.getId())
@@ -0,0 +1,74 @@
+package com.ridesharing.gateway.service;
+
+import com.ridesharing.gateway.repository.UserRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filters over the usernames and emails that are already registered.
+ * <p>
+ * A negative answer is definite, so registration can skip the existence checks and go
+ * straight to the insert. Only a positive answer, which may be a false positive, is
+ * confirmed with a query. The filters are built from the users table at startup; until
+ * then every value counts as possibly taken.
+ */
+@Component
+@Log4j2
+public class TakenAccountFilter {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BloomFilter usernames;
+    private final BloomFilter emails;
+
+    private volatile boolean ready;
+
+    public TakenAccountFilter(UserRepository userRepository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${gateway.registration.bloom.expected-users:1000000}") long expectedUsers,
+                              @Value("${gateway.registration.bloom.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.usernames = new BloomFilter(expectedUsers, falsePositiveRate);
+        this.emails = new BloomFilter(expectedUsers, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        AtomicLong count = new AtomicLong();
+        transactionTemplate.execute(status -> {
+            try (Stream<String> all = userRepository.streamAllUsernames()) {
+                all.forEach(username -> {
+                    usernames.add(username);
+                    count.incrementAndGet();
+                });
+            }
+            try (Stream<String> all = userRepository.streamAllEmails()) {
+                all.forEach(emails::add);
+            }
+            return null;
+        });
+        ready = true;
+        log.info("Registration filter built from {} users", count.get());
+    }
+
+    public boolean mightHaveUsername(String username) {
+        return !ready || usernames.mightContain(username);
+    }
+
+    public boolean mightHaveEmail(String email) {
+        return !ready || emails.mightContain(email);
+    }
+
+    public void add(String username, String email) {
+        usernames.add(username);
+        emails.add(email);
+    }
+}
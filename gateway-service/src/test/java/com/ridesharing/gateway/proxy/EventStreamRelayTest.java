@@ -0,0 +1,334 @@
+package com.ridesharing.gateway.proxy;
+
+import com.ridesharing.gateway.controller.DriverProxyController;
+import com.ridesharing.gateway.security.CustomUserDetails;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relays the ride feed through a real Tomcat with only two request threads, from an
+ * in-process stand-in for Driver Service whose streams stay open until a test releases them.
+ */
+@SpringBootTest(
+        classes = EventStreamRelayTest.TestApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "server.tomcat.threads.max=2",
+                "server.tomcat.threads.min-spare=1",
+                "gateway.event-stream.max-streams=3",
+                "gateway.event-stream.response-timeout=2s"
+        })
+class EventStreamRelayTest {
+
+    private static final HttpServer DRIVER_SERVICE = startDriverService();
+    private static final BlockingQueue<Map<String, String>> UPSTREAM_REQUESTS = new LinkedBlockingQueue<>();
+    private static final Map<String, CountDownLatch> RELEASES = new ConcurrentHashMap<>();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<InputStream> openStreams = new ArrayList<>();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void driverServiceUrl(DynamicPropertyRegistry registry) {
+        registry.add("driver-service.url", () -> "http://localhost:" + DRIVER_SERVICE.getAddress().getPort());
+    }
+
+    @AfterEach
+    void closeStreams() throws IOException {
+        RELEASES.values().forEach(CountDownLatch::countDown);
+        for (InputStream stream : openStreams) {
+            stream.close();
+        }
+        UPSTREAM_REQUESTS.clear();
+    }
+
+    @AfterAll
+    static void stopDriverService() {
+        DRIVER_SERVICE.stop(0);
+    }
+
+    @Test
+    void streamsEventsAsTheyArriveAndForwardsTheResumeAndUserHeaders() throws Exception {
+        CountDownLatch release = release("resume");
+        HttpResponse<InputStream> response = openFeed("stream=resume&cursor=7", "41");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+                contentType -> assertThat(contentType).startsWith("text/event-stream"));
+
+        BufferedReader reader = reader(response);
+        // The first event arrives while Driver Service still holds the stream open
+        assertThat(readFrame(reader)).containsExactly("id:42", "event:RIDE_REQUESTED", "data:{\"sequence\":42}");
+
+        Map<String, String> upstream = UPSTREAM_REQUESTS.poll(5, TimeUnit.SECONDS);
+        assertThat(upstream).containsEntry("query", "stream=resume&cursor=7")
+                .containsEntry("Last-Event-ID", "41")
+                .containsEntry("X-User-Id", "5")
+                .containsEntry("X-User-Role", "DRIVER")
+                .containsEntry("Accept", "text/event-stream");
+
+        release.countDown();
+        List<String> frame = readFrame(reader);
+        while (frame.contains("event:HEARTBEAT")) {
+            frame = readFrame(reader);
+        }
+        assertThat(frame).containsExactly("id:43", "event:RESET", "data:{\"sequence\":43}");
+        assertThat(reader.readLine()).isNull();
+        awaitActiveStreams(0);
+    }
+
+    @Test
+    void openStreamsDoNotHoldRequestThreadsAndAreBounded() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            release("held-" + i);
+            HttpResponse<InputStream> response = openFeed("stream=held-" + i, null);
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(readFrame(reader(response))).contains("id:42");
+        }
+        awaitActiveStreams(3);
+
+        // Three open streams and only two request threads, yet the next request is still served
+        HttpResponse<String> rejected = client.send(feedRequest("stream=held-3", null),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(rejected.statusCode()).isEqualTo(503);
+        assertThat(rejected.body()).isEqualTo("{\"success\":false,\"message\":\"Driver Service unavailable\"}");
+        assertThat(meterRegistry.get("gateway.event-stream.rejected").counter().count()).isEqualTo(1);
+
+        RELEASES.get("held-0").countDown();
+        awaitActiveStreams(2);
+        HttpResponse<InputStream> reopened = openFeed("stream=held-4", null);
+        assertThat(reopened.statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void closingTheClientReleasesTheStream() throws Exception {
+        release("abandoned");
+        HttpResponse<InputStream> response = openFeed("stream=abandoned", null);
+        assertThat(readFrame(reader(response))).contains("id:42");
+        awaitActiveStreams(1);
+
+        response.body().close();
+
+        // The relay notices on its next write; Driver Service keeps sending heartbeats
+        awaitActiveStreams(0);
+    }
+
+    @Test
+    void passesThroughAnErrorStatusFromDriverService() throws Exception {
+        HttpResponse<String> response = client.send(feedRequest("status=400", null), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/json");
+        assertThat(response.body()).isEqualTo("{\"success\":false,\"message\":\"Invalid radius\"}");
+        awaitActiveStreams(0);
+    }
+
+    @Test
+    void answersUnavailableWhenDriverServiceDropsTheConnection() throws Exception {
+        HttpResponse<String> response = client.send(feedRequest("drop=true", null), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(503);
+        assertThat(response.body()).isEqualTo("{\"success\":false,\"message\":\"Driver Service unavailable\"}");
+        awaitActiveStreams(0);
+    }
+
+    private HttpResponse<InputStream> openFeed(String query, String lastEventId) throws Exception {
+        HttpResponse<InputStream> response = client.send(feedRequest(query, lastEventId),
+                HttpResponse.BodyHandlers.ofInputStream());
+        openStreams.add(response.body());
+        return response;
+    }
+
+    private HttpRequest feedRequest(String query, String lastEventId) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(
+                        "http://localhost:" + port + "/api/driver/rides/feed?" + query))
+                .timeout(Duration.ofSeconds(5))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return builder.GET().build();
+    }
+
+    private void awaitActiveStreams(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (activeStreams() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(activeStreams()).isEqualTo(expected);
+    }
+
+    private int activeStreams() {
+        return (int) meterRegistry.get("gateway.event-stream.active").gauge().value();
+    }
+
+    private static CountDownLatch release(String stream) {
+        return RELEASES.computeIfAbsent(stream, key -> new CountDownLatch(1));
+    }
+
+    private static BufferedReader reader(HttpResponse<InputStream> response) {
+        return new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+    }
+
+    private static List<String> readFrame(BufferedReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static HttpServer startDriverService() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/api/driver/rides/feed", EventStreamRelayTest::feed);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void feed(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query.startsWith("drop")) {
+            exchange.close();
+            return;
+        }
+        if (query.startsWith("status")) {
+            byte[] body = "{\"success\":false,\"message\":\"Invalid radius\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(400, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return;
+        }
+
+        UPSTREAM_REQUESTS.add(Map.of(
+                "query", query,
+                "Last-Event-ID", String.valueOf(exchange.getRequestHeaders().getFirst("Last-Event-ID")),
+                "X-User-Id", String.valueOf(exchange.getRequestHeaders().getFirst("X-User-Id")),
+                "X-User-Role", String.valueOf(exchange.getRequestHeaders().getFirst("X-User-Role")),
+                "Accept", String.valueOf(exchange.getRequestHeaders().getFirst("Accept"))));
+
+        CountDownLatch release = release(query.substring("stream=".length()).split("&")[0]);
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            write(out, "id:42\nevent:RIDE_REQUESTED\ndata:{\"sequence\":42}\n\n");
+            while (!release.await(50, TimeUnit.MILLISECONDS)) {
+                write(out, "event:HEARTBEAT\ndata:{\"sequence\":42}\n\n");
+            }
+            write(out, "id:43\nevent:RESET\ndata:{\"sequence\":43}\n\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // The gateway closed the stream
+        }
+    }
+
+    private static void write(OutputStream out, String frame) throws IOException {
+        out.write(frame.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            JacksonAutoConfiguration.class
+    })
+    @Import({DriverProxyController.class, EventStreamRelay.class})
+    static class TestApplication implements WebMvcConfigurer {
+
+        @MockBean
+        private ProxyEngine proxyEngine;
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        /**
+         * Stands in for the security filter chain with an authenticated driver.
+         */
+        @Bean
+        Filter authenticatedDriver() {
+            CustomUserDetails driver = new CustomUserDetails(5L, "driver", "DRIVER");
+            return (request, response, chain) -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        UsernamePasswordAuthenticationToken.authenticated(driver, null, driver.getAuthorities()));
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            };
+        }
+
+        @Override
+        public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+            resolvers.add(new AuthenticationPrincipalArgumentResolver());
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.ridesharing.gateway.proxy;
+
+import com.ridesharing.gateway.config.HttpClientConfig;
+import com.ridesharing.gateway.config.RestTemplateConfig;
+import com.ridesharing.gateway.controller.CustomerProxyController;
+import com.ridesharing.gateway.security.CurrentUser;
+import com.ridesharing.gateway.security.CustomUserDetails;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load benchmark of the gateway proxy: ride history responses are fetched through a real
+ * Tomcat, once through the streaming {@link ProxyEngine} and once through the previous path,
+ * which buffered each response as a String over an unpooled {@code new RestTemplate()}.
+ * Reports throughput, latency percentiles and the bytes allocated per request; run with
+ * {@code -Pbenchmark}. The load can be changed with {@code -Dbenchmark.proxy.requests}
+ * and {@code -Dbenchmark.proxy.clients}.
+ */
+@Tag("benchmark")
+@SpringBootTest(
+        classes = ProxyEngineBenchmarkTest.TestApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "logging.level.com.ridesharing=INFO")
+class ProxyEngineBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProxyEngineBenchmarkTest.class);
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.proxy.requests", 20_000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.proxy.clients", 32);
+    private static final int WARMUP_REQUESTS = 2_000;
+
+    // A page of ride history of roughly 150 KB, as returned by Customer Service
+    private static final byte[] HISTORY = rideHistory(400);
+
+    private static final HttpServer CUSTOMER_SERVICE = startCustomerService();
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    // Kept across runs so the allocation of every load thread is still counted at the end of a run
+    private final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void customerServiceUrl(DynamicPropertyRegistry registry) {
+        registry.add("customer-service.url", () -> "http://localhost:" + CUSTOMER_SERVICE.getAddress().getPort());
+    }
+
+    @AfterEach
+    void stopClients() {
+        clients.shutdownNow();
+    }
+
+    @AfterAll
+    static void stopCustomerService() {
+        CUSTOMER_SERVICE.stop(0);
+    }
+
+    @Test
+    void comparesTheStreamingProxyWithTheBufferedPath() throws Exception {
+        URI streaming = URI.create("http://localhost:" + port + "/api/customer/rides/history?size=400");
+        URI buffered = URI.create("http://localhost:" + port + "/legacy/customer/rides/history?size=400");
+
+        run(streaming, WARMUP_REQUESTS);
+        run(buffered, WARMUP_REQUESTS);
+
+        Result bufferedResult = run(buffered, REQUESTS);
+        Result streamingResult = run(streaming, REQUESTS);
+
+        report("buffered String, unpooled", bufferedResult);
+        report("streaming ProxyEngine", streamingResult);
+
+        assertThat(streamingResult.failures()).isZero();
+        assertThat(bufferedResult.failures()).isZero();
+    }
+
+    private Result run(URI uri, int requests) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "application/json").GET().build();
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            running.add(clients.submit(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < requests) {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() != 200 || response.body().length != HISTORY.length) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[index] = System.nanoTime() - sent;
+                }
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Arrays.sort(latencies);
+        return new Result(requests, elapsed, latencies, allocated, failures.get());
+    }
+
+    private static void report(String path, Result result) {
+        log.info("Proxy benchmark, {}: {} requests from {} clients, {} req/s, p50 {} ms, p99 {} ms, "
+                        + "{} KB allocated per request ({} KB bodies), {} failures",
+                path, result.requests(), CLIENTS, Math.round(result.requests() / (result.elapsedNanos() / 1e9)),
+                String.format("%.2f", result.percentileMillis(0.50)), String.format("%.2f", result.percentileMillis(0.99)),
+                result.allocatedBytes() / result.requests() / 1024, HISTORY.length / 1024, result.failures());
+    }
+
+    /**
+     * Bytes allocated by all threads of this JVM: the gateway, the stand-in backend and the
+     * load clients. Only the gateway differs between the two runs.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private static byte[] rideHistory(int rides) {
+        StringBuilder json = new StringBuilder("{\"success\":true,\"data\":{\"content\":[");
+        for (int i = 0; i < rides; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(1_000_000 + i)
+                    .append(",\"customerId\":42,\"customerName\":\"customer\",\"driverId\":").append(7_000 + i % 50)
+                    .append(",\"driverName\":\"driver-").append(i % 50)
+                    .append("\",\"pickupLocation\":\"King Fahd Road, Al Olaya, Riyadh\",\"dropOffLocation\":\"Prince Turki Street, Al Khobar\"")
+                    .append(",\"pickupLatitude\":24.7136,\"pickupLongitude\":46.6753,\"status\":\"COMPLETED\"")
+                    .append(",\"requestedAt\":\"2026-10-01T08:15:30\",\"acceptedAt\":\"2026-10-01T08:16:02\"")
+                    .append(",\"completedAt\":\"2026-10-01T08:41:10\"}");
+        }
+        json.append("],\"nextCursor\":\"MTAwMDQwMA\"}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static HttpServer startCustomerService() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 512);
+            server.setExecutor(Executors.newFixedThreadPool(64));
+            server.createContext("/api/customer/rides/history", ProxyEngineBenchmarkTest::history);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void history(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, HISTORY.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(HISTORY);
+        }
+    }
+
+    private record Result(int requests, long elapsedNanos, long[] sortedLatencies, long allocatedBytes, int failures) {
+
+        double percentileMillis(double percentile) {
+            int index = Math.min(sortedLatencies.length - 1, (int) Math.ceil(percentile * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    /**
+     * The proxy path as it was before the proxy engine: the backend response is read into a
+     * String and written back from it, over a RestTemplate without connection pooling.
+     */
+    @RestController
+    static class BufferedProxyController {
+
+        private final RestTemplate restTemplate = new RestTemplate();
+
+        @Value("${customer-service.url}")
+        private String customerServiceUrl;
+
+        @GetMapping("/legacy/customer/rides/history")
+        public ResponseEntity<String> getRideHistory(@CurrentUser CustomUserDetails currentUser) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("X-User-Id", String.valueOf(currentUser.getId()));
+            headers.set("X-User-Name", currentUser.getUsername());
+            headers.set("X-User-Role", currentUser.getRole());
+            try {
+                return restTemplate.exchange(customerServiceUrl + "/api/customer/rides/history?size=400",
+                        HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body("{\"success\":false,\"message\":\"Customer Service unavailable\"}");
+            }
+        }
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            JacksonAutoConfiguration.class,
+            RestTemplateAutoConfiguration.class
+    })
+    @Import({CustomerProxyController.class, BufferedProxyController.class, ProxyEngine.class,
+            HttpClientConfig.class, RestTemplateConfig.class})
+    static class TestApplication implements WebMvcConfigurer {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        /**
+         * Stands in for the security filter chain with an authenticated customer.
+         */
+        @Bean
+        Filter authenticatedCustomer() {
+            CustomUserDetails customer = new CustomUserDetails(42L, "customer", "CUSTOMER");
+            return (request, response, chain) -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        UsernamePasswordAuthenticationToken.authenticated(customer, null, customer.getAuthorities()));
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            };
+        }
+
+        @Override
+        public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+            resolvers.add(new AuthenticationPrincipalArgumentResolver());
+        }
+    }
+}
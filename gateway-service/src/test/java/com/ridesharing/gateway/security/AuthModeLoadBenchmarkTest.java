@@ -0,0 +1,226 @@
+package com.ridesharing.gateway.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ridesharing.gateway.GatewayApplication;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of the two authentication modes. The whole gateway is started once per mode
+ * against the same PostgreSQL and Redis, every client logs in as the sample customer and
+ * then fetches its ride history from a stand-in Customer Service, so each request passes
+ * the real security filter chain and the proxy. Session mode runs with the local principal
+ * cache as configured and once with the cache turned off, which is the cost of a Redis
+ * session read per request. Reports throughput and latency percentiles; run with
+ * {@code -Pbenchmark}. The load can be changed with {@code -Dbenchmark.auth.requests}
+ * and {@code -Dbenchmark.auth.clients}.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class AuthModeLoadBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthModeLoadBenchmarkTest.class);
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.auth.requests", 20_000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.auth.clients", 16);
+    private static final int WARMUP_REQUESTS = 5_000;
+
+    private static final String TOKEN_SECRET = "benchmark-secret-of-at-least-32-bytes";
+    private static final byte[] HISTORY =
+            "{\"success\":true,\"data\":{\"rides\":[],\"nextCursor\":null}}".getBytes(StandardCharsets.UTF_8);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withInitScript("init-schema.sql");
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static final HttpServer CUSTOMER_SERVICE = startCustomerService();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+    @AfterEach
+    void stopClients() {
+        clients.shutdownNow();
+    }
+
+    @AfterAll
+    static void stopCustomerService() {
+        CUSTOMER_SERVICE.stop(0);
+    }
+
+    @Test
+    void comparesSessionAndTokenModes() throws Exception {
+        Result cached = loadTest("session", 100_000);
+        Result uncached = loadTest("session", 0);
+        Result token = loadTest("token", 100_000);
+
+        log.info("Authentication mode benchmark, {} requests from {} clients", REQUESTS, CLIENTS);
+        report("session, principal cache", cached);
+        report("session, no principal cache", uncached);
+        report("token", token);
+
+        assertThat(cached.failures() + uncached.failures() + token.failures()).isZero();
+    }
+
+    private Result loadTest(String mode, int sessionCacheSize) throws Exception {
+        // Command line arguments, so they take precedence over application.yml
+        try (ConfigurableApplicationContext gateway = new SpringApplicationBuilder(GatewayApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.data.redis.host=" + redis.getHost(),
+                "--spring.data.redis.port=" + redis.getMappedPort(6379),
+                "--customer-service.url=http://localhost:" + CUSTOMER_SERVICE.getAddress().getPort(),
+                "--gateway.auth.mode=" + mode,
+                "--gateway.auth.token.secret=" + TOKEN_SECRET,
+                "--gateway.session-cache.maximum-size=" + sessionCacheSize,
+                "--logging.level.com.ridesharing=INFO",
+                "--logging.level.org.springframework.security=INFO",
+                "--logging.level.org.springframework.session=INFO")) {
+            int port = ((ServletWebServerApplicationContext) gateway).getWebServer().getPort();
+            URI history = URI.create("http://localhost:" + port + "/api/customer/rides/history");
+
+            List<String[]> credentials = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                credentials.add(login(port, mode));
+            }
+
+            run(history, credentials, WARMUP_REQUESTS);
+            return run(history, credentials, REQUESTS);
+        }
+    }
+
+    /**
+     * Logs in as the sample customer and returns the header that authenticates the next requests.
+     */
+    private String[] login(int port, String mode) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"customer1\",\"password\":\"password123\"}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as("login in %s mode", mode).isEqualTo(200);
+
+        if (mode.equals("token")) {
+            JsonNode body = objectMapper.readTree(response.body());
+            return new String[]{"Authorization", "Bearer " + body.path("data").path("accessToken").asText()};
+        }
+        String cookie = response.headers().allValues("Set-Cookie").stream()
+                .filter(value -> value.startsWith("SESSION="))
+                .findFirst()
+                .orElseThrow();
+        return new String[]{"Cookie", cookie.substring(0, cookie.indexOf(';'))};
+    }
+
+    private Result run(URI uri, List<String[]> credentials, int requests) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+        List<Future<?>> running = new ArrayList<>();
+        for (String[] credential : credentials) {
+            HttpRequest request = HttpRequest.newBuilder(uri).header(credential[0], credential[1]).GET().build();
+            running.add(clients.submit(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < requests) {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[index] = System.nanoTime() - sent;
+                }
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(requests, elapsed, latencies, failures.get());
+    }
+
+    private static void report(String mode, Result result) {
+        log.info("  {}: {} req/s, p50 {} ms, p99 {} ms, {} failures",
+                mode, Math.round(result.requests() / (result.elapsedNanos() / 1e9)),
+                String.format("%.2f", result.percentileMillis(0.50)), String.format("%.2f", result.percentileMillis(0.99)),
+                result.failures());
+    }
+
+    private static HttpServer startCustomerService() {
+        // Small responses would otherwise wait for a delayed ACK between headers and body
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 512);
+            server.setExecutor(Executors.newFixedThreadPool(32));
+            server.createContext("/api/customer/rides/history", AuthModeLoadBenchmarkTest::history);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void history(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, HISTORY.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(HISTORY);
+        }
+    }
+
+    private record Result(int requests, long elapsedNanos, long[] sortedLatencies, int failures) {
+
+        double percentileMillis(double percentile) {
+            int index = Math.min(sortedLatencies.length - 1, (int) Math.ceil(percentile * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.ridesharing.gateway.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactSessionSerializerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CompactSessionSerializer serializer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        serializer = new CompactSessionSerializer(meterRegistry);
+    }
+
+    @Test
+    void roundTripsPlainValues() {
+        assertThat(serializer.deserialize(serializer.serialize(1_700_000_000_000L))).isEqualTo(1_700_000_000_000L);
+        assertThat(serializer.deserialize(serializer.serialize(1800))).isEqualTo(1800);
+        assertThat(serializer.deserialize(serializer.serialize("zoë"))).isEqualTo("zoë");
+        assertThat(serializer.deserialize(serializer.serialize(""))).isEqualTo("");
+    }
+
+    @Test
+    void writesPlainValuesCompactly() {
+        assertThat(serializer.serialize(1_700_000_000_000L)).hasSize(3 + Long.BYTES);
+        assertThat(serializer.serialize(1800)).hasSize(3 + Integer.BYTES);
+    }
+
+    @Test
+    void mapsNullToNoBytesAndBack() {
+        assertThat(serializer.serialize(null)).isEmpty();
+        assertThat(serializer.deserialize(null)).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+    }
+
+    @Test
+    void roundTripsTheSecurityContext() {
+        Object restored = serializer.deserialize(serializer.serialize(securityContext(42L, "alice", "DRIVER")));
+
+        Authentication authentication = ((SecurityContext) restored).getAuthentication();
+        assertThat(authentication).isInstanceOf(UsernamePasswordAuthenticationToken.class);
+        assertThat(authentication.isAuthenticated()).isTrue();
+        CustomUserDetails user = (CustomUserDetails) authentication.getPrincipal();
+        assertThat(user.getId()).isEqualTo(42L);
+        assertThat(user.getUsername()).isEqualTo("alice");
+        assertThat(user.getRole()).isEqualTo("DRIVER");
+        assertThat(user.getPassword()).isNull();
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_DRIVER");
+    }
+
+    @Test
+    void fallsBackToJdkSerializationForOtherValues() {
+        List<String> value = new ArrayList<>(List.of("a", "b"));
+
+        byte[] bytes = serializer.serialize(value);
+
+        assertThat(bytes[0]).isEqualTo((byte) 0xAC);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(value);
+    }
+
+    @Test
+    void readsValuesWrittenByJdkSerialization() {
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize(securityContext(42L, "alice", "DRIVER"));
+
+        Object restored = serializer.deserialize(legacy);
+
+        CustomUserDetails user = (CustomUserDetails) ((SecurityContext) restored).getAuthentication().getPrincipal();
+        assertThat(user.getId()).isEqualTo(42L);
+        assertThat(user.getUsername()).isEqualTo("alice");
+        assertThat(meterRegistry.get("gateway.session.codec.legacy.reads").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void skipsSecurityContextFieldsItDoesNotKnow() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[] {(byte) 0xC5, 1, 4});
+        writeField(out, 9, "from a newer version".getBytes(StandardCharsets.UTF_8));
+        writeField(out, 1, new byte[] {0, 0, 0, 0, 0, 0, 0, 42});
+        writeField(out, 2, "alice".getBytes(StandardCharsets.UTF_8));
+        writeField(out, 10, new byte[0]);
+        writeField(out, 3, "RIDER".getBytes(StandardCharsets.UTF_8));
+        out.writeByte(0);
+
+        Object restored = serializer.deserialize(bytes.toByteArray());
+
+        CustomUserDetails user = (CustomUserDetails) ((SecurityContext) restored).getAuthentication().getPrincipal();
+        assertThat(user.getId()).isEqualTo(42L);
+        assertThat(user.getUsername()).isEqualTo("alice");
+        assertThat(user.getRole()).isEqualTo("RIDER");
+    }
+
+    @Test
+    void rejectsASecurityContextWithMissingFields() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[] {(byte) 0xC5, 1, 4});
+        writeField(out, 2, "alice".getBytes(StandardCharsets.UTF_8));
+        out.writeByte(0);
+
+        assertThatThrownBy(() -> serializer.deserialize(bytes.toByteArray()))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("Incomplete");
+    }
+
+    @Test
+    void rejectsAnotherFormatVersion() {
+        byte[] bytes = serializer.serialize(1800);
+        bytes[1] = 2;
+
+        assertThatThrownBy(() -> serializer.deserialize(bytes))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("version 2");
+    }
+
+    @Test
+    void rejectsAnUnknownType() {
+        byte[] bytes = serializer.serialize(1800);
+        bytes[2] = 99;
+
+        assertThatThrownBy(() -> serializer.deserialize(bytes))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("type 99");
+    }
+
+    private static SecurityContext securityContext(Long id, String username, String role) {
+        CustomUserDetails user = new CustomUserDetails(id, username, role);
+        return new SecurityContextImpl(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+    }
+
+    private static void writeField(DataOutputStream out, int tag, byte[] value) throws IOException {
+        out.writeByte(tag);
+        out.writeShort(value.length);
+        out.write(value);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ridesharing.gateway.security;
+
+import com.ridesharing.gateway.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordVerificationPoolTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordVerificationPool pool;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        pool.shutdown();
+    }
+
+    @Test
+    void hashesOnThePoolInsteadOfTheCallingThread() {
+        pool = pool(4);
+
+        String thread = pool.hash("alice", "10.0.0.1", () -> Thread.currentThread().getName());
+
+        assertThat(thread).startsWith("password-verify-");
+    }
+
+    @Test
+    void capsConcurrentRequestsForTheSameUsername() throws Exception {
+        pool = pool(4);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                pool.verify("alice", "10.0.0.1", () -> block(started)));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> pool.hash("alice", "10.0.0.2", () -> "hash"))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(pool.verify("bob", "10.0.0.1", () -> "ok")).isEqualTo("ok");
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    }
+
+    @Test
+    void capsConcurrentRequestsFromTheSameAddress() throws Exception {
+        pool = pool(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                pool.verify("alice", "10.0.0.1", () -> block(started)));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> pool.verify("bob", "10.0.0.1", () -> "ok"))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(pool.verify("bob", "10.0.0.2", () -> "ok")).isEqualTo("ok");
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    }
+
+    @Test
+    void addressLimitOfZeroIsOff() throws Exception {
+        pool = pool(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                pool.verify("alice", "10.0.0.1", () -> block(started)));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(pool.verify("bob", "10.0.0.1", () -> "ok")).isEqualTo("ok");
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    }
+
+    @Test
+    void rethrowsTheVerificationFailure() {
+        pool = pool(4);
+
+        assertThatThrownBy(() -> pool.verify("alice", "10.0.0.1", () -> {
+            throw new IllegalArgumentException("bad credentials");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("bad credentials");
+    }
+
+    private PasswordVerificationPool pool(int maxPerAddress) {
+        return new PasswordVerificationPool(new SimpleMeterRegistry(), 2, 10, Duration.ofSeconds(5), 1, maxPerAddress);
+    }
+
+    private String block(CountDownLatch started) throws InterruptedException {
+        started.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        return "done";
+    }
+}
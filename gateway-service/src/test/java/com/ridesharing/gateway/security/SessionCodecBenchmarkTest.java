@@ -0,0 +1,108 @@
+package com.ridesharing.gateway.security;
+
+import com.ridesharing.gateway.dto.Role;
+import com.ridesharing.gateway.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the compact session codec with the JDK serialization it replaced, in payload size
+ * and encode/decode time, for the attributes every session carries: the security context and
+ * the last accessed time. The previous format is measured with the principal it used to hold
+ * (password hash, email and phone included) and with the slim principal, to separate the gain
+ * of the format from the gain of storing less. Each case runs warmup and measurement
+ * iterations and reports the median time per operation; run with {@code -Pbenchmark}.
+ */
+@Tag("benchmark")
+class SessionCodecBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionCodecBenchmarkTest.class);
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    private static final int OPERATIONS_PER_ITERATION = 50_000;
+
+    private final RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer();
+    private final RedisSerializer<Object> compact = new CompactSessionSerializer(new SimpleMeterRegistry());
+
+    // Consumed results, so the work being measured cannot be optimized away
+    private long sink;
+
+    @Test
+    void comparesSizeAndSpeedOfTheSessionCodecs() {
+        User stored = User.builder()
+                .id(48_213L)
+                .username("customer48213")
+                .password("$2a$10$Xq3n6pZ0Jm4mT1vO0kq8UeZ4rJ0eN9WmYpQm1dK8b6cQy1Fh7uG2S")
+                .email("customer48213@example.com")
+                .phone("0501234567")
+                .role(Role.CUSTOMER)
+                .enabled(true)
+                .build();
+        SecurityContext previous = securityContext(new CustomUserDetails(stored));
+        SecurityContext slim = securityContext(new CustomUserDetails(48_213L, "customer48213", "CUSTOMER"));
+        Long lastAccessedTime = 1_792_223_130_000L;
+
+        log.info("Session codec benchmark, median of {} iterations of {} operations",
+                MEASUREMENT_ITERATIONS, OPERATIONS_PER_ITERATION);
+        int previousBytes = measure("JDK, full principal (previous)", jdk, previous);
+        measure("JDK, slim principal", jdk, slim);
+        int compactBytes = measure("compact", compact, slim);
+        measure("JDK, last accessed time", jdk, lastAccessedTime);
+        measure("compact, last accessed time", compact, lastAccessedTime);
+
+        assertThat(compactBytes).isLessThan(previousBytes);
+    }
+
+    /**
+     * Logs the encoded size and time per operation and returns the encoded size.
+     */
+    private int measure(String name, RedisSerializer<Object> serializer, Object value) {
+        byte[] encoded = serializer.serialize(value);
+        assertThat(serializer.deserialize(encoded)).isNotNull();
+
+        double encode = nanosPerOperation(() -> sink += serializer.serialize(value).length);
+        double decode = nanosPerOperation(() -> sink += serializer.deserialize(encoded).hashCode());
+
+        log.info("  {}: {} bytes, encode {} ns/op, decode {} ns/op",
+                name, encoded.length, String.format("%.0f", encode), String.format("%.0f", decode));
+        return encoded.length;
+    }
+
+    private static double nanosPerOperation(Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(operation);
+        }
+        double[] iterations = new double[MEASUREMENT_ITERATIONS];
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            iterations[i] = iteration(operation);
+        }
+        Arrays.sort(iterations);
+        return iterations[MEASUREMENT_ITERATIONS / 2];
+    }
+
+    private static double iteration(Runnable operation) {
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS_PER_ITERATION; i++) {
+            operation.run();
+        }
+        return (double) (System.nanoTime() - start) / OPERATIONS_PER_ITERATION;
+    }
+
+    private static SecurityContext securityContext(CustomUserDetails user) {
+        return new SecurityContextImpl(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+    }
+}
@@ -0,0 +1,208 @@
+package com.ridesharing.gateway.security;
+
+import com.ridesharing.gateway.config.RedisSessionConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.session.data.redis.RedisIndexedSessionRepository;
+import org.springframework.session.web.http.CookieSerializer;
+import org.springframework.session.web.http.DefaultCookieSerializer;
+import org.springframework.session.web.http.SessionRepositoryFilter;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures what authorizing a request from its session costs, with and without the local
+ * session principal cache. Each request goes through the Spring Session filter and loads
+ * the security context, as the security filter chain does: without the cache the session
+ * is read from Redis, deserialized and its last access time written back; with the cache
+ * the principal comes from memory. Run with {@code -Pbenchmark}; the load can be changed
+ * with {@code -Dbenchmark.session.requests} and {@code -Dbenchmark.session.clients}.
+ */
+@Tag("benchmark")
+@SpringBootTest(
+        classes = SessionPrincipalCacheBenchmarkTest.TestApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "logging.level.com.ridesharing=INFO",
+                "logging.level.org.springframework.session=INFO"
+        })
+@Testcontainers(disabledWithoutDocker = true)
+class SessionPrincipalCacheBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionPrincipalCacheBenchmarkTest.class);
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.session.requests", 100_000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.session.clients", 16);
+    private static final int WARMUP_REQUESTS = 10_000;
+    private static final int SESSIONS = 1_000;
+
+    @Container
+    @ServiceConnection(name = "redis")
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    @Autowired
+    private RedisIndexedSessionRepository sessionRepository;
+
+    @Autowired
+    private SessionRepositoryFilter<?> sessionRepositoryFilter;
+
+    @Autowired
+    private CachingSecurityContextRepository cachingRepository;
+
+    private final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+    private final List<String> sessionCookies = new ArrayList<>();
+
+    @BeforeEach
+    void createSessions() {
+        for (int i = 0; i < SESSIONS; i++) {
+            CustomUserDetails user = new CustomUserDetails((long) i, "user-" + i, i % 2 == 0 ? "CUSTOMER" : "DRIVER");
+            SecurityContext context = new SecurityContextImpl(
+                    UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+
+            String sessionId = save(sessionRepository, context);
+            sessionCookies.add(Base64.getEncoder().encodeToString(sessionId.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static <S extends Session> String save(SessionRepository<S> repository, SecurityContext context) {
+        S session = repository.createSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+        repository.save(session);
+        return session.getId();
+    }
+
+    @AfterEach
+    void stopClients() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void comparesSessionLoadsWithTheLocalCache() throws Exception {
+        SecurityContextRepository uncached = new HttpSessionSecurityContextRepository();
+
+        run(uncached, WARMUP_REQUESTS);
+        Result before = run(uncached, REQUESTS);
+        run(cachingRepository, WARMUP_REQUESTS);
+        Result after = run(cachingRepository, REQUESTS);
+
+        log.info("Session principal benchmark, {} requests over {} sessions from {} clients", REQUESTS, SESSIONS, CLIENTS);
+        log.info("  Redis session per request: {} req/s, p50 {} us, p99 {} us",
+                before.throughput(), before.micros(0.50), before.micros(0.99));
+        log.info("  local principal cache:     {} req/s, p50 {} us, p99 {} us",
+                after.throughput(), after.micros(0.50), after.micros(0.99));
+
+        assertThat(before.unauthenticated() + after.unauthenticated()).isZero();
+    }
+
+    private Result run(SecurityContextRepository repository, int requests) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger unauthenticated = new AtomicInteger();
+        long[] latencies = new long[requests];
+        List<Future<?>> futures = new ArrayList<>(CLIENTS);
+
+        long start = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            futures.add(clients.submit(() -> {
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/customer/rides/history");
+                    request.setCookies(new Cookie("SESSION", sessionCookies.get(i % SESSIONS)));
+                    FilterChain authorize = (wrapped, response) -> {
+                        SecurityContext context = repository.loadDeferredContext((HttpServletRequest) wrapped).get();
+                        if (context.getAuthentication() == null) {
+                            unauthenticated.incrementAndGet();
+                        }
+                    };
+
+                    long requestStart = System.nanoTime();
+                    sessionRepositoryFilter.doFilter(request, new MockHttpServletResponse(), authorize);
+                    latencies[i] = System.nanoTime() - requestStart;
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(requests, elapsed, latencies, unauthenticated.get());
+    }
+
+    private record Result(int requests, long elapsedNanos, long[] sortedLatencies, int unauthenticated) {
+
+        long throughput() {
+            return Math.round(requests / (elapsedNanos / 1e9));
+        }
+
+        String micros(double percentile) {
+            int index = Math.max(0, (int) Math.ceil(percentile * sortedLatencies.length) - 1);
+            return String.format("%.1f", sortedLatencies[index] / 1e3);
+        }
+    }
+
+    @Configuration
+    @ImportAutoConfiguration(RedisAutoConfiguration.class)
+    @Import(RedisSessionConfig.class)
+    static class TestApplication {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        CookieSerializer cookieSerializer() {
+            DefaultCookieSerializer serializer = new DefaultCookieSerializer();
+            serializer.setCookieName("SESSION");
+            return serializer;
+        }
+
+        @Bean
+        CachingSecurityContextRepository securityContextRepository(CookieSerializer cookieSerializer,
+                                                                   MeterRegistry meterRegistry) {
+            return new CachingSecurityContextRepository(new HttpSessionSecurityContextRepository(),
+                    cookieSerializer, meterRegistry, 100_000, Duration.ofSeconds(30));
+        }
+    }
+}
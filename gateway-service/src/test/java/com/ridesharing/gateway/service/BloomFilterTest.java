@@ -0,0 +1,67 @@
+package com.ridesharing.gateway.service;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BloomFilterTest.class);
+
+    // The gateway.registration.bloom defaults in application.yml
+    private static final int EXPECTED_USERS = 1_000_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void neverForgetsAnAddedValue() {
+        BloomFilter filter = new BloomFilter(EXPECTED_USERS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < EXPECTED_USERS; i++) {
+            filter.add("user" + i);
+        }
+
+        for (int i = 0; i < EXPECTED_USERS; i++) {
+            assertThat(filter.mightContain("user" + i)).as("user%d", i).isTrue();
+        }
+    }
+
+    @Test
+    void staysNearTheConfiguredFalsePositiveRateWhenFull() {
+        BloomFilter filter = new BloomFilter(EXPECTED_USERS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < EXPECTED_USERS; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+
+        int probes = 1_000_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        log.info("Bloom filter: {} values, measured false-positive rate {} (configured {})",
+                EXPECTED_USERS, String.format("%.4f", rate), FALSE_POSITIVE_RATE);
+
+        assertThat(rate).isLessThan(FALSE_POSITIVE_RATE * 1.5);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(EXPECTED_USERS, FALSE_POSITIVE_RATE);
+
+        assertThat(filter.mightContain("alice")).isFalse();
+        assertThat(filter.mightContain("")).isFalse();
+    }
+
+    @Test
+    void handlesNonAsciiValues() {
+        BloomFilter filter = new BloomFilter(100, FALSE_POSITIVE_RATE);
+        filter.add("zoë");
+        filter.add("пользователь");
+
+        assertThat(filter.mightContain("zoë")).isTrue();
+        assertThat(filter.mightContain("пользователь")).isTrue();
+    }
+}
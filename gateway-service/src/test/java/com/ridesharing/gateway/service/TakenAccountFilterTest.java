@@ -0,0 +1,70 @@
+package com.ridesharing.gateway.service;
+
+import com.ridesharing.gateway.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TakenAccountFilterTest {
+
+    private UserRepository userRepository;
+    private TakenAccountFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        filter = new TakenAccountFilter(userRepository, transactionTemplate, 1_000, 0.01);
+    }
+
+    @Test
+    void treatsEverythingAsTakenUntilBuilt() {
+        assertThat(filter.mightHaveUsername("alice")).isTrue();
+        assertThat(filter.mightHaveEmail("alice@example.com")).isTrue();
+    }
+
+    @Test
+    void knowsRegisteredAccountsOnceBuilt() {
+        when(userRepository.streamAllUsernames()).thenReturn(Stream.of("alice", "bob"));
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("alice@example.com", "bob@example.com"));
+
+        filter.rebuild();
+
+        assertThat(filter.mightHaveUsername("alice")).isTrue();
+        assertThat(filter.mightHaveUsername("bob")).isTrue();
+        assertThat(filter.mightHaveEmail("alice@example.com")).isTrue();
+        assertThat(filter.mightHaveEmail("bob@example.com")).isTrue();
+        assertThat(filter.mightHaveUsername("carol")).isFalse();
+        assertThat(filter.mightHaveEmail("carol@example.com")).isFalse();
+    }
+
+    @Test
+    void keepsUsernamesAndEmailsApart() {
+        when(userRepository.streamAllUsernames()).thenReturn(Stream.of("alice"));
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("bob@example.com"));
+
+        filter.rebuild();
+
+        assertThat(filter.mightHaveEmail("alice")).isFalse();
+        assertThat(filter.mightHaveUsername("bob@example.com")).isFalse();
+    }
+
+    @Test
+    void knowsAccountsAddedAfterTheBuild() {
+        when(userRepository.streamAllUsernames()).thenReturn(Stream.empty());
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        filter.rebuild();
+
+        filter.add("carol", "carol@example.com");
+
+        assertThat(filter.mightHaveUsername("carol")).isTrue();
+        assertThat(filter.mightHaveEmail("carol@example.com")).isTrue();
+    }
+}
@@ -0,0 +1,2 @@
+-- Created by docker/postgres/init.sql outside of tests
+CREATE SCHEMA IF NOT EXISTS gateway;